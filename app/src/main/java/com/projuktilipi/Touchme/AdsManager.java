@@ -2,13 +2,16 @@ package com.projuktilipi.Touchme;
 
 import android.app.Activity;
 import android.content.Context;
+import android.os.SystemClock;
 
 import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.google.android.gms.ads.AdError;
 import com.google.android.gms.ads.AdRequest;
 import com.google.android.gms.ads.FullScreenContentCallback;
+import com.google.android.gms.ads.LoadAdError;
 import com.google.android.gms.ads.MobileAds;
 import com.google.android.gms.ads.OnUserEarnedRewardListener;  // <-- fixed package
 import com.google.android.gms.ads.interstitial.InterstitialAd;
@@ -17,7 +20,11 @@ import com.google.android.gms.ads.rewarded.RewardItem;
 import com.google.android.gms.ads.rewarded.RewardedAd;
 import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
 
-public class AdsManager {
+/**
+ * AdMob behind an {@link AdPipeline}: ads are loaded ahead at quiet moments, and showing
+ * one only takes what is already loaded. Everything here runs on the main thread.
+ */
+public class AdsManager implements AdPipeline.Loader {
 
     public interface RewardListener { void onRewardEarned(); }
 
@@ -25,60 +32,86 @@ public class AdsManager {
     private static final String TEST_INTERSTITIAL = "ca-app-pub-3940256099942544/1033173712";
     private static final String TEST_REWARDED     = "ca-app-pub-3940256099942544/5224354917";
 
-    private InterstitialAd interstitial;
-    private RewardedAd rewarded;
+    private static final long TTL_MS = 55 * 60_000L;         // AdMob ads go stale after an hour
+    private static final long BACKOFF_BASE_MS = 5_000L;
+    private static final long BACKOFF_MAX_MS = 10 * 60_000L;
 
-    public void init(Context ctx) {
+    private final AdPipeline pipeline = new AdPipeline(this, SystemClock::elapsedRealtime,
+            2, 1, TTL_MS, BACKOFF_BASE_MS, BACKOFF_MAX_MS);
+    private Context app;
+    private boolean enabled = true;
+
+    /** SDK start-up; safe (and recommended) off the main thread. */
+    public void initSdk(Context ctx) {
         MobileAds.initialize(ctx, initializationStatus -> { });
-        loadInterstitial(ctx);
-        loadRewarded(ctx);
     }
 
-    public void loadInterstitial(Context ctx) {
-        AdRequest req = new AdRequest.Builder().build();
-        InterstitialAd.load(ctx, TEST_INTERSTITIAL, req, new InterstitialAdLoadCallback() {
-            @Override public void onAdLoaded(InterstitialAd ad) { interstitial = ad; }
-            @Override public void onAdFailedToLoad(com.google.android.gms.ads.LoadAdError err) { interstitial = null; }
-        });
+    /** First loads once the SDK is up. Main thread. */
+    @MainThread
+    public void preload(Context ctx) {
+        app = ctx.getApplicationContext();
+        refill();
+    }
+
+    /** Quiet moment (pause, results, menu): top up the ready queues. Main thread. */
+    @MainThread
+    public void refill() {
+        if (enabled && app != null) pipeline.refill();
     }
 
-    public void loadRewarded(Context ctx) {
+    /** Off when ads are removed: drops what's loaded and stops loading. */
+    @MainThread
+    public void setEnabled(boolean on) {
+        if (on == enabled) return;
+        enabled = on;
+        if (on) refill();
+        else pipeline.clear();
+    }
+
+    @Override public void load(int kind, AdPipeline.Loaded done) {
         AdRequest req = new AdRequest.Builder().build();
-        RewardedAd.load(ctx, TEST_REWARDED, req, new RewardedAdLoadCallback() {
-            @Override public void onAdLoaded(RewardedAd ad) { rewarded = ad; }
-            @Override public void onAdFailedToLoad(com.google.android.gms.ads.LoadAdError err) { rewarded = null; }
-        });
+        if (kind == AdPipeline.INTERSTITIAL) {
+            InterstitialAd.load(app, TEST_INTERSTITIAL, req, new InterstitialAdLoadCallback() {
+                @Override public void onAdLoaded(@NonNull InterstitialAd ad) { done.onLoaded(ad); }
+                @Override public void onAdFailedToLoad(@NonNull LoadAdError err) { done.onFailed(); }
+            });
+        } else {
+            RewardedAd.load(app, TEST_REWARDED, req, new RewardedAdLoadCallback() {
+                @Override public void onAdLoaded(@NonNull RewardedAd ad) { done.onLoaded(ad); }
+                @Override public void onAdFailedToLoad(@NonNull LoadAdError err) { done.onFailed(); }
+            });
+        }
     }
 
+    /** Shows a ready interstitial, or runs {@code onClosed} right away if none is loaded. */
     @MainThread
     public void showInterstitial(Activity act, @Nullable Runnable onClosed) {
-        if (interstitial == null) { loadInterstitial(act); if (onClosed != null) onClosed.run(); return; }
-        interstitial.setFullScreenContentCallback(new FullScreenContentCallback() {
+        InterstitialAd ad = enabled ? (InterstitialAd) pipeline.take(AdPipeline.INTERSTITIAL) : null;
+        if (ad == null) { if (onClosed != null) onClosed.run(); return; }
+        ad.setFullScreenContentCallback(new FullScreenContentCallback() {
             @Override public void onAdDismissedFullScreenContent() {
-                interstitial = null; loadInterstitial(act);
                 if (onClosed != null) onClosed.run();
+                refill();
             }
-            @Override public void onAdFailedToShowFullScreenContent(AdError adError) {
-                interstitial = null; loadInterstitial(act);
+            @Override public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
                 if (onClosed != null) onClosed.run();
+                refill();
             }
         });
-        interstitial.show(act);
+        ad.show(act);
     }
 
+    /** Shows a ready rewarded ad; does nothing if none is loaded. */
     @MainThread
     public void showRewarded(Activity act, @Nullable RewardListener listener) {
-        if (rewarded == null) { loadRewarded(act); return; }
-        rewarded.setFullScreenContentCallback(new FullScreenContentCallback() {
-            @Override public void onAdDismissedFullScreenContent() {
-                rewarded = null; loadRewarded(act);
-            }
-            @Override public void onAdFailedToShowFullScreenContent(AdError adError) {
-                rewarded = null; loadRewarded(act);
-            }
+        RewardedAd ad = enabled ? (RewardedAd) pipeline.take(AdPipeline.REWARDED) : null;
+        if (ad == null) return;
+        ad.setFullScreenContentCallback(new FullScreenContentCallback() {
+            @Override public void onAdDismissedFullScreenContent() { refill(); }
+            @Override public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) { refill(); }
         });
-        rewarded.show(act, new OnUserEarnedRewardListener() {
-            @Override public void onUserEarnedReward(RewardItem rewardItem) {
+        ad.show(act, new OnUserEarnedRewardListener() {
+            @Override public void onUserEarnedReward(@NonNull RewardItem rewardItem) {
                 if (listener != null) listener.onRewardEarned();
             }
         });
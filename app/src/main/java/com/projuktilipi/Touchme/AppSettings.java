@@ -0,0 +1,69 @@
+package com.projuktilipi.Touchme;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import java.io.File;
+
+/**
+ * The app's one {@link SettingsStore} and its keys. Reads are from memory; writes are
+ * batched onto a background thread {@link #WRITE_DELAY_MS} after the first change, so
+ * everything one frame (or one button handler) changes lands in a single file write.
+ *
+ * The first run after an update imports the old {@code touch_me_prefs} SharedPreferences.
+ * That file is left as it is: if the new file is ever unreadable the import simply runs again.
+ */
+public final class AppSettings {
+
+    private static final String FILE = "settings.bin";
+    private static final String LEGACY_PREFS = "touch_me_prefs";
+    private static final long WRITE_DELAY_MS = 50;
+
+    // Names match the old SharedPreferences keys so the migration is a straight copy.
+    // (The theme key lives in ThemeManager.)
+    public static final SettingsStore.Key<Integer> BEST = SettingsStore.Key.integer("best", 0);
+    public static final SettingsStore.Key<Integer> MODE = SettingsStore.Key.integer("mode", GameMode.TIME_ATTACK.ordinal());
+    public static final SettingsStore.Key<Boolean> HAPTICS = SettingsStore.Key.bool("haptics_enabled", true);
+    public static final SettingsStore.Key<Boolean> MUSIC = SettingsStore.Key.bool("music_enabled", false);
+    public static final SettingsStore.Key<Boolean> SFX = SettingsStore.Key.bool("sfx_enabled", true);
+    public static final SettingsStore.Key<Boolean> SURFACE_RENDERER = SettingsStore.Key.bool("surface_renderer", false);
+    public static final SettingsStore.Key<Boolean> HIGH_REFRESH = SettingsStore.Key.bool("high_refresh_rate", false);
+    public static final SettingsStore.Key<Boolean> FRAME_OVERLAY = SettingsStore.Key.bool("frame_overlay", false);
+    // Legacy: only seeds the entitlement cache (BillingManager) until its first reconcile
+    public static final SettingsStore.Key<Boolean> ADS_REMOVED = SettingsStore.Key.bool("ads_removed", false);
+    public static final SettingsStore.Key<Boolean> TUTORIAL_SEEN = SettingsStore.Key.bool("tutorial_seen", false);
+    public static final SettingsStore.Key<Boolean> PGS_ASKED_ONCE = SettingsStore.Key.bool("pgs_asked_once", false);
+    // AchievementRules.unlocked(): achievements already handed to the social outbox
+    public static final SettingsStore.Key<String> ACHIEVEMENTS = SettingsStore.Key.string("achievements_unlocked", "");
+    // Story: the activity's 1-based counter, and LevelManager's 0-based index + best reached
+    public static final SettingsStore.Key<Integer> STORY_LEVEL = SettingsStore.Key.integer("story_level", 1);
+    public static final SettingsStore.Key<Integer> STORY_LEVEL_INDEX = SettingsStore.Key.integer("story_level_index", 0);
+    public static final SettingsStore.Key<Integer> STORY_HIGHEST = SettingsStore.Key.integer("story_highest", 0);
+
+    private static SettingsStore store;
+    private static Handler io;
+
+    private AppSettings() { }
+
+    /** The store, loaded (one file read) on first use. */
+    public static synchronized SettingsStore get(Context ctx) {
+        if (store != null) return store;
+        Context app = ctx.getApplicationContext();
+        HandlerThread t = new HandlerThread("Settings");
+        t.start();
+        io = new Handler(t.getLooper());
+        store = new SettingsStore(new File(app.getFilesDir(), FILE), r -> io.postDelayed(r, WRITE_DELAY_MS));
+        if (!store.load()) {
+            SharedPreferences legacy = app.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+            store.migrate(legacy.getAll());
+        }
+        return store;
+    }
+
+    /** Write pending changes now instead of after the delay (app going to the background). */
+    public static synchronized void flushSoon() {
+        if (store != null) io.post(store::flush);
+    }
+}
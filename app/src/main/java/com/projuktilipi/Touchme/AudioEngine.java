@@ -4,33 +4,40 @@ import android.content.Context;
 import android.media.AudioAttributes;
 import android.media.AudioFocusRequest;
 import android.media.AudioManager;
-import android.media.MediaPlayer;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 
 import androidx.annotation.RawRes;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * Background music + SFX helper
- * - SFX via SoundPool (kept from previous)
- * - BGM via MediaPlayer with audio focus + fade in/out + ducking
+ * - SFX: decoded once into PCM and mixed on our own low-latency AudioTrack
+ *   ({@link SfxMixer} + {@link SfxOutput}); taps can't starve misses or power-ups of voices
+ * - BGM via {@link MusicDeck}: prepared players, crossfades and gapless loops on an audio
+ *   control thread; audio focus + ducking handled here
  */
 public class AudioEngine {
     // ---------- SFX ----------
-    private final android.media.SoundPool pool;
+    static final int SFX_TAP = 0, SFX_MISS = 1, SFX_POWER = 2, SFX_SLOTS = 3;
+    private static final int SFX_VOICES = 32;
+
     private final Handler main = new Handler(Looper.getMainLooper());
-    private int idTap = 0, idMiss = 0, idPower = 0;
-    private volatile boolean sfxReady = false;
-    private boolean sfxEnabled = true;
+    private final SfxOutput sfx;
+    private volatile boolean sfxReady = false; // all three clips decoded
+    private volatile boolean sfxEnabled = true;
 
     // ---------- BGM ----------
     private final Context app;
     private final AudioManager am;
-    private MediaPlayer bgm;
+    private final MusicDeck deck;
     private boolean musicEnabled = true;
+    private boolean musicOn = false;      // a track was started and not stopped
     private float bgmTargetVol = 0.35f;   // your default music volume
-    private float bgmCurrentVol = 0f;
     private boolean focusGranted = false;
 
     private AudioFocusRequest focusReq;
@@ -38,34 +45,50 @@ public class AudioEngine {
     public AudioEngine(Context ctx) {
         app = ctx.getApplicationContext();
         am = (AudioManager) app.getSystemService(Context.AUDIO_SERVICE);
+        sfx = new SfxOutput(app, SFX_VOICES);
+        deck = new MusicDeck(app);
+    }
 
-        AudioAttributes sfxAA = new AudioAttributes.Builder()
-                .setUsage(AudioAttributes.USAGE_GAME)
-                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                .build();
-
-        pool = new android.media.SoundPool.Builder()
-                .setMaxStreams(4)
-                .setAudioAttributes(sfxAA)
-                .build();
-
-        pool.setOnLoadCompleteListener((sp, sampleId, status) -> {
-            if (status == 0) sfxReady = true;
-        });
-
-        idTap   = safeLoad(R.raw.sfx_tap);
-        idMiss  = safeLoad(R.raw.sfx_miss);
-        idPower = safeLoad(R.raw.sfx_powerup);
+    /**
+     * Decode the SFX files; any thread. Until a clip is in, playing it is a no-op; a file that
+     * won't decode silences only that sound. Priorities: taps are the most frequent and the
+     * first to give up a voice; power-ups the last.
+     */
+    public void loadSfx() {
+        boolean all = load(SFX_TAP, R.raw.sfx_tap, 1);
+        all &= load(SFX_MISS, R.raw.sfx_miss, 2);
+        all &= load(SFX_POWER, R.raw.sfx_powerup, 3);
+        sfxReady = all;
     }
 
-    private int safeLoad(@RawRes int resId) { try { return pool.load(app, resId, 1); } catch (Exception e) { return 0; } }
+    private boolean load(int slot, @RawRes int resId, int priority) {
+        try (InputStream in = app.getResources().openRawResource(resId)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            for (int n; (n = in.read(buf)) > 0; ) bytes.write(buf, 0, n);
+            sfx.mixer().setClip(slot, PcmClip.fromWav(bytes.toByteArray(), sfx.sampleRate), priority);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
 
     // ---------- SFX API ----------
-    public void prewarm() { if (sfxReady && idTap != 0) pool.play(idTap, 0,0,0,0,1); else main.postDelayed(this::prewarm, 60); }
-    public void setSfxEnabled(boolean v) { sfxEnabled = v; }
-    public void playTap()   { if (sfxEnabled && sfxReady && idTap   != 0) pool.play(idTap,1,1,1,0,1); }
-    public void playMiss()  { if (sfxEnabled && sfxReady && idMiss  != 0) pool.play(idMiss,1,1,1,0,1); }
-    public void playPower() { if (sfxEnabled && sfxReady && idPower != 0) pool.play(idPower,1,1,1,0,1); }
+    /** Start the mixer thread and its track now, so the first tap doesn't pay for it. */
+    public void prewarm() { if (sfxEnabled) sfx.start(); }
+    public boolean isSfxReady() { return sfxReady; }
+    public void setSfxEnabled(boolean v) {
+        sfxEnabled = v;
+        if (v) sfx.start(); else sfx.mixer().stopAll();
+    }
+    public void playTap()   { playSfx(SFX_TAP, 1f); }
+    public void playMiss()  { playSfx(SFX_MISS, 1f); }
+    public void playPower() { playSfx(SFX_POWER, 1f); }
+
+    /** Any thread. {@code slot} is one of the SFX_ ids; gain 1 is the clip as recorded. */
+    public void playSfx(int slot, float gain) {
+        if (sfxEnabled) sfx.mixer().play(slot, gain); // wakes the mixer thread if it went idle
+    }
 
     // ---------- BGM internals ----------
     private final AudioManager.OnAudioFocusChangeListener focusListener = focusChange -> {
@@ -73,8 +96,7 @@ public class AudioEngine {
             case AudioManager.AUDIOFOCUS_GAIN:
                 focusGranted = true;
                 // restore volume and resume if we had paused for loss
-                fadeTo(bgmTargetVol, 300);
-                if (bgm != null && !bgm.isPlaying() && musicEnabled) safeStart();
+                if (musicOn && musicEnabled) deck.resume(300);
                 break;
             case AudioManager.AUDIOFOCUS_LOSS:
                 focusGranted = false;
@@ -84,7 +106,7 @@ public class AudioEngine {
                 pauseMusic();
                 break;
             case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK:
-                fadeTo(0.12f * bgmTargetVol, 150);
+                deck.duck(0.12f, 150);
                 break;
         }
     };
@@ -121,103 +143,50 @@ public class AudioEngine {
         }
     }
 
-    private void ensureBgm(@RawRes int resId, boolean loop) {
-        if (bgm != null) {
-            try { bgm.stop(); } catch (Exception ignored) {}
-            try { bgm.release(); } catch (Exception ignored) {}
-            bgm = null;
-        }
-        bgm = MediaPlayer.create(app, resId);
-        if (bgm != null) {
-            bgm.setLooping(loop);
-            setPlayerVolume(0f);
-        }
-    }
-
-    private void setPlayerVolume(float v) {
-        bgmCurrentVol = Math.max(0f, Math.min(1f, v));
-        if (bgm != null) bgm.setVolume(bgmCurrentVol, bgmCurrentVol);
-    }
-
-    private void fadeTo(float target, long ms) {
-        final float start = bgmCurrentVol;
-        final float delta = target - start;
-        final long steps = Math.max(1, ms / 16);
-        final long[] i = {0};
-        main.removeCallbacks(fadeTick);
-        fadeTarget = target;
-        fadeSteps = steps;
-        fadeStart = start;
-        fadeDelta = delta;
-        i[0] = 0;
-        main.post(fadeTick);
-    }
-
-    private float fadeTarget, fadeStart, fadeDelta; private long fadeSteps;
-    private final Runnable fadeTick = new Runnable() {
-        long tick = 0;
-        @Override public void run() {
-            if (bgm == null) return;
-            if (tick >= fadeSteps) { setPlayerVolume(fadeTarget); return; }
-            float p = (float)tick / (float)fadeSteps;
-            setPlayerVolume(fadeStart + fadeDelta * p);
-            tick++;
-            main.postDelayed(this, 16);
-        }
-    };
-
-    private void safeStart() {
-        try { if (bgm != null && !bgm.isPlaying()) bgm.start(); } catch (Exception ignored) {}
-    }
-
     // ---------- BGM API ----------
     public void setMusicEnabled(boolean v) {
         musicEnabled = v;
         if (!musicEnabled) stopMusic();
     }
 
-    /** Start (or switch to) a track, looped, with fade-in. */
+    /** Have these tracks prepared ahead of time; switching to them is then just a fade. */
+    public void preloadMusic(@RawRes int... resIds) { deck.prepare(resIds); }
+
+    /** Start (or crossfade to) a track, with fade-in. Never blocks on the player. */
     public void startMusic(@RawRes int resId, boolean loop) {
         if (!musicEnabled) return;
         if (!requestFocus()) return;
-        ensureBgm(resId, loop);
-        if (bgm == null) return;
-        safeStart();
-        fadeTo(bgmTargetVol, 400);
+        musicOn = true;
+        deck.play(resId, loop, 400);
     }
 
     /** Pause (keep player) – used for in-app pause or focus loss. */
     public void pauseMusic() {
-        main.removeCallbacks(fadeTick);
-        try { if (bgm != null && bgm.isPlaying()) bgm.pause(); } catch (Exception ignored) {}
+        deck.pause();
     }
 
     /** Resume if we still want music and have focus. */
     public void resumeMusic() {
-        if (!musicEnabled) return;
+        if (!musicEnabled || !musicOn) return;
         if (!requestFocus()) return;
-        safeStart();
-        fadeTo(bgmTargetVol, 250);
+        deck.resume(250);
     }
 
-    /** Stop + release focus with fade-out. */
+    /** Fade out (the player stays prepared) and release focus. */
     public void stopMusic() {
-        main.removeCallbacks(fadeTick);
-        fadeTo(0f, 200);
-        main.postDelayed(() -> {
-            try { if (bgm != null) { bgm.stop(); bgm.release(); } } catch (Exception ignored) {}
-            bgm = null;
-            abandonFocus();
-        }, 220);
+        musicOn = false;
+        deck.stop(200);
+        abandonFocus();
     }
 
     public void setMusicVolume(float v) {
         bgmTargetVol = Math.max(0f, Math.min(1f, v));
-        if (bgm != null) setPlayerVolume(bgmTargetVol);
+        deck.setVolume(bgmTargetVol);
     }
 
     public void release() {
-        try { pool.release(); } catch (Exception ignored) {}
+        sfx.stop();
         stopMusic();
+        deck.release();
     }
 }
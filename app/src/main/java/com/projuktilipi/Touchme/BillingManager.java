@@ -2,6 +2,8 @@ package com.projuktilipi.Touchme;
 
 import android.app.Activity;
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.MainThread;
 import androidx.annotation.Nullable;
@@ -20,29 +22,52 @@ import com.android.billingclient.api.QueryPurchasesParams;
 import java.util.ArrayList;
 import java.util.List;
 
-public class BillingManager implements PurchasesUpdatedListener {
+/**
+ * Play Billing: purchase flows, plus an {@link EntitlementCache} so ownership questions
+ * ({@link #owns}) are answered from the last verified snapshot, never from a live query.
+ * The snapshot is reconciled with queryPurchasesAsync at most once a day.
+ */
+public class BillingManager implements PurchasesUpdatedListener, EntitlementCache.Source {
 
+    /** Called on the main thread. */
     public interface Listener {
         void onBillingReady();
-        void onAdsRemoved();
+        void onEntitlementChanged(String product, boolean owned);
         void onPurchaseFailed(String reason);
     }
 
     public static final String SKU_REMOVE_ADS = "remove_ads";
     public static final String SKU_SKIN_PACK  = "skin_pack"; // optional cosmetic
 
+    private static final long REFRESH_MS = 24 * 3600_000L;
+    private static final long RETRY_MS = 5 * 60_000L;
+
     private final Context app;
     private final Listener listener;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final EntitlementCache entitlements;
 
     private BillingClient client;
+    private volatile boolean connected;
     private ProductDetails pdRemoveAds;
     private ProductDetails pdSkin;
 
-    public BillingManager(Context ctx, Listener listener) {
+    public BillingManager(Context ctx, Listener listener, SettingsStore settings) {
         this.app = ctx.getApplicationContext();
         this.listener = listener;
+        entitlements = new EntitlementCache(settings, this, REFRESH_MS, RETRY_MS);
+        // Before the first reconcile, trust the old flag; the reconcile then corrects it either way
+        if (entitlements.verifiedAt() == 0 && settings.get(AppSettings.ADS_REMOVED)) {
+            entitlements.grant(SKU_REMOVE_ADS);
+        }
+        entitlements.setListener((product, owned) -> {
+            if (listener != null) main.post(() -> listener.onEntitlementChanged(product, owned));
+        });
     }
 
+    /** Last verified ownership of {@code product}. No I/O, any thread. */
+    public boolean owns(String product) { return entitlements.owns(product); }
+
     public void start() {
         client = BillingClient.newBuilder(app)
                 .setListener(this)
@@ -52,13 +77,15 @@ public class BillingManager implements PurchasesUpdatedListener {
         client.startConnection(new BillingClientStateListener() {
             @Override public void onBillingSetupFinished(BillingResult billingResult) {
                 if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
+                    connected = true;
                     queryProductDetails();
-                    restore();
-                    if (listener != null) listener.onBillingReady();
+                    refreshIfStale();
+                    if (listener != null) main.post(listener::onBillingReady);
                 }
             }
             @Override public void onBillingServiceDisconnected() {
                 // You can retry startConnection() later.
+                connected = false;
             }
         });
     }
@@ -124,44 +151,60 @@ public class BillingManager implements PurchasesUpdatedListener {
         client.launchBillingFlow(act, flow);
     }
 
+    /** "Restore purchases": reconcile now, however fresh the snapshot is. */
     public void restore() {
+        entitlements.refresh(System.currentTimeMillis());
+    }
+
+    /**
+     * Reconcile with the store if the cached snapshot is older than a day. Cheap enough for
+     * every onResume; does nothing until connected, so it can't burn the retry window.
+     */
+    public void refreshIfStale() {
+        if (connected) entitlements.refreshIfStale(System.currentTimeMillis());
+    }
+
+    @Override public void queryOwned(EntitlementCache.Result result) {
+        if (!connected) { result.onFailed(); return; }
         // Billing v6 form
         QueryPurchasesParams params = QueryPurchasesParams.newBuilder()
                 .setProductType(BillingClient.ProductType.INAPP)
                 .build();
         client.queryPurchasesAsync(params, (br, list) -> {
-            if (list != null) handlePurchases(list);
+            if (br.getResponseCode() != BillingClient.BillingResponseCode.OK || list == null) {
+                result.onFailed();
+                return;
+            }
+            result.onOwned(handlePurchases(list));
         });
     }
 
     @Override
     public void onPurchasesUpdated(BillingResult br, @Nullable List<Purchase> purchases) {
         if (br.getResponseCode() == BillingClient.BillingResponseCode.OK && purchases != null) {
-            handlePurchases(purchases);
+            for (String product : handlePurchases(purchases)) entitlements.grant(product);
         } else if (listener != null
                 && br.getResponseCode() != BillingClient.BillingResponseCode.USER_CANCELED) {
-            listener.onPurchaseFailed(br.getDebugMessage());
+            String reason = br.getDebugMessage();
+            main.post(() -> listener.onPurchaseFailed(reason));
         }
     }
 
-    private void handlePurchases(List<Purchase> list) {
+    /** Acknowledge what needs it. @return the products in {@code list} that are paid for */
+    private List<String> handlePurchases(List<Purchase> list) {
+        List<String> owned = new ArrayList<>();
         for (Purchase p : list) {
             if (p.getPurchaseState() != Purchase.PurchaseState.PURCHASED) continue;
             if (p.getProducts().isEmpty()) continue;
 
-            String id = p.getProducts().get(0);
-
-            if (SKU_REMOVE_ADS.equals(id)) {
-                if (!p.isAcknowledged()) {
-                    AcknowledgePurchaseParams ack = AcknowledgePurchaseParams.newBuilder()
-                            .setPurchaseToken(p.getPurchaseToken())
-                            .build();
-                    client.acknowledgePurchase(ack, result -> { /* optional: check result */ });
-                }
-                if (listener != null) listener.onAdsRemoved();
+            if (!p.isAcknowledged()) {
+                AcknowledgePurchaseParams ack = AcknowledgePurchaseParams.newBuilder()
+                        .setPurchaseToken(p.getPurchaseToken())
+                        .build();
+                client.acknowledgePurchase(ack, result -> { /* optional: check result */ });
             }
-
-            // Add handling for other products here if needed
+            owned.addAll(p.getProducts());
         }
+        return owned;
     }
 }
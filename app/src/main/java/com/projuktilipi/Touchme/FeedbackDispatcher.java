@@ -0,0 +1,164 @@
+package com.projuktilipi.Touchme;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.VibrationAttributes;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+import android.os.VibratorManager;
+import android.provider.Settings;
+
+/**
+ * Game feedback (sounds + haptics) for one backend, merged per frame and played on a
+ * worker thread.
+ *
+ * The simulation's thread reports events as they happen and calls {@link #endFrame} once
+ * per frame (and after each input batch). Events of one kind in between become a single
+ * sound or buzz, louder or stronger with the count; see {@link FeedbackCoalescer} for the
+ * per-channel rate limits. Nothing here blocks the caller: dispatches travel as pooled
+ * Messages to the "Feedback" thread, which talks to the mixer and the vibrator.
+ *
+ * Buzzes are built once up front: primitive compositions on API 30+ devices that support
+ * them, predefined effects on 29, amplitude one-shots on 26-28, plain durations below.
+ * They honour the system "touch feedback" switch as performHapticFeedback did: API 33+
+ * tags them USAGE_TOUCH, and older versions skip them while HAPTIC_FEEDBACK_ENABLED is 0
+ * (re-read on the worker at every new round).
+ */
+final class FeedbackDispatcher implements FeedbackCoalescer.Sink, Handler.Callback {
+
+    private static final int TAP = 0, MISS = 1, FEVER = 2, BUZZ = 3, BUZZ_FEVER = 4;
+    private static final int READ_SYSTEM_HAPTICS = 5;
+    private static final long MS = 1_000_000L;
+    private static final int LEVELS = 3; // buzz strength for 1, 2, 3+ merged hits
+
+    private static Handler worker; // shared by every dispatcher; lives as long as the process
+
+    private final FeedbackCoalescer coalescer = new FeedbackCoalescer(
+            25 * MS,   // TAP: closer than this and two taps just sound like one smeared one
+            60 * MS,   // MISS
+            500 * MS,  // FEVER
+            50 * MS,   // BUZZ
+            500 * MS); // BUZZ_FEVER
+    private final Handler handler;
+    private final ContentResolver resolver;
+    private final Vibrator vibrator;
+    private final VibrationEffect[] buzz = new VibrationEffect[LEVELS];
+    private VibrationEffect feverBuzz;
+
+    private volatile AudioEngine audio;
+    private volatile boolean hapticsEnabled = true;
+    private boolean systemHaptics = true; // worker; below API 33 only
+    private boolean inFever; // game thread
+
+    FeedbackDispatcher(Context ctx) {
+        handler = new Handler(workerLooper(), this);
+        resolver = ctx.getApplicationContext().getContentResolver();
+        if (Build.VERSION.SDK_INT >= 31) {
+            VibratorManager vm = (VibratorManager) ctx.getSystemService(Context.VIBRATOR_MANAGER_SERVICE);
+            vibrator = vm != null ? vm.getDefaultVibrator() : null;
+        } else {
+            vibrator = (Vibrator) ctx.getSystemService(Context.VIBRATOR_SERVICE);
+        }
+        buildEffects();
+        handler.sendEmptyMessage(READ_SYSTEM_HAPTICS);
+    }
+
+    private static synchronized android.os.Looper workerLooper() {
+        if (worker == null) {
+            HandlerThread t = new HandlerThread("Feedback");
+            t.start();
+            worker = new Handler(t.getLooper());
+        }
+        return worker.getLooper();
+    }
+
+    void setAudioEngine(AudioEngine a) { audio = a; }
+    void setHapticsEnabled(boolean enabled) { hapticsEnabled = enabled; }
+
+    // ===== Game thread =====
+    void hit(boolean fever) {
+        coalescer.record(TAP);
+        coalescer.record(BUZZ);
+        if (fever && !inFever) {
+            coalescer.record(FEVER);
+            coalescer.record(BUZZ_FEVER);
+        }
+        inFever = fever;
+    }
+
+    void miss() { coalescer.record(MISS); }
+
+    void endFrame(long nowNanos) { coalescer.flush(nowNanos, this); }
+
+    /** New round: nothing from the last one carries over. */
+    void reset() {
+        coalescer.clear();
+        inFever = false;
+        handler.sendEmptyMessage(READ_SYSTEM_HAPTICS); // the player may have changed it since
+    }
+
+    @Override public void onFeedback(int channel, int count) {
+        handler.obtainMessage(channel, count, 0).sendToTarget();
+    }
+
+    // ===== Worker =====
+    @Override public boolean handleMessage(Message msg) {
+        int count = msg.arg1;
+        AudioEngine a = audio;
+        switch (msg.what) {
+            case TAP:   if (a != null) a.playSfx(AudioEngine.SFX_TAP, FeedbackCoalescer.gain(count)); break;
+            case MISS:  if (a != null) a.playSfx(AudioEngine.SFX_MISS, FeedbackCoalescer.gain(count)); break;
+            case FEVER: if (a != null) a.playSfx(AudioEngine.SFX_POWER, 1f); break;
+            case BUZZ:       vibrate(Math.min(count, LEVELS) - 1, false); break;
+            case BUZZ_FEVER: vibrate(0, true); break;
+            case READ_SYSTEM_HAPTICS:
+                if (Build.VERSION.SDK_INT < 33) {
+                    systemHaptics = Settings.System.getInt(resolver, Settings.System.HAPTIC_FEEDBACK_ENABLED, 1) != 0;
+                }
+                break;
+            default: return false;
+        }
+        return true;
+    }
+
+    private void vibrate(int level, boolean fever) {
+        if (!hapticsEnabled || !systemHaptics || vibrator == null || !vibrator.hasVibrator()) return;
+        if (Build.VERSION.SDK_INT >= 26) {
+            VibrationEffect e = fever ? feverBuzz : buzz[level];
+            if (Build.VERSION.SDK_INT >= 33) {
+                vibrator.vibrate(e, VibrationAttributes.createForUsage(VibrationAttributes.USAGE_TOUCH));
+            } else {
+                vibrator.vibrate(e);
+            }
+        } else {
+            vibrator.vibrate(fever ? 40 : 8 + 4 * level);
+        }
+    }
+
+    private void buildEffects() {
+        if (Build.VERSION.SDK_INT >= 30 && vibrator != null
+                && vibrator.areAllPrimitivesSupported(VibrationEffect.Composition.PRIMITIVE_CLICK)) {
+            for (int i = 0; i < LEVELS; i++) {
+                buzz[i] = VibrationEffect.startComposition()
+                        .addPrimitive(VibrationEffect.Composition.PRIMITIVE_CLICK, 0.6f + 0.2f * i)
+                        .compose();
+            }
+            feverBuzz = VibrationEffect.startComposition()
+                    .addPrimitive(VibrationEffect.Composition.PRIMITIVE_CLICK, 1f)
+                    .addPrimitive(VibrationEffect.Composition.PRIMITIVE_CLICK, 1f, 60)
+                    .compose();
+        } else if (Build.VERSION.SDK_INT >= 29) {
+            buzz[0] = VibrationEffect.createPredefined(VibrationEffect.EFFECT_TICK);
+            buzz[1] = VibrationEffect.createPredefined(VibrationEffect.EFFECT_CLICK);
+            buzz[2] = VibrationEffect.createPredefined(VibrationEffect.EFFECT_HEAVY_CLICK);
+            feverBuzz = VibrationEffect.createPredefined(VibrationEffect.EFFECT_DOUBLE_CLICK);
+        } else if (Build.VERSION.SDK_INT >= 26) {
+            for (int i = 0; i < LEVELS; i++) buzz[i] = VibrationEffect.createOneShot(10 + 5 * i, 135 + 60 * i);
+            feverBuzz = VibrationEffect.createWaveform(new long[] { 0, 20, 60, 20 }, new int[] { 0, 255, 0, 255 }, -1);
+        }
+    }
+}
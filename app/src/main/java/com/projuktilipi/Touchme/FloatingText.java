@@ -2,31 +2,27 @@ package com.projuktilipi.Touchme;
 
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.os.SystemClock;
 
-/** Small "juice": rising +points text. */
+/**
+ * Small "juice": rising +points text. Ages on game time ({@link GameClock}, ms), so a
+ * pause freezes it without any bookkeeping.
+ */
 public class FloatingText {
     public float x, y;
     public final String text;
     public final int color;
-    public long bornAt;          // <-- no longer final
+    public final long bornAt;    // game time, ms
     public final long lifeMs;
 
-    public FloatingText(float x, float y, String text, int color, long lifeMs) {
+    public FloatingText(float x, float y, String text, int color, long lifeMs, long nowMs) {
         this.x = x; this.y = y; this.text = text; this.color = color;
         this.lifeMs = lifeMs;
-        this.bornAt = SystemClock.uptimeMillis();
-    }
-
-    /** Shift birth time forward (used when resuming after a pause). */
-    public void shiftBorn(long deltaMs) {
-        bornAt += deltaMs;
+        this.bornAt = nowMs;
     }
 
     /** @return true if still alive */
-    public boolean draw(Canvas c, Paint p) {
-        long now = SystemClock.uptimeMillis();
-        float t = Math.min(1f, (now - bornAt) / (float) lifeMs);
+    public boolean draw(Canvas c, Paint p, long nowMs) {
+        float t = Math.min(1f, (nowMs - bornAt) / (float) lifeMs);
         if (t >= 1f) return false;
 
         // rise up ~30px and fade
@@ -0,0 +1,217 @@
+package com.projuktilipi.Touchme;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Frame timing for one round: feeds the debug overlay and is appended to a local
+ * JSON-lines file when the round ends.
+ *
+ * Source, picked per round in {@link #begin}:
+ *  - API 24+ with the UI-thread backend: the window's FrameMetrics TOTAL_DURATION
+ *    (input to GPU swap), delivered on a background thread
+ *  - otherwise the backend calls {@link #onVsync} every frame and the gaps between vsync
+ *    timestamps are recorded. GameSurfaceView always uses this: its render thread's
+ *    frames never show up in the window's metrics.
+ *
+ * Input latency (touch event timestamp to tap resolved) comes from the backends through
+ * {@link #recordInputLatency}, from whichever thread resolves taps.
+ *
+ * The overlay shows the last full second; the export covers the whole round.
+ */
+public class FrameMonitor {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    private static final long TEXT_REFRESH_NANOS = 250_000_000L;
+
+    private final Window window;
+    private final Object lock = new Object();
+    private final FrameStats session = new FrameStats();
+    private final FrameStats current = new FrameStats(); // filling
+    private final FrameStats shown = new FrameStats();   // last full window
+    private final LatencyHistogram input = new LatencyHistogram(); // whole round
+    private long windowStart;
+
+    private volatile boolean overlayVisible = false;
+    private boolean active, recording, useMetrics;
+    private String backend = "view";
+    private long startedAtMs;
+    private long lastVsync;
+
+    private HandlerThread metricsThread;
+    private Window.OnFrameMetricsAvailableListener metricsListener;
+
+    // overlay text, rebuilt a few times a second rather than every frame
+    private final String[] lines = { "", "", "", "" };
+    private long linesAt;
+
+    public FrameMonitor(Window window) {
+        this.window = window;
+    }
+
+    public void setOverlayVisible(boolean visible) { overlayVisible = visible; }
+    public boolean isOverlayVisible() { return overlayVisible; }
+
+    /** Start a round. UI thread. */
+    public void begin(boolean surfaceBackend) {
+        stopMetrics();
+        long period = refreshPeriodNanos();
+        synchronized (lock) {
+            session.reset();
+            current.reset();
+            shown.reset();
+            input.reset();
+            session.setRefreshPeriod(period);
+            current.setRefreshPeriod(period);
+            shown.setRefreshPeriod(period);
+            backend = surfaceBackend ? "surface" : "view";
+            useMetrics = !surfaceBackend && Build.VERSION.SDK_INT >= 24;
+            startedAtMs = System.currentTimeMillis();
+            windowStart = System.nanoTime();
+            lastVsync = 0;
+            active = true;
+            recording = true;
+        }
+        if (useMetrics) startMetrics();
+    }
+
+    /** Paused frames (dialogs, ads) aren't gameplay; leave them out. */
+    public void pause() {
+        synchronized (lock) {
+            recording = false;
+        }
+    }
+
+    public void resume() {
+        synchronized (lock) {
+            recording = active;
+            lastVsync = 0; // the paused gap isn't a frame
+        }
+    }
+
+    /** Backend hook, once per frame with the Choreographer timestamp. Ignored when FrameMetrics is the source. */
+    public void onVsync(long frameTimeNanos) {
+        synchronized (lock) {
+            if (useMetrics || !recording) return;
+            long last = lastVsync;
+            lastVsync = frameTimeNanos;
+            if (last != 0) recordLocked(frameTimeNanos - last);
+        }
+    }
+
+    /** Backend hook, once per tap: event timestamp to resolved, in ns. Any thread. */
+    public void recordInputLatency(long nanos) {
+        synchronized (lock) {
+            if (recording) input.record(nanos);
+        }
+    }
+
+    private void recordLocked(long frameNanos) {
+        session.record(frameNanos);
+        current.record(frameNanos);
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS) {
+            shown.reset();
+            shown.addAll(current);
+            current.reset();
+            windowStart = now;
+        }
+    }
+
+    /** Overlay rows; the strings change at most four times a second. */
+    public String[] overlayLines(int targets, int bursts, int particles) {
+        long now = System.nanoTime();
+        if (now - linesAt < TEXT_REFRESH_NANOS) return lines;
+        linesAt = now;
+        synchronized (lock) {
+            FrameStats s = shown.count() > 0 ? shown : current;
+            lines[0] = String.format(Locale.US, "frame p50 %.1f  p95 %.1f  p99 %.1f ms",
+                    s.percentileNanos(50) / 1e6, s.percentileNanos(95) / 1e6, s.percentileNanos(99) / 1e6);
+            lines[1] = "jank " + session.janky() + "  dropped " + session.dropped()
+                    + "  (" + (useMetrics ? "FrameMetrics" : "vsync") + ", " + backend + ")";
+            lines[2] = String.format(Locale.US, "input p50 %.1f  p95 %.1f  max %.1f ms  (%d taps)",
+                    input.percentileNanos(50) / 1e6, input.percentileNanos(95) / 1e6,
+                    input.maxNanos() / 1e6, input.count());
+        }
+        lines[3] = "targets " + targets + "  bursts " + bursts + "  particles " + particles;
+        return lines;
+    }
+
+    /** End the round and append its summary to {@code out} (off the UI thread). */
+    public void end(String mode, File out) {
+        stopMetrics();
+        final String line;
+        synchronized (lock) {
+            if (!active) return;
+            active = false;
+            recording = false;
+            if (session.count() == 0) return;
+            StringBuilder sb = new StringBuilder(256);
+            sb.append("{\"started_at\":").append(startedAtMs)
+              .append(",\"mode\":\"").append(mode)
+              .append("\",\"backend\":\"").append(backend)
+              .append("\",\"source\":\"").append(useMetrics ? "frame_metrics" : "vsync")
+              .append("\",\"device\":\"").append(Build.MANUFACTURER).append(' ').append(Build.MODEL)
+              .append("\",\"api\":").append(Build.VERSION.SDK_INT).append(',');
+            session.appendJson(sb);
+            sb.append(",\"input_latency\":");
+            input.appendJson(sb);
+            sb.append("}\n");
+            line = sb.toString();
+        }
+        new Thread(() -> {
+            try (Writer w = new FileWriter(out, true)) {
+                w.write(line);
+            } catch (IOException ignored) { }
+        }, "FrameExport").start();
+    }
+
+    /** Activity going away mid-round: drop the listener thread, export nothing. */
+    public void release() {
+        stopMetrics();
+        synchronized (lock) {
+            active = false;
+            recording = false;
+        }
+    }
+
+    private long refreshPeriodNanos() {
+        Display d = window.getWindowManager().getDefaultDisplay();
+        float hz = d != null ? d.getRefreshRate() : 60f;
+        return (long) (1_000_000_000L / (hz > 1f ? hz : 60f));
+    }
+
+    private void startMetrics() {
+        if (Build.VERSION.SDK_INT < 24) return;
+        metricsThread = new HandlerThread("FrameMetrics");
+        metricsThread.start();
+        metricsListener = (w, metrics, dropCount) -> {
+            if (Build.VERSION.SDK_INT >= 26 && metrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 1) return;
+            long total = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+            synchronized (lock) {
+                if (recording) recordLocked(total);
+            }
+        };
+        window.addOnFrameMetricsAvailableListener(metricsListener, new Handler(metricsThread.getLooper()));
+    }
+
+    private void stopMetrics() {
+        if (Build.VERSION.SDK_INT < 24 || metricsListener == null) return;
+        try {
+            window.removeOnFrameMetricsAvailableListener(metricsListener);
+        } catch (IllegalArgumentException ignored) { } // already gone with the window
+        metricsListener = null;
+        metricsThread.quitSafely();
+        metricsThread = null;
+    }
+}
@@ -0,0 +1,168 @@
+package com.projuktilipi.Touchme;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+/**
+ * Draws a {@link GameSimulation} onto a Canvas; shared by {@link GameView} and
+ * {@link GameSurfaceView}. Holds only paints, the theme palette and the sprite atlas —
+ * all game state lives in the simulation. Not thread-safe: call from the thread that
+ * steps the simulation.
+ *
+ * Positions are blended between the last two fixed steps by the simulation's alpha;
+ * particles are extrapolated along their (constant) velocity. Moving targets are drawn
+ * ahead by the measured display latency (capped by {@link GameConfig#predictionMs}), so
+ * what's on screen when a finger lands is where the simulation hit-tests it.
+ */
+public class GameRenderer {
+
+    private static final long MS = 1_000_000L;
+    private static final long ATLAS_MAX_BYTES = 4L * 1024 * 1024;
+
+    // Paints
+    private final Paint bgPaint = new Paint();
+    private final Paint targetPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint ringPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint particlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final float[] pointBuf = new float[2 * ParticleSystem.PER_BURST];
+    private final TargetAtlas atlas = new TargetAtlas(ATLAS_MAX_BYTES);
+    private int[] palette = ThemeManager.palette(ThemeManager.Theme.CLASSIC);
+    private final Paint overlayBgPaint = new Paint();
+    private final Paint overlayTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private FrameMonitor monitor;
+    private final PredictionHorizon horizon = new PredictionHorizon();
+    private final HudRenderer hud = new HudRenderer();
+
+    public GameRenderer() {
+        bgPaint.setColor(Color.BLACK);
+        targetPaint.setStyle(Paint.Style.FILL);
+        ringPaint.setStyle(Paint.Style.STROKE);
+        ringPaint.setStrokeWidth(6f);
+        ringPaint.setColor(Color.WHITE);
+        // one drawPoints per burst; round 6px points look like the old r=3 circles
+        particlePaint.setStyle(Paint.Style.STROKE);
+        particlePaint.setStrokeCap(Paint.Cap.ROUND);
+        particlePaint.setStrokeWidth(6f);
+        overlayBgPaint.setColor(0x99000000);
+        overlayTextPaint.setColor(Color.GREEN);
+        overlayTextPaint.setTextSize(30f);
+        overlayTextPaint.setTypeface(Typeface.MONOSPACE);
+    }
+
+    public void setBgColor(int color) { bgPaint.setColor(color); }
+
+    /** Target colours (from the theme); the sprite atlas is rebuilt on the next draw. */
+    public void setPalette(int[] colors) {
+        if (colors == null || colors.length == 0) return;
+        palette = colors;
+    }
+    public int paletteSize() { return palette.length; }
+
+    /** In-round HUD on or off, and the best score it shows until the current one beats it. */
+    public void setHud(boolean visible, int best) { hud.set(visible, best); }
+
+    /** Scaled density of the display, for the HUD's text size. */
+    public void setHudScale(float scaledDensity) { hud.setScale(scaledDensity); }
+
+    /** Debug overlay source; drawn on top while {@link FrameMonitor#isOverlayVisible()}. */
+    public void setFrameMonitor(FrameMonitor m) { monitor = m; }
+
+    /** Sprites are sized for the surface; rebuild them on the next draw. */
+    public void onSizeChanged() {
+        atlas.invalidate();
+        hud.invalidate();
+    }
+
+    /** Backend hook, once per drawn frame: vsync to pixels on screen, as well as it can tell. */
+    public void recordFrameLatency(long nanos) { horizon.record(nanos); }
+
+    /** Drop the atlas bitmap (surface/view going away). */
+    public void releaseSprites() {
+        atlas.release();
+        hud.release();
+    }
+
+    public void draw(Canvas canvas, GameSimulation sim, int w, int h) {
+        canvas.drawRect(0, 0, w, h, bgPaint);
+
+        GameConfig config = sim.config();
+        TargetStore targets = sim.targets();
+        long now = sim.renderTime();
+        float alpha = sim.alpha();
+        boolean sprites = atlas.ensure(config.minRadius, config.maxRadius, palette);
+        // 0: plain interpolation; otherwise draw moving targets where they'll be when seen
+        float ahead = horizon.horizonNanos(config.predictionMs * MS) / 1e9f;
+        float fromStep = alpha * sim.stepSeconds() + ahead;
+
+        // Draw targets (with spawn scale-in + ring fade), oldest first so the newest is on top
+        int[] order = targets.drawOrder();
+        for(int k = 0, n = targets.size(); k < n; k++) {
+            int i = order[k];
+            long age = now - targets.bornAt[i];
+            long life = targets.life[i]; // fixed at spawn, like its expiry
+            float p = life > 0 ? (float)age / life : 0;
+            if(p < 0) p = 0; if(p > 1) p = 1;
+
+            // Spawn scale-in: first 140ms
+            float spawnDur = 140f * MS;
+            float spawnP = Math.min(1f, age / spawnDur);
+            float scale = 0.7f + 0.3f * spawnP;
+
+            float cx, cy;
+            if (ahead > 0 && (targets.vx[i] != 0 || targets.vy[i] != 0)) {
+                cx = targets.predictX(i, fromStep, w);
+                cy = targets.predictY(i, fromStep, h);
+            } else {
+                float px = targets.px[i], py = targets.py[i];
+                cx = px + (targets.cx[i] - px) * alpha;
+                cy = py + (targets.cy[i] - py) * alpha;
+            }
+            float r = targets.r[i];
+            int color = targets.color[i] % palette.length;
+            int ringAlpha = (int)(255 * (1f - p));
+            if (sprites) {
+                atlas.drawTarget(canvas, cx, cy, r, color, scale, ringAlpha);
+                continue;
+            }
+            // no atlas (over budget / OOM): plain circles
+            targetPaint.setColor(palette[color]);
+            canvas.drawCircle(cx, cy, r * scale, targetPaint);
+
+            float rr = r + TargetAtlas.RING_GAP;
+            ringPaint.setAlpha(ringAlpha);
+            canvas.drawCircle(cx, cy, rr * scale, ringPaint);
+            ringPaint.setAlpha(255);
+        }
+
+        // Draw particles: one batched call per burst (single colour + alpha)
+        // particles move in straight lines, so extrapolating by alpha is exact
+        ParticleSystem particles = sim.particles();
+        float lead = alpha * sim.stepSeconds();
+        for (int b = particles.firstBurst(), end = particles.endBurst(); b != end; b++) {
+            int n = particles.fillPoints(b, lead, pointBuf);
+            particlePaint.setColor(palette[particles.burstColor(b) % palette.length]);
+            particlePaint.setAlpha((int)(255 * (1f - particles.burstProgress(b, now))));
+            canvas.drawPoints(pointBuf, 0, n, particlePaint);
+        }
+        particlePaint.setAlpha(255);
+
+        hud.draw(canvas, sim, w);
+
+        FrameMonitor m = monitor;
+        if (m != null && m.isOverlayVisible()) {
+            drawOverlay(canvas, m.overlayLines(targets.size(), particles.liveBursts(), particles.liveParticles()), w);
+        }
+    }
+
+    private void drawOverlay(Canvas canvas, String[] lines, int w) {
+        float lineH = overlayTextPaint.getTextSize() * 1.25f;
+        float top = 8f;
+        canvas.drawRect(0, top, w, top + lineH * lines.length + 12f, overlayBgPaint);
+        for (int i = 0; i < lines.length; i++) {
+            canvas.drawText(lines[i], 16f, top + lineH * (i + 1), overlayTextPaint);
+        }
+    }
+}
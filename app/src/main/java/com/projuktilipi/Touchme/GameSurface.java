@@ -0,0 +1,40 @@
+package com.projuktilipi.Touchme;
+
+import android.view.View;
+
+/** What MainActivity needs from a game backend ({@link GameView} or {@link GameSurfaceView}). */
+public interface GameSurface {
+    void setConfig(GameConfig cfg);
+    void setAudioEngine(AudioEngine ae);
+    void setHapticsEnabled(boolean enabled);
+    void setBgColor(int color);
+    /** Target colours for the current theme ({@link ThemeManager#palette}). */
+    void setPalette(int[] colors);
+    /** Score/time/streak drawn in the surface during a round, with {@code best} as the record shown. */
+    void setHud(boolean visible, int best);
+    /** Frame timing sink + overlay source; null to detach. */
+    void setFrameMonitor(FrameMonitor monitor);
+
+    /**
+     * Begin a round; {@code seed} fixes every random choice (see {@link Replay}).
+     * The round ends after {@code roundMillis} of game time (0: untimed), reported
+     * through {@link GameView.GameEvents#onRoundEnd}.
+     */
+    void start(long seed, long roundMillis);
+    /** Game-time alarm, repeating every {@code periodMillis} (0: once); see {@link GameView.GameEvents#onAlarm}. */
+    void setAlarm(int id, long delayMillis, long periodMillis);
+    void cancelAlarm(int id);
+    void pause();
+    void resume();
+    void stop();
+    void reset();
+
+    /** Seed, mode, size and taps of the current/last round, for {@link ReplayVerifier}. */
+    Replay captureReplay(GameMode mode);
+
+    /** Score, duration, streak and hit/miss counts of the current/last round, for {@link RunHistory}. */
+    RunRecord captureRun(GameMode mode);
+
+    /** The view to add to the game container. */
+    View asView();
+}
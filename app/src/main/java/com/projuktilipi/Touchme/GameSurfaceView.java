@@ -0,0 +1,364 @@
+package com.projuktilipi.Touchme;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.View;
+
+/**
+ * SurfaceView backend: simulation and drawing run on a dedicated render thread,
+ * so frame times don't depend on what the Activity does on the UI thread.
+ *
+ * Threading:
+ *  - the render thread is a Looper thread with its own {@link Choreographer}; each vsync
+ *    steps the {@link GameSimulation} and draws interpolated state
+ *  - touch input goes through a lock-free {@link TapQueue} (UI → render), stamped with the
+ *    event's own time; the render thread resolves each tap at that time
+ *  - lifecycle calls (start/pause/resume/stop/reset) take {@code lock} briefly
+ *  - GameEvents are posted back to the UI thread; sounds and haptics go through a
+ *    {@link FeedbackDispatcher}, merged per frame
+ */
+public class GameSurfaceView extends SurfaceView implements GameSurface, SurfaceHolder.Callback {
+
+    private static final int MSG_HIT = 1;
+    private static final int MSG_HIT_FEVER = 2;
+    private static final int MSG_ALARM = 3;
+    private static final long MS = 1_000_000L;
+
+    private final GameSimulation sim;
+    private final GameRenderer renderer = new GameRenderer();
+    private final GameView.GameEvents events;
+
+    // Hits travel as pooled Messages (points/streak in arg1/arg2), so dispatch doesn't allocate.
+    private final Handler main = new Handler(Looper.getMainLooper(), this::handleMainMessage);
+    private final TapQueue taps = new TapQueue(64);
+    private final GameClock gameClock = new GameClock(); // under lock
+
+    // Guards sim/renderer + the flags below when touched from both threads
+    private final Object lock = new Object();
+    private volatile boolean running = false;
+    private volatile boolean paused = false;
+    private boolean surfaceReady = false;
+    private boolean redraw = false;
+    private boolean newRound = false;
+    private int widthPx = 0, heightPx = 0;
+    private long refreshNanos = 1_000_000_000L / 60;
+
+    // Cheap setters: read by the render thread at the start of each frame
+    private volatile GameConfig pendingConfig;
+    private volatile FrameMonitor monitor;
+    private final FeedbackDispatcher feedback; // render thread, apart from the setters
+
+    private RenderThread thread; // UI thread only
+
+    public GameSurfaceView(Context c, GameView.GameEvents e) {
+        super(c);
+        this.events = e;
+        this.sim = new GameSimulation(new FixedStepClock(), simListener);
+        this.feedback = new FeedbackDispatcher(c);
+        getHolder().addCallback(this);
+        renderer.setHudScale(getResources().getDisplayMetrics().scaledDensity);
+        setClickable(true);
+        GameView.requestLowLatencyInput(this);
+    }
+
+    // Called on the render thread. Sound and haptics are merged per frame; events go to main.
+    private final GameSimulation.Listener simListener = new GameSimulation.Listener() {
+        @Override public void onTargetHit(int points, int streak, boolean fever) {
+            feedback.hit(fever);
+            main.obtainMessage(fever ? MSG_HIT_FEVER : MSG_HIT, points, streak).sendToTarget();
+        }
+        @Override public void onTargetExpired() {
+            feedback.miss();
+            main.post(dispatchMiss);
+        }
+        @Override public void onTapMissed() {
+            feedback.miss();
+        }
+        @Override public void onRoundEnd() {
+            main.post(dispatchRoundEnd);
+        }
+        @Override public void onAlarm(int id) {
+            main.obtainMessage(MSG_ALARM, id, 0).sendToTarget();
+        }
+    };
+
+    // A miss may land after the activity already stopped the run; drop it then.
+    private final Runnable dispatchMiss = () -> {
+        if (running && events != null) events.onMiss();
+    };
+
+    private final Runnable dispatchRoundEnd = () -> {
+        if (running && events != null) events.onRoundEnd();
+    };
+
+    private boolean handleMainMessage(Message msg) {
+        if (msg.what == MSG_ALARM) {
+            if (running && events != null) events.onAlarm(msg.arg1);
+            return true;
+        }
+        if (msg.what != MSG_HIT && msg.what != MSG_HIT_FEVER) return false;
+        if (events != null) events.onHit(msg.arg1, msg.arg2, msg.what == MSG_HIT_FEVER);
+        return true;
+    }
+
+    private final TapQueue.Consumer tapConsumer = new TapQueue.Consumer() {
+        @Override public void onTap(float x, float y, long time) {
+            // step to when the finger landed, then resolve; the frame's own step carries on from there
+            sim.tap(x, y, gameClock.now(time));
+            FrameMonitor m = monitor;
+            if (m != null) m.recordInputLatency(System.nanoTime() - time);
+        }
+    };
+
+    // ===== GameSurface =====
+    @Override public void setConfig(GameConfig cfg) { pendingConfig = cfg; }
+    @Override public void setAudioEngine(AudioEngine ae) { feedback.setAudioEngine(ae); }
+    @Override public void setHapticsEnabled(boolean enabled) { feedback.setHapticsEnabled(enabled); }
+    @Override public View asView() { return this; }
+
+    @Override public void setBgColor(int color) {
+        synchronized (lock) {
+            renderer.setBgColor(color);
+            redraw = true;
+        }
+        requestFrame();
+    }
+
+    @Override public void setPalette(int[] colors) {
+        synchronized (lock) {
+            renderer.setPalette(colors);
+            sim.setColorCount(renderer.paletteSize());
+            redraw = true;
+        }
+        requestFrame();
+    }
+
+    @Override public void setHud(boolean visible, int best) {
+        synchronized (lock) {
+            renderer.setHud(visible, best);
+            redraw = true;
+        }
+        requestFrame();
+    }
+
+    @Override public void setFrameMonitor(FrameMonitor m) {
+        synchronized (lock) {
+            monitor = m;
+            renderer.setFrameMonitor(m);
+        }
+    }
+
+    @Override public void start(long seed, long roundMillis) {
+        synchronized (lock) {
+            applyPendingLocked();
+            taps.clear();
+            running = true;
+            paused = false;
+            gameClock.start(System.nanoTime()); // Choreographer's timebase
+            sim.start(0, seed, roundMillis * MS);
+            newRound = true; // the render thread resets feedback before the next frame
+        }
+        requestFrame();
+    }
+
+    @Override public void setAlarm(int id, long delayMillis, long periodMillis) {
+        synchronized (lock) {
+            sim.setAlarm(id, delayMillis * MS, periodMillis * MS);
+        }
+    }
+
+    @Override public void cancelAlarm(int id) {
+        synchronized (lock) {
+            sim.cancelAlarm(id);
+        }
+    }
+
+    @Override public void pause() {
+        synchronized (lock) {
+            if (!running || paused) return;
+            paused = true;
+            gameClock.pause(System.nanoTime());
+            redraw = true;
+        }
+        requestFrame();
+    }
+
+    @Override public void resume() {
+        synchronized (lock) {
+            if (!running || !paused) return;
+            gameClock.resume(System.nanoTime());
+            taps.clear();
+            paused = false;
+        }
+        requestFrame();
+    }
+
+    @Override public void stop() {
+        synchronized (lock) {
+            running = false;
+            paused = false;
+        }
+    }
+
+    @Override public Replay captureReplay(GameMode mode) {
+        synchronized (lock) {
+            return sim.captureReplay(mode);
+        }
+    }
+
+    @Override public RunRecord captureRun(GameMode mode) {
+        synchronized (lock) {
+            return sim.captureRun(mode, System.currentTimeMillis());
+        }
+    }
+
+    @Override public void reset() {
+        synchronized (lock) {
+            sim.reset();
+            redraw = true;
+        }
+        requestFrame();
+    }
+
+    private void requestFrame() {
+        RenderThread t = thread;
+        if (t != null) t.requestFrame();
+    }
+
+    private void applyPendingLocked() {
+        GameConfig cfg = pendingConfig;
+        if (cfg != null) { sim.setConfig(cfg); pendingConfig = null; }
+    }
+
+    // ===== Input =====
+    @Override public boolean onTouchEvent(MotionEvent event) {
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_POINTER_DOWN) {
+            int idx = event.getActionIndex();
+            if (running && !paused) taps.offer(event.getX(idx), event.getY(idx), GameView.eventTimeNanos(event));
+            return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    // ===== Surface lifecycle =====
+    @Override public void surfaceCreated(SurfaceHolder holder) {
+        thread = new RenderThread(holder);
+        thread.begin();
+    }
+
+    @Override public void surfaceChanged(SurfaceHolder holder, int format, int w, int h) {
+        synchronized (lock) {
+            widthPx = w;
+            heightPx = h;
+            refreshNanos = GameView.refreshPeriodNanos(this);
+            sim.setSize(w, h);
+            renderer.onSizeChanged();
+            surfaceReady = true;
+            redraw = true;
+        }
+        requestFrame();
+    }
+
+    @Override public void surfaceDestroyed(SurfaceHolder holder) {
+        RenderThread t = thread;
+        thread = null;
+        synchronized (lock) {
+            surfaceReady = false;
+        }
+        if (t == null) return;
+        t.finish(); // also drops the sprite atlas on the render thread
+        // The surface must not be touched after we return, so wait for the thread.
+        boolean interrupted = false;
+        while (t.isAlive()) {
+            try { t.join(); } catch (InterruptedException e) { interrupted = true; }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private class RenderThread extends HandlerThread implements Choreographer.FrameCallback {
+        private final SurfaceHolder holder;
+        private Handler handler;             // created on the UI thread in begin()
+        private Choreographer choreographer; // render thread only
+        private boolean frameScheduled;      // render thread only
+
+        RenderThread(SurfaceHolder holder) {
+            super("GameRender", Process.THREAD_PRIORITY_DISPLAY);
+            this.holder = holder;
+        }
+
+        @Override protected void onLooperPrepared() {
+            choreographer = Choreographer.getInstance();
+        }
+
+        void begin() {
+            start();
+            handler = new Handler(getLooper()); // blocks until the looper exists
+        }
+
+        void requestFrame() { handler.post(scheduleFrame); }
+
+        void finish() {
+            handler.post(() -> {
+                choreographer.removeFrameCallback(this);
+                synchronized (lock) { renderer.releaseSprites(); }
+                quit();
+            });
+        }
+
+        private final Runnable scheduleFrame = () -> {
+            if (frameScheduled) return;
+            frameScheduled = true;
+            choreographer.postFrameCallback(this);
+        };
+
+        @Override public void doFrame(long frameTimeNanos) {
+            frameScheduled = false;
+            boolean live;
+            synchronized (lock) {
+                if (!surfaceReady) return;
+                live = running && !paused;
+                if (!live && !redraw) return; // idle: sleep until someone asks for a frame
+                redraw = false;
+            }
+            renderFrame(frameTimeNanos);
+            if (live) {
+                frameScheduled = true;
+                choreographer.postFrameCallback(this);
+            }
+        }
+
+        private void renderFrame(long frameTimeNanos) {
+            Canvas c = (Build.VERSION.SDK_INT >= 26) ? holder.lockHardwareCanvas() : holder.lockCanvas();
+            if (c == null) return;
+            try {
+                synchronized (lock) {
+                    if (running && !paused) {
+                        applyPendingLocked();
+                        if (newRound) { feedback.reset(); newRound = false; }
+                        FrameMonitor m = monitor;
+                        if (m != null) m.onVsync(frameTimeNanos);
+                        taps.drain(tapConsumer);
+                        sim.step(gameClock.now(frameTimeNanos));
+                        feedback.endFrame(frameTimeNanos);
+                    }
+                    renderer.draw(c, sim, widthPx, heightPx);
+                    // vsync to drawn, plus roughly a period for the buffer queue and scan-out
+                    if (running && !paused) renderer.recordFrameLatency(System.nanoTime() - frameTimeNanos + refreshNanos);
+                }
+            } finally {
+                holder.unlockCanvasAndPost(c);
+            }
+        }
+    }
+}
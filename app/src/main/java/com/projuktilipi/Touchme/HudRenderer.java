@@ -0,0 +1,149 @@
+package com.projuktilipi.Touchme;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * The in-round HUD (score, best, time left, streak) drawn inside the game surface, so a
+ * hit costs no TextView measure/layout on the main thread.
+ *
+ * Text comes from {@link HudText}'s reused char buffers. Each glyph the HUD can show is
+ * rasterised once into a strip bitmap, and a field is drawn as one blit per character.
+ * The glyphs are composed into a layer bitmap only when a value changed; every other
+ * frame is a single drawBitmap. Not thread-safe: same thread as {@link GameRenderer}.
+ */
+final class HudRenderer {
+
+    private static final int SCORE = 0, BEST = 1, TIME = 2, STREAK = 3;
+    private static final float TEXT_SP = 18f, PAD_DP = 12f; // as the old HUD TextViews
+    private static final String[] PREFIXES = { "Score ", "Best ", "", "x" };
+    private static final String[] SUFFIXES = { "", "", "s", "" };
+    // every character the fields use; all ASCII but the untimed clock's infinity sign
+    private static final String GLYPHS = "0123456789 SBcerostx" + HudText.INFINITY_SIGN;
+
+    private final HudText text = new HudText(PREFIXES, SUFFIXES);
+    private final Paint glyphPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Rect src = new Rect();
+    private final Rect dst = new Rect();
+    private final int[] glyphX = new int[128]; // by glyph(ch)
+    private final int[] glyphW = new int[128];
+
+    private float scale = 1f;
+    private boolean visible;
+    private int best;
+
+    private Bitmap strip, layer;
+    private Canvas layerCanvas;
+    private int builtFor = -1; // surface width the bitmaps were made for
+    private int glyphH, pad;
+
+    HudRenderer() {
+        glyphPaint.setColor(Color.WHITE);
+        glyphPaint.setShadowLayer(2f, 0f, 1f, 0x99000000);
+    }
+
+    /** Scaled density, for sizing text like an sp TextView. */
+    void setScale(float scaledDensity) {
+        if (scaledDensity == scale) return;
+        scale = scaledDensity;
+        builtFor = -1;
+    }
+
+    /** Shown during a round; {@code best} is the record to beat (the HUD shows the higher one). */
+    void set(boolean visible, int best) {
+        this.visible = visible;
+        this.best = best;
+    }
+
+    void invalidate() { builtFor = -1; }
+
+    void release() {
+        if (strip != null) strip.recycle();
+        if (layer != null) layer.recycle();
+        strip = layer = null;
+        layerCanvas = null;
+        builtFor = -1;
+    }
+
+    void draw(Canvas canvas, GameSimulation sim, int w) {
+        if (!visible || w <= 0) return;
+        if (builtFor != w) build(w);
+        if (layer == null) return;
+
+        int score = sim.score();
+        long left = sim.remainingNanos();
+        int streak = sim.streak();
+        text.set(SCORE, score);
+        text.set(BEST, Math.max(best, score));
+        text.set(TIME, left < 0 ? HudText.INFINITE : (left + 999_999_999L) / 1_000_000_000L); // 0.2 s left reads "1s"
+        text.set(STREAK, streak >= 2 ? streak : -1);
+        if (text.consumeDirty()) compose();
+        canvas.drawBitmap(layer, 0, 0, null);
+    }
+
+    private void build(int w) {
+        release();
+        builtFor = w;
+        glyphPaint.setTextSize(TEXT_SP * scale);
+        pad = Math.round(PAD_DP * scale);
+        Paint.FontMetricsInt fm = glyphPaint.getFontMetricsInt();
+        glyphH = fm.bottom - fm.top + 2; // + room for the shadow
+        int x = 0;
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            int g = glyph(GLYPHS.charAt(i));
+            glyphX[g] = x;
+            glyphW[g] = (int) Math.ceil(glyphPaint.measureText(GLYPHS, i, i + 1));
+            x += glyphW[g] + 2;
+        }
+        try {
+            strip = Bitmap.createBitmap(Math.max(1, x), glyphH, Bitmap.Config.ARGB_8888);
+            layer = Bitmap.createBitmap(w, pad + 2 * glyphH, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            release();
+            builtFor = w; // don't retry every frame
+            return;
+        }
+        Canvas c = new Canvas(strip);
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            c.drawText(GLYPHS, i, i + 1, glyphX[glyph(GLYPHS.charAt(i))], -fm.top, glyphPaint);
+        }
+        layerCanvas = new Canvas(layer);
+        for (int f = 0; f < text.fields(); f++) text.set(f, -1); // recompose on the next draw
+    }
+
+    // Score top-left, time centred on the same row; best and streak on the row below
+    private void compose() {
+        layer.eraseColor(Color.TRANSPARENT);
+        drawField(SCORE, pad, pad);
+        drawField(TIME, (layer.getWidth() - width(TIME)) / 2, pad);
+        int x = drawField(BEST, pad, pad + glyphH);
+        drawField(STREAK, x + pad, pad + glyphH);
+    }
+
+    private int drawField(int field, int x, int y) {
+        char[] chars = text.chars(field);
+        for (int i = 0, n = text.length(field); i < n; i++) {
+            int g = glyph(chars[i]);
+            src.set(glyphX[g], 0, glyphX[g] + glyphW[g], glyphH);
+            dst.set(x, y, x + glyphW[g], y + glyphH);
+            layerCanvas.drawBitmap(strip, src, dst, null);
+            x += glyphW[g];
+        }
+        return x;
+    }
+
+    private int width(int field) {
+        char[] chars = text.chars(field);
+        int w = 0;
+        for (int i = 0, n = text.length(field); i < n; i++) w += glyphW[glyph(chars[i])];
+        return w;
+    }
+
+    // Glyph table index: the ASCII code, with the infinity sign filed under NUL (never shown)
+    private static int glyph(char ch) {
+        return ch == HudText.INFINITY_SIGN ? 0 : ch;
+    }
+}
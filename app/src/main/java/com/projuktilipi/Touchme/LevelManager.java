@@ -1,7 +1,6 @@
 package com.projuktilipi.Touchme;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.graphics.Color;
 
 public class LevelManager {
@@ -49,19 +48,14 @@ public class LevelManager {
         return LEVELS[index];
     }
 
-    private static final String PREFS = "touch_me_prefs";
-    private static final String KEY_STORY_LEVEL = "story_level_index"; // next level to play (0-based)
-    private static final String KEY_STORY_HIGHEST = "story_highest";   // highest reached (for UI badges etc)
-
+    // next level to play (0-based) and highest reached (for UI badges etc)
     public static int loadCurrentLevel(Context ctx) {
-        SharedPreferences p = ctx.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        return p.getInt(KEY_STORY_LEVEL, 0);
+        return AppSettings.get(ctx).get(AppSettings.STORY_LEVEL_INDEX);
     }
 
     public static void saveCurrentLevel(Context ctx, int idx) {
-        SharedPreferences p = ctx.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        p.edit().putInt(KEY_STORY_LEVEL, idx).apply();
-        int highest = p.getInt(KEY_STORY_HIGHEST, 0);
-        if (idx > highest) p.edit().putInt(KEY_STORY_HIGHEST, idx).apply();
+        SettingsStore s = AppSettings.get(ctx);
+        s.set(AppSettings.STORY_LEVEL_INDEX, idx);
+        if (idx > s.get(AppSettings.STORY_HIGHEST)) s.set(AppSettings.STORY_HIGHEST, idx); // same write
     }
 }
@@ -1,11 +1,13 @@
 package com.projuktilipi.Touchme;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
 import android.widget.FrameLayout;
 import android.widget.ImageButton;
@@ -21,6 +23,16 @@ import androidx.appcompat.widget.SwitchCompat;
 
 import com.google.android.gms.games.PlayGamesSdk;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
 public class MainActivity extends AppCompatActivity implements BillingManager.Listener {
 
     // ===== UI =====
@@ -33,7 +45,7 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
     private ImageButton changeModeButton;                         // optional
 
     // ===== Game =====
-    private GameView gameView;
+    private GameSurface gameView;
     private final Handler handler = new Handler(Looper.getMainLooper());
 
     // State
@@ -41,14 +53,16 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
     private boolean paused  = false;
     private int score = 0;
     private int best  = 0;
-    private long endTimeMs = 0;
-    private long pauseStartedMs = 0L;
+    private final Random seeds = new Random(); // one seed per round, recorded in its Replay
 
     // Prefs
-    private SharedPreferences prefs;
+    private SettingsStore settings;
     private boolean hapticsEnabled = true;
     private boolean musicEnabled   = false; // default off
     private boolean sfxEnabled     = true;
+    private boolean surfaceRenderer = false; // GameSurfaceView (render thread) vs GameView
+    private boolean highRefresh    = false; // ask for the display's fastest mode (90/120 Hz)
+    private boolean frameOverlay   = false; // debug: frame-time percentiles + jank on screen
 
     private boolean adsRemoved = false;
     private GameMode mode = GameMode.TIME_ATTACK;
@@ -57,17 +71,26 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
     private AudioEngine audio;
     private AdsManager ads;
     private BillingManager billing;
-    private SocialClient social;
-
-    // Play Games prompt-once key
-    private static final String PREF_PGS_ASKED_ONCE = "pgs_asked_once";
+    private SocialOutbox social;
+    private FrameMonitor frameMonitor;
+    private RunHistory history;
+    private ExecutorService historyIo;
 
     // Ads control
-    private long lastEndlessAdAt = 0L;       // last time we showed an ad in Endless
     private int hardcoreDeathsSinceAd = 0;   // count deaths in Hardcore
+    private static final long ENDLESS_AD_INTERVAL_MS = 5L * 60L * 1000L; // of play, pauses excluded
+
+    // Game-time alarms (GameSurface.setAlarm)
+    private static final int ALARM_AD_BREAK = 1; // Endless interstitial
+
+    // Achievements: keys are string resource names, resolved to Play Games ids once in onCreate
+    private final AchievementRules achievements = new AchievementRules.Builder()
+            .rule("ach_streak_10", AchievementRules.STREAK, 10)
+            .rule("ach_score_50", AchievementRules.SCORE, 50)
+            .build();
+    private String[] achievementIds;
 
     // Story progress (placeholder)
-    private static final String PREF_STORY_LEVEL = "story_level";
     private int storyLevel = 1; // start at level 1
 
     // Keep a handle to the pause dialog so we can dismiss it before launching picker
@@ -99,7 +122,7 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
                     case ModeSelectActivity.DECISION_START_FRESH:
                         // Same mode, but reset to idle start screen
                         mode = picked;
-                        prefs.edit().putInt("mode", mode.ordinal()).apply();
+                        settings.set(AppSettings.MODE, mode.ordinal());
                         if (mode_text != null) mode_text.setText(modeToLabel(mode));
                         prepareIdleState();
                         break;
@@ -107,7 +130,7 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
                     case ModeSelectActivity.DECISION_SWITCH:
                         // Different mode chosen and confirmed; go to idle start screen
                         mode = picked;
-                        prefs.edit().putInt("mode", mode.ordinal()).apply();
+                        settings.set(AppSettings.MODE, mode.ordinal());
                         if (mode_text != null) mode_text.setText(modeToLabel(mode));
                         prepareIdleState();
                         break;
@@ -117,7 +140,7 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        PlayGamesSdk.initialize(this);
+        long createdAt = SystemClock.uptimeMillis();
         setContentView(R.layout.activity_main);
         setVolumeControlStream(android.media.AudioManager.STREAM_MUSIC);
 
@@ -136,16 +159,31 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
         changeModeButton= findViewById(R.id.change_mode_button); // optional
 
         // Prefs
-        prefs = getSharedPreferences("touch_me_prefs", MODE_PRIVATE);
-        best = prefs.getInt("best", 0);
-        hapticsEnabled = prefs.getBoolean("haptics_enabled", true);
-        musicEnabled   = prefs.getBoolean("music_enabled", false);
-        sfxEnabled     = prefs.getBoolean("sfx_enabled", true);
-        adsRemoved     = prefs.getBoolean("ads_removed", false);
-        storyLevel     = prefs.getInt(PREF_STORY_LEVEL, 1);
+        settings = AppSettings.get(this);
+        best = settings.get(AppSettings.BEST);
+        hapticsEnabled = settings.get(AppSettings.HAPTICS);
+        musicEnabled   = settings.get(AppSettings.MUSIC);
+        sfxEnabled     = settings.get(AppSettings.SFX);
+        surfaceRenderer = settings.get(AppSettings.SURFACE_RENDERER);
+        highRefresh    = settings.get(AppSettings.HIGH_REFRESH);
+        RefreshRate.apply(this, highRefresh);
+        frameOverlay   = settings.get(AppSettings.FRAME_OVERLAY);
+        frameMonitor = new FrameMonitor(getWindow());
+
+        // Run history: snapshot + log tail are read on its own thread; appends queue behind
+        history = new RunHistory(getFilesDir());
+        historyIo = Executors.newSingleThreadExecutor(r -> new Thread(r, "RunHistory"));
+        historyIo.execute(() -> {
+            try { history.open(); } catch (IOException ignored) { }
+        });
+        frameMonitor.setOverlayVisible(frameOverlay);
+        storyLevel     = settings.get(AppSettings.STORY_LEVEL);
+        achievements.restore(settings.get(AppSettings.ACHIEVEMENTS));
+        achievementIds = new String[achievements.size()];
+        for (int i = 0; i < achievementIds.length; i++) achievementIds[i] = getStringSafe(achievements.key(i));
 
         // Determine mode: if launched from ModeSelectActivity we get EXTRA_MODE; else use saved
-        int savedModeOrdinal = prefs.getInt("mode", GameMode.TIME_ATTACK.ordinal());
+        int savedModeOrdinal = settings.get(AppSettings.MODE);
         GameMode[] modesAll = GameMode.values();
         mode = (savedModeOrdinal >= 0 && savedModeOrdinal < modesAll.length)
                 ? modesAll[savedModeOrdinal] : GameMode.TIME_ATTACK;
@@ -154,7 +192,7 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
         if (extraMode != null) {
             try {
                 mode = GameMode.valueOf(extraMode);
-                prefs.edit().putInt("mode", mode.ordinal()).apply();
+                settings.set(AppSettings.MODE, mode.ordinal());
             } catch (IllegalArgumentException ignored) { }
         }
 
@@ -162,49 +200,19 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
         if (mode_text != null) mode_text.setText(modeToLabel(mode));
         if (time_text != null) time_text.setText(mode == GameMode.TIME_ATTACK ? "60s" : "∞");
 
-        // Audio
+        // Audio: samples decode in the startup graph; both music tracks prepare on the audio thread
         audio = new AudioEngine(this);
         audio.setSfxEnabled(sfxEnabled);
         audio.setMusicEnabled(musicEnabled);
-        audio.prewarm();
-        if (musicEnabled) audio.startMusic(R.raw.music_menu, true);
+        audio.preloadMusic(R.raw.music_menu, R.raw.music_game);
 
-        // Ads
+        // Ads / Billing: objects only, SDK work is deferred (social is created by the graph)
         ads = new AdsManager();
-        ads.init(this);
-
-        // Billing
-        billing = new BillingManager(this, this);
-        billing.start();
-
-        // Social (Play Games)
-        social = new SocialGpgs();
-
-        // GameView
-        gameView = new GameView(this, new GameView.GameEvents() {
-            @Override public void onHit(int points, int streak, boolean fever) {
-                if(!running || paused) return;
-                score += Math.max(points, 1);
-                if (score_text != null) score_text.setText("Score: " + score);
-                gameView.setScoreForDifficulty(score);
-                if(score > best) {
-                    best = score;
-                    if (high_text != null) high_text.setText("Best: " + best);
-                }
-                maybeUnlockAchievement("ach_streak_10", streak >= 10);
-                maybeUnlockAchievement("ach_score_50", score  >= 50);
-            }
-            @Override public void onMiss() {
-                if (mode == GameMode.HARDCORE) {
-                    hardcoreDeathsSinceAd++;
-                    finishGame(); // ends immediately on miss
-                }
-            }
-        });
-        gameView.setConfig(GameConfig.forMode(mode));
-        gameView.setHapticsEnabled(hapticsEnabled);
-        gameView.setAudioEngine(audio);
-        game_container.addView(gameView);
+        billing = new BillingManager(this, this, settings);
+        adsRemoved = billing.owns(BillingManager.SKU_REMOVE_ADS); // cached entitlement, no store round trip
+
+        // GameView (or its SurfaceView twin)
+        installGameSurface();
 
         // Start / pause
         if (start_button != null) start_button.setOnClickListener(v -> startGame());
@@ -216,154 +224,245 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
 
         // Tutorial
         if (tutorialOverlay != null && tutorialGotIt != null) {
-            if (!prefs.getBoolean("tutorial_seen", false)) tutorialOverlay.setVisibility(View.VISIBLE);
+            if (!settings.get(AppSettings.TUTORIAL_SEEN)) tutorialOverlay.setVisibility(View.VISIBLE);
             tutorialGotIt.setOnClickListener(v -> {
                 tutorialOverlay.setVisibility(View.GONE);
-                prefs.edit().putBoolean("tutorial_seen", true).apply();
+                settings.set(AppSettings.TUTORIAL_SEEN, true);
             });
         }
 
         // If we arrived fresh to MainActivity, be on the idle start screen
-        prepareIdleState();
+        prepareIdleState(false);
+
+        runStartup(createdAt);
+    }
+
+    // ===== Startup =====
+    private static final String TAG = "Startup";
+    private static final String FIRST_FRAME = "first_frame";
+    private StartupGraph startup;
+    private ExecutorService startupPool;
+
+    /**
+     * Everything the START button doesn't need, off the critical path: sample loading on a
+     * background thread; menu music, Play Games, ads and billing once the first frame is
+     * on screen. Logs time-to-interactive and the per-task trace.
+     */
+    private void runStartup(long createdAt) {
+        startupPool = Executors.newFixedThreadPool(2, r -> new Thread(r, "startup"));
+        Executor onMain = r -> handler.post(() -> { if (!isDestroyed()) r.run(); });
+        Executor inBackground = r -> {
+            try { startupPool.execute(r); } catch (RejectedExecutionException ignored) { } // destroyed
+        };
+        startup = new StartupGraph(g -> handler.post(() -> {
+            Log.i(TAG, "startup tasks done:\n" + g.trace());
+            startupPool.shutdown();
+        }));
+        startup.signal(FIRST_FRAME)
+                .task("sfx_load", StartupGraph.On.BACKGROUND, audio::loadSfx)
+                .task("sfx_prewarm", StartupGraph.On.MAIN, audio::prewarm, "sfx_load")
+                .task("menu_music", StartupGraph.On.MAIN, () -> {
+                    if (musicEnabled && !running) audio.startMusic(R.raw.music_menu, true);
+                }, FIRST_FRAME)
+                .task("pgs_init", StartupGraph.On.MAIN, () -> PlayGamesSdk.initialize(this), FIRST_FRAME)
+                .task("social", StartupGraph.On.MAIN, () -> social = new SocialOutbox(this, new SocialGpgs()), "pgs_init")
+                // Ask ONCE on first launch for Play Games sign-in
+                .task("pgs_prompt", StartupGraph.On.MAIN, this::maybeAskForPlayGamesOnce, "social")
+                .task("ads_sdk", StartupGraph.On.BACKGROUND, () -> ads.initSdk(getApplicationContext()), FIRST_FRAME)
+                .task("ads_preload", StartupGraph.On.MAIN, () -> {
+                    if (!adsRemoved) ads.preload(this);
+                }, "ads_sdk")
+                .task("billing", StartupGraph.On.MAIN, billing::start, FIRST_FRAME);
+        startup.start(onMain, inBackground);
+
+        afterFirstFrame(() -> {
+            // the idle screen with START is what the first frame shows
+            Log.i(TAG, "START interactive " + (SystemClock.uptimeMillis() - createdAt) + " ms after onCreate");
+            reportFullyDrawn();
+            startup.complete(FIRST_FRAME);
+        });
+    }
+
+    private void afterFirstFrame(Runnable r) {
+        View decor = getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean fired;
+            @Override public void onDraw() {
+                if (fired) return;
+                fired = true;
+                // listeners can't be removed mid-draw; run once this frame has been handed off
+                handler.postAtFrontOfQueue(() -> {
+                    decor.getViewTreeObserver().removeOnDrawListener(this);
+                    r.run();
+                });
+            }
+        });
+    }
+
+    private final GameView.GameEvents gameEvents = new GameView.GameEvents() {
+        @Override public void onHit(int points, int streak, boolean fever) {
+            if(!running || paused) return;
+            // the surface draws the HUD during a round; the TextViews catch up in finishGame
+            score += Math.max(points, 1);
+            if (score > best) best = score;
+            int unlocked = achievements.update(AchievementRules.STREAK, streak, unlockAchievement)
+                    + achievements.update(AchievementRules.SCORE, score, unlockAchievement);
+            if (unlocked > 0) settings.set(AppSettings.ACHIEVEMENTS, achievements.unlocked());
+        }
+        @Override public void onMiss() {
+            if (!running) return; // several targets can expire in one step
+            if (mode == GameMode.HARDCORE) {
+                hardcoreDeathsSinceAd++;
+                finishGame(); // ends immediately on miss
+            }
+        }
+        @Override public void onRoundEnd() {
+            if (running) finishGame();
+        }
+        @Override public void onAlarm(int id) {
+            if (!running) return;
+            if (id == ALARM_AD_BREAK && !adsRemoved) {
+                // the alarm repeats on game time, which stands still while the ad is up
+                pauseGameInternal();
+                ads.showInterstitial(MainActivity.this, MainActivity.this::resumeGame);
+            }
+        }
+    };
 
-        // Ask ONCE on first launch for Play Games sign-in
-        maybeAskForPlayGamesOnce();
+    // The outbox keeps it until Play Games takes it, so handing it over once is enough
+    private final AchievementRules.Listener unlockAchievement = (rule, key) -> {
+        if (social == null) return false; // startup graph hasn't made it yet: fires again next hit
+        if (achievementIds[rule] != null) social.unlock(this, achievementIds[rule]);
+        return true;
+    };
+
+    /** (Re)create the game backend picked by the "surface_renderer" pref. Only call while idle. */
+    private void installGameSurface() {
+        if (gameView != null) {
+            gameView.stop();
+            game_container.removeView(gameView.asView());
+        }
+        gameView = surfaceRenderer
+                ? new GameSurfaceView(this, gameEvents)
+                : new GameView(this, gameEvents);
+        gameView.setConfig(GameConfig.forMode(mode));
+        gameView.setHapticsEnabled(hapticsEnabled);
+        gameView.setAudioEngine(audio);
+        gameView.setPalette(ThemeManager.palette(ThemeManager.getTheme(settings)));
+        gameView.setFrameMonitor(frameMonitor);
+        game_container.addView(gameView.asView());
     }
 
     /** Put the screen into an idle "tap START" state with menu music and overlay visible. */
-    private void prepareIdleState() {
+    private void prepareIdleState() { prepareIdleState(true); }
+
+    private void prepareIdleState(boolean menuMusic) {
         running = false;
         paused = false;
-        handler.removeCallbacks(tick);
         if (gameView != null) {
             gameView.stop();
             gameView.reset();
+            gameView.setHud(false, best);
         }
+        showHudViews(true);
         score = 0;
         if (score_text != null) score_text.setText("Score: 0");
         if (time_text != null) time_text.setText(mode == GameMode.TIME_ATTACK ? "60s" : "∞");
         if (overlay != null) overlay.setVisibility(View.VISIBLE);
         if (start_button != null) start_button.setText("START");
-        if (musicEnabled) audio.startMusic(R.raw.music_menu, true);
+        if (menuMusic && musicEnabled) audio.startMusic(R.raw.music_menu, true);
+        if (!adsRemoved) ads.refill();
+    }
+
+    /** Score and time TextViews show only between rounds; during one the surface draws them. */
+    private void showHudViews(boolean show) {
+        int v = show ? View.VISIBLE : View.INVISIBLE; // keeps the bar's layout for the pause button
+        if (score_text != null) score_text.setVisibility(v);
+        if (time_text != null) time_text.setVisibility(v);
     }
 
     /** Ask once at first launch; no auto sign-in. */
     private void maybeAskForPlayGamesOnce() {
-        boolean asked = prefs.getBoolean(PREF_PGS_ASKED_ONCE, false);
+        boolean asked = settings.get(AppSettings.PGS_ASKED_ONCE);
         if (asked) return;
 
         new AlertDialog.Builder(this)
                 .setTitle("Play Games")
                 .setMessage("Sign in to Google Play Games to compete on leaderboards and earn achievements?")
                 .setPositiveButton("Sign in", (d,w) -> {
-                    prefs.edit().putBoolean(PREF_PGS_ASKED_ONCE, true).apply();
+                    settings.set(AppSettings.PGS_ASKED_ONCE, true);
                     social.signIn(this, null);
                 })
                 .setNegativeButton("Not now", (d,w) ->
-                        prefs.edit().putBoolean(PREF_PGS_ASKED_ONCE, true).apply())
+                        settings.set(AppSettings.PGS_ASKED_ONCE, true))
                 .show();
     }
 
     // ===== Game flow =====
     private void startGame() {
+        if (surfaceRenderer != (gameView instanceof GameSurfaceView)) installGameSurface();
         score = 0;
-        if (score_text != null) score_text.setText("Score: 0");
         running = true;
         paused = false;
         if (overlay != null) overlay.setVisibility(View.GONE);
 
         GameConfig cfg = GameConfig.forMode(mode);
         gameView.setConfig(cfg);
-        gameView.setScoreForDifficulty(0);
-
-        if (mode == GameMode.TIME_ATTACK) {
-            endTimeMs = System.currentTimeMillis() + cfg.roundMillis;
-        } else {
-            endTimeMs = Long.MAX_VALUE;
-        }
 
         if (musicEnabled) audio.startMusic(R.raw.music_game, true);
 
-        if (mode == GameMode.ENDLESS) {
-            lastEndlessAdAt = System.currentTimeMillis();
-        }
-
+        // Round end, HUD countdown and ad breaks all run on game time (see GameClock)
+        boolean timed = mode == GameMode.TIME_ATTACK;
         gameView.reset();
-        gameView.start();
-
-        handler.removeCallbacks(tick);
-        handler.post(tick);
+        gameView.start(seeds.nextLong(), timed ? cfg.roundMillis : 0);
+        gameView.setHud(true, best);
+        showHudViews(false);
+        if (mode == GameMode.ENDLESS && !adsRemoved) {
+            gameView.setAlarm(ALARM_AD_BREAK, ENDLESS_AD_INTERVAL_MS, ENDLESS_AD_INTERVAL_MS);
+        }
+        frameMonitor.begin(gameView instanceof GameSurfaceView);
     }
 
     private void pauseGameInternal() {
         if (!running || paused) return;
         paused = true;
-        pauseStartedMs = System.currentTimeMillis();
-        handler.removeCallbacks(tick);
         gameView.pause();
+        frameMonitor.pause();
         if (musicEnabled) audio.startMusic(R.raw.music_menu, true);
+        if (!adsRemoved) ads.refill(); // quiet moment: load ahead, never mid-round
     }
 
     private void resumeGame() {
         if (!running || !paused) return;
-        long pausedDur = System.currentTimeMillis() - pauseStartedMs;
-        endTimeMs += pausedDur;
         paused = false;
         gameView.resume();
+        frameMonitor.resume();
         if (musicEnabled) audio.startMusic(R.raw.music_game, true);
-        handler.removeCallbacks(tick);
-        handler.post(tick);
     }
 
-    private final Runnable tick = new Runnable() {
-        @Override public void run() {
-            if(!running || paused) return;
-            long now = System.currentTimeMillis();
-            long left = endTimeMs - now;
-            if(left < 0) left = 0;
-
-            if (time_text != null) {
-                if (mode == GameMode.TIME_ATTACK) {
-                    int sec = (int)((left + 500) / 1000);
-                    time_text.setText(sec + "s");
-                } else {
-                    time_text.setText("∞");
-                }
-            }
-
-            // Endless: timed interstitial every 5 minutes (if ads not removed)
-            if (!adsRemoved && mode == GameMode.ENDLESS) {
-                long fiveMin = 5L * 60L * 1000L;
-                if (now - lastEndlessAdAt >= fiveMin) {
-                    pauseGameInternal();
-                    ads.showInterstitial(MainActivity.this, () -> {
-                        lastEndlessAdAt = System.currentTimeMillis();
-                        resumeGame();
-                    });
-                    return;
-                }
-            }
-
-            if (mode == GameMode.TIME_ATTACK && left == 0) {
-                finishGame();
-            } else {
-                handler.postDelayed(this, 200);
-            }
-        }
-    };
-
     private void finishGame() {
         running = false;
         paused  = false;
         gameView.stop();
+        Replay replay = gameView.captureReplay(mode);
+        RunRecord run = gameView.captureRun(mode);
+        historyIo.execute(() -> {
+            try { history.append(run); } catch (IOException ignored) { }
+        });
+        frameMonitor.end(mode.name(), new File(getFilesDir(), "frame_sessions.jsonl"));
         if (musicEnabled) audio.startMusic(R.raw.music_menu, true);
         if (overlay != null) overlay.setVisibility(View.VISIBLE);
+        gameView.setHud(false, best);
+        if (score_text != null) score_text.setText("Score: " + score);
+        if (high_text != null) high_text.setText("Best: " + best);
+        if (time_text != null) time_text.setText(mode == GameMode.TIME_ATTACK ? "0s" : "∞");
+        showHudViews(true);
 
-        int savedBest = prefs.getInt("best", 0);
-        if(best >= savedBest) prefs.edit().putInt("best", best).apply();
+        if (best >= settings.get(AppSettings.BEST)) settings.set(AppSettings.BEST, best);
 
-        if (social != null && social.isSignedIn()) {
-            String lbId;
+        // Queued in the outbox even when signed out or offline; it sends once both are back
+        String lbId = null;
+        if (social != null) {
             switch (mode) {
                 case ENDLESS:     lbId = getStringSafe("lb_endless_id"); break;
                 case HARDCORE:    lbId = getStringSafe("lb_hardcore_id"); break;
@@ -371,8 +470,12 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
                 case STORY:       lbId = getStringSafe("lb_story_id");   break;
                 default:          lbId = getStringSafe("lb_time_attack_id");
             }
-            if (lbId != null) social.submitScore(this, lbId, best);
         }
+        if (lbId != null && score < best) {
+            social.submitScore(this, lbId, best); // best came from an earlier, already checked round
+            lbId = null;
+        }
+        checkReplay(replay, score, lbId, best);
 
         if (!adsRemoved) {
             switch (mode) {
@@ -389,16 +492,35 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
                     // Endless handled by timer; Chill/Story no interstitial here
                     break;
             }
+            ads.refill();
         }
 
         if (mode == GameMode.STORY) {
             storyLevel = Math.max(1, storyLevel + 1);
-            prefs.edit().putInt(PREF_STORY_LEVEL, storyLevel).apply();
+            settings.set(AppSettings.STORY_LEVEL, storyLevel);
         }
 
         if (start_button != null) start_button.setText("RESTART");
     }
 
+    /**
+     * Off the UI thread: keep the round's replay (last_replay.tmr, for perf runs and bug
+     * reports) and, if {@code lbId} is set, re-simulate it and submit {@code submit} only
+     * when the recorded taps really earn {@code runScore}.
+     */
+    private void checkReplay(Replay replay, int runScore, String lbId, int submit) {
+        new Thread(() -> {
+            try (FileOutputStream out = new FileOutputStream(new File(getFilesDir(), "last_replay.tmr"))) {
+                out.write(replay.encode());
+            } catch (IOException ignored) { }
+            if (lbId == null) return;
+            boolean ok = ReplayVerifier.verify(replay, runScore);
+            handler.post(() -> {
+                if (ok && social != null) social.submitScore(this, lbId, submit);
+            });
+        }, "ReplayCheck").start();
+    }
+
     // ===== Menus =====
     private void showPauseDialog() {
         pauseGameInternal();
@@ -440,7 +562,7 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
         hapticSwitch.setText("Haptics");
         hapticSwitch.setOnCheckedChangeListener((b, isChecked) -> {
             hapticsEnabled = isChecked;
-            prefs.edit().putBoolean("haptics_enabled", isChecked).apply();
+            settings.set(AppSettings.HAPTICS, isChecked);
             gameView.setHapticsEnabled(isChecked);
         });
 
@@ -449,7 +571,7 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
         musicSwitch.setText("Music");
         musicSwitch.setOnCheckedChangeListener((b, isChecked) -> {
             musicEnabled = isChecked;
-            prefs.edit().putBoolean("music_enabled", isChecked).apply();
+            settings.set(AppSettings.MUSIC, isChecked);
             audio.setMusicEnabled(isChecked);
             if (isChecked) audio.startMusic(paused ? R.raw.music_menu : R.raw.music_game, true);
             else audio.stopMusic();
@@ -460,13 +582,43 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
         sfxSwitch.setText("Sound Effects");
         sfxSwitch.setOnCheckedChangeListener((b, isChecked) -> {
             sfxEnabled = isChecked;
-            prefs.edit().putBoolean("sfx_enabled", isChecked).apply();
+            settings.set(AppSettings.SFX, isChecked);
             audio.setSfxEnabled(isChecked);
         });
 
+        // Takes effect on the next START (swapping mid-run would drop the targets)
+        SwitchCompat rendererSwitch = new SwitchCompat(this);
+        rendererSwitch.setChecked(surfaceRenderer);
+        rendererSwitch.setText("Render thread (SurfaceView)");
+        rendererSwitch.setOnCheckedChangeListener((b, isChecked) -> {
+            surfaceRenderer = isChecked;
+            settings.set(AppSettings.SURFACE_RENDERER, isChecked);
+        });
+
         container.addView(hapticSwitch);
         container.addView(musicSwitch);
         container.addView(sfxSwitch);
+        container.addView(rendererSwitch);
+
+        SwitchCompat refreshSwitch = new SwitchCompat(this);
+        refreshSwitch.setChecked(highRefresh);
+        refreshSwitch.setText("High refresh rate");
+        refreshSwitch.setOnCheckedChangeListener((b, isChecked) -> {
+            highRefresh = isChecked;
+            settings.set(AppSettings.HIGH_REFRESH, isChecked);
+            RefreshRate.apply(this, isChecked);
+        });
+        container.addView(refreshSwitch);
+
+        SwitchCompat overlaySwitch = new SwitchCompat(this);
+        overlaySwitch.setChecked(frameOverlay);
+        overlaySwitch.setText("Frame stats overlay");
+        overlaySwitch.setOnCheckedChangeListener((b, isChecked) -> {
+            frameOverlay = isChecked;
+            settings.set(AppSettings.FRAME_OVERLAY, isChecked);
+            frameMonitor.setOverlayVisible(isChecked);
+        });
+        container.addView(overlaySwitch);
 
         // Remove Ads / Restore
         Button buyRemoveAds = new Button(this);
@@ -519,6 +671,7 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
         items.add(adsRemoved ? "Ads already removed" : "Remove Ads");
         items.add("Restore Purchases");
         if (!signed) items.add("Sign in to Play Games");
+        items.add("My Stats");
         items.add("Change Mode");
 
         new AlertDialog.Builder(this)
@@ -543,6 +696,9 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
                         case "Sign in to Play Games":
                             confirmPlayGamesSignIn();
                             break;
+                        case "My Stats":
+                            showStats();
+                            break;
                         case "Change Mode":
                             if (pauseDialog != null) { pauseDialog.dismiss(); pauseDialog = null; }
                             pauseGameInternal();
@@ -553,12 +709,33 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
                 .show();
     }
 
+    /** Per-mode aggregates; in memory, so this never waits on the log. */
+    private void showStats() {
+        StringBuilder sb = new StringBuilder();
+        for (GameMode m : GameMode.values()) {
+            RunHistory.ModeStats s = history.stats(m);
+            sb.append(modeToLabel(m)).append('\n');
+            if (s.count() == 0) {
+                sb.append("  no runs yet\n\n");
+                continue;
+            }
+            sb.append(String.format(Locale.US, "  best %d  ·  avg %.1f  ·  %d runs", s.best(), s.average(), s.count()));
+            if (s.count() >= 2) sb.append(String.format(Locale.US, "\n  recent trend %+.1f", s.trend()));
+            sb.append("\n\n");
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("My Stats")
+                .setMessage(sb.toString().trim())
+                .setPositiveButton("OK", null)
+                .show();
+    }
+
     /** Ask user before interactive Play Games sign-in. */
     private void confirmPlayGamesSignIn() {
         new AlertDialog.Builder(this)
                 .setTitle("Google Play Games")
                 .setMessage("Sign in to view leaderboards and earn achievements?")
-                .setPositiveButton("Sign in", (d,w) -> social.signIn(this, null))
+                .setPositiveButton("Sign in", (d,w) -> { if (social != null) social.signIn(this, null); })
                 .setNegativeButton("Cancel", null)
                 .show();
     }
@@ -576,22 +753,36 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
     // ===== Billing callbacks =====
     @Override public void onBillingReady() { }
 
-    @Override public void onAdsRemoved() {
-        adsRemoved = true;
-        prefs.edit().putBoolean("ads_removed", true).apply();
+    @Override public void onEntitlementChanged(String product, boolean owned) {
+        if (!BillingManager.SKU_REMOVE_ADS.equals(product)) return;
+        adsRemoved = owned;
+        ads.setEnabled(!owned);
     }
 
     @Override public void onPurchaseFailed(String reason) { }
 
     // ===== Lifecycle =====
+    @Override protected void onResume() {
+        super.onResume();
+        // theme may have changed in SettingsActivity; the atlas rebuilds on the next draw
+        if (gameView != null) gameView.setPalette(ThemeManager.palette(ThemeManager.getTheme(settings)));
+        if (social != null) social.flush();
+        if (billing != null) billing.refreshIfStale(); // long-lived sessions still pick up refunds
+    }
+
     @Override protected void onPause() {
         super.onPause();
         if (running && !paused) pauseGameInternal();
+        AppSettings.flushSoon();
     }
 
     @Override protected void onDestroy() {
         super.onDestroy();
         if (audio != null) audio.release();
+        if (frameMonitor != null) frameMonitor.release();
+        if (historyIo != null) historyIo.shutdown(); // a queued append still runs
+        if (social != null) social.release();
+        if (startupPool != null) startupPool.shutdownNow();
     }
 
     // ===== Helpers =====
@@ -604,10 +795,4 @@ public class MainActivity extends AppCompatActivity implements BillingManager.Li
         int id = getResources().getIdentifier(name, "string", getPackageName());
         return id == 0 ? null : getString(id);
     }
-
-    private void maybeUnlockAchievement(String resName, boolean condition) {
-        if (!condition || social == null || !social.isSignedIn()) return;
-        String achId = getStringSafe(resName);
-        if (achId != null) social.unlock(this, achId);
-    }
 }
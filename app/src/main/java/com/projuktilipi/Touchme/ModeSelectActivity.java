@@ -1,7 +1,6 @@
 package com.projuktilipi.Touchme;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
@@ -40,7 +39,7 @@ public class ModeSelectActivity extends AppCompatActivity {
     public static final String DECISION_START_FRESH= "start_fresh";
     public static final String DECISION_SWITCH     = "switch";
 
-    private SharedPreferences prefs;
+    private SettingsStore settings;
     private GameMode currentModeForConfirm; // only set when returning a result
 
     @Override
@@ -48,7 +47,7 @@ public class ModeSelectActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_mode_select);
 
-        prefs = getSharedPreferences("touch_me_prefs", MODE_PRIVATE);
+        settings = AppSettings.get(this);
 
         final boolean returnResultOnly =
                 getIntent() != null && getIntent().getBooleanExtra(EXTRA_RETURN_RESULT, false);
@@ -75,7 +74,7 @@ public class ModeSelectActivity extends AppCompatActivity {
             else                                  picked = GameMode.STORY;
 
             // Persist the last choice for launcher starts
-            prefs.edit().putInt("mode", picked.ordinal()).apply();
+            settings.set(AppSettings.MODE, picked.ordinal());
 
             if (returnResultOnly) {
                 handleReturnResultFlow(picked);
@@ -0,0 +1,286 @@
+package com.projuktilipi.Touchme;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.media.VolumeShaper;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import androidx.annotation.RawRes;
+
+/**
+ * Background music on its own control thread. Every public method just posts there, so the
+ * UI thread never waits on a MediaPlayer.
+ *
+ * Each track is created and prepared once and kept: switching tracks crossfades between
+ * two prepared players, and pause/resume are only pause and start, with no decoder setup.
+ * Looping is gapless. A looping track keeps its next pass prepared and chained with
+ * {@link MediaPlayer#setNextMediaPlayer}, and prepares the pass after that while the
+ * current one plays.
+ *
+ * Fades use a {@link VolumeShaper} on API 26+ and are stepped on the control thread below
+ * that.
+ */
+final class MusicDeck {
+
+    private static final long STEP_MS = 16;
+
+    private final Context app;
+    private final HandlerThread thread = new HandlerThread("AudioControl");
+    private final Handler handler;
+
+    // Control thread only
+    private final SparseArray<Track> tracks = new SparseArray<>();
+    private Track current;
+    private float volume = 0.35f;
+
+    MusicDeck(Context ctx) {
+        app = ctx.getApplicationContext();
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /** Create and prepare these tracks now, so the first switch to them is just a fade. */
+    void prepare(@RawRes int... resIds) {
+        handler.post(() -> { for (int id : resIds) track(id); });
+    }
+
+    /** Make {@code resId} the playing track, crossfading from whatever played before. */
+    void play(@RawRes int resId, boolean loop, long fadeMs) {
+        handler.post(() -> {
+            Track t = track(resId);
+            if (t == null) return;
+            t.setLooping(loop);
+            if (current != null && current != t) current.fadeTo(0f, fadeMs, true);
+            current = t;
+            t.start();
+            t.fadeTo(volume, fadeMs, false);
+        });
+    }
+
+    /** Pause at once, keeping the position. */
+    void pause() {
+        handler.post(() -> { if (current != null) current.pause(); });
+    }
+
+    void resume(long fadeMs) {
+        handler.post(() -> {
+            if (current == null) return;
+            current.start();
+            current.fadeTo(volume, fadeMs, false);
+        });
+    }
+
+    /** Fade out, then pause and rewind; the player stays prepared for next time. */
+    void stop(long fadeMs) {
+        handler.post(() -> {
+            if (current != null) current.fadeTo(0f, fadeMs, true);
+            current = null;
+        });
+    }
+
+    /** Fade the current track to {@code factor} × volume (ducking, or back to 1). */
+    void duck(float factor, long fadeMs) {
+        handler.post(() -> { if (current != null) current.fadeTo(volume * factor, fadeMs, false); });
+    }
+
+    void setVolume(float v) {
+        handler.post(() -> {
+            volume = v;
+            if (current != null) current.fadeTo(v, 0, false);
+        });
+    }
+
+    void release() {
+        handler.post(() -> {
+            for (int i = 0; i < tracks.size(); i++) tracks.valueAt(i).release();
+            tracks.clear();
+            current = null;
+            thread.quitSafely();
+        });
+    }
+
+    private Track track(@RawRes int resId) {
+        Track t = tracks.get(resId);
+        if (t == null) {
+            MediaPlayer p = create(resId);
+            if (p == null) return null;
+            t = new Track(resId, p);
+            tracks.put(resId, t);
+        }
+        return t;
+    }
+
+    private MediaPlayer create(@RawRes int resId) {
+        AudioAttributes aa = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_GAME)
+                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                .build();
+        try {
+            return MediaPlayer.create(app, resId, aa, 0); // prepared
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** One track: the playing pass, the next one chained behind it, and their shared level. */
+    private final class Track implements MediaPlayer.OnCompletionListener {
+        final int resId;
+        MediaPlayer player;
+        MediaPlayer next;       // prepared, chained: starts the moment player completes
+        VolumeShaper shaper, nextShaper;
+        boolean loop;
+        float level = 0f;       // where the last fade ends
+        float stepFrom;         // pre-26 stepping
+        long fadeStart, fadeEnd;
+        boolean pauseAfterFade;
+
+        Track(int resId, MediaPlayer p) {
+            this.resId = resId;
+            player = p;
+            player.setOnCompletionListener(this);
+            shaper = applyLevel(player, null, 0f, 0);
+        }
+
+        void setLooping(boolean l) {
+            if (loop == l) return;
+            loop = l;
+            if (loop) chainNext();
+            else dropNext();
+        }
+
+        void start() {
+            handler.removeCallbacks(finishFade);
+            pauseAfterFade = false;
+            try { if (!player.isPlaying()) player.start(); } catch (IllegalStateException ignored) { }
+        }
+
+        void pause() {
+            handler.removeCallbacks(step);
+            handler.removeCallbacks(finishFade);
+            try { if (player.isPlaying()) player.pause(); } catch (IllegalStateException ignored) { }
+        }
+
+        /** @param thenPause pause and rewind once silent (switching away, stopping) */
+        void fadeTo(float target, long ms, boolean thenPause) {
+            handler.removeCallbacks(step);
+            handler.removeCallbacks(finishFade);
+            stepFrom = currentLevel();
+            level = target;
+            pauseAfterFade = thenPause;
+            fadeStart = SystemClock.uptimeMillis();
+            fadeEnd = fadeStart + ms;
+            if (Build.VERSION.SDK_INT >= 26) {
+                shaper = applyLevel(player, shaper, target, ms);
+                if (next != null) nextShaper = applyLevel(next, nextShaper, target, 0);
+                handler.postDelayed(finishFade, ms);
+            } else {
+                handler.post(step);
+            }
+        }
+
+        private float currentLevel() {
+            if (Build.VERSION.SDK_INT >= 26 && shaper != null) {
+                try { return shaper.getVolume(); } catch (IllegalStateException e) { return level; }
+            }
+            long now = SystemClock.uptimeMillis();
+            if (now >= fadeEnd) return level;
+            float p = (now - fadeStart) / (float) (fadeEnd - fadeStart);
+            return stepFrom + (level - stepFrom) * p;
+        }
+
+        // Pre-26 fades: set the volume every frame until the fade ends
+        private final Runnable step = new Runnable() {
+            @Override public void run() {
+                float v = currentLevel();
+                player.setVolume(v, v);
+                if (next != null) next.setVolume(level, level);
+                if (SystemClock.uptimeMillis() < fadeEnd) handler.postDelayed(this, STEP_MS);
+                else finishFade.run();
+            }
+        };
+
+        private final Runnable finishFade = () -> {
+            if (!pauseAfterFade) return;
+            pauseAfterFade = false;
+            try {
+                if (player.isPlaying()) player.pause();
+                player.seekTo(0);
+            } catch (IllegalStateException ignored) { }
+        };
+
+        // The chained pass took over: it becomes the player, and the one after it is prepared now.
+        @Override public void onCompletion(MediaPlayer done) {
+            if (done != player || next == null) return;
+            player = next;
+            shaper = nextShaper;
+            next = null;
+            nextShaper = null;
+            if (Build.VERSION.SDK_INT >= 26) {
+                // a fade in flight continues from here on the new pass
+                long left = Math.max(0, fadeEnd - SystemClock.uptimeMillis());
+                if (left > 0) shaper = applyLevel(player, shaper, level, left);
+            }
+            done.release();
+            if (loop) chainNext();
+        }
+
+        private void chainNext() {
+            if (next != null) return;
+            MediaPlayer p = create(resId);
+            if (p == null) {
+                player.setLooping(true); // fall back to the platform loop
+                return;
+            }
+            player.setLooping(false);
+            p.setOnCompletionListener(this);
+            if (Build.VERSION.SDK_INT >= 26) nextShaper = applyLevel(p, null, level, 0);
+            else p.setVolume(level, level);
+            player.setNextMediaPlayer(p);
+            next = p;
+        }
+
+        private void dropNext() {
+            if (next == null) return;
+            player.setNextMediaPlayer(null);
+            next.release();
+            next = null;
+            nextShaper = null;
+        }
+
+        void release() {
+            handler.removeCallbacks(step);
+            handler.removeCallbacks(finishFade);
+            dropNext();
+            player.release();
+        }
+    }
+
+    /**
+     * Pre-26: set the level directly. 26+: ramp {@code p}'s shaper from wherever it is to
+     * {@code target} over {@code ms} (creating it the first time).
+     */
+    private static VolumeShaper applyLevel(MediaPlayer p, VolumeShaper shaper, float target, long ms) {
+        if (Build.VERSION.SDK_INT < 26) {
+            p.setVolume(target, target);
+            return null;
+        }
+        float from = shaper != null ? shaper.getVolume() : target;
+        VolumeShaper.Configuration cfg = new VolumeShaper.Configuration.Builder()
+                .setDuration(Math.max(1, ms))
+                .setCurve(new float[] { 0f, 1f }, new float[] { from, target })
+                .setInterpolatorType(VolumeShaper.Configuration.INTERPOLATOR_TYPE_LINEAR)
+                .build();
+        if (shaper != null) {
+            shaper.replace(cfg, VolumeShaper.Operation.PLAY, false);
+            return shaper;
+        }
+        shaper = p.createVolumeShaper(cfg);
+        shaper.apply(VolumeShaper.Operation.PLAY);
+        return shaper;
+    }
+}
@@ -0,0 +1,33 @@
+package com.projuktilipi.Touchme;
+
+import android.app.Activity;
+import android.view.Display;
+import android.view.Window;
+import android.view.WindowManager;
+
+/** Ask the window for the display's fastest refresh rate (same resolution), or drop the request. */
+public final class RefreshRate {
+    private RefreshRate() { }
+
+    public static void apply(Activity act, boolean highest) {
+        Window w = act.getWindow();
+        WindowManager.LayoutParams lp = w.getAttributes();
+        int modeId = 0; // 0 = no preference, let the system decide
+        if (highest) {
+            Display d = act.getWindowManager().getDefaultDisplay();
+            Display.Mode cur = d.getMode();
+            float best = cur.getRefreshRate();
+            for (Display.Mode m : d.getSupportedModes()) {
+                if (m.getPhysicalWidth() != cur.getPhysicalWidth()
+                        || m.getPhysicalHeight() != cur.getPhysicalHeight()) continue;
+                if (m.getRefreshRate() > best) {
+                    best = m.getRefreshRate();
+                    modeId = m.getModeId();
+                }
+            }
+        }
+        if (lp.preferredDisplayModeId == modeId) return;
+        lp.preferredDisplayModeId = modeId;
+        w.setAttributes(lp);
+    }
+}
@@ -1,21 +1,20 @@
 package com.projuktilipi.Touchme;
 
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AlertDialog;
 
 public class SettingsActivity extends AppCompatActivity {
-    private SharedPreferences prefs;
+    private SettingsStore settings;
     @Override protected void onCreate(Bundle b) {
         super.onCreate(b);
-        prefs = getSharedPreferences("touch_me_prefs", MODE_PRIVATE);
+        settings = AppSettings.get(this);
         String[] items = {"Classic", "Sunset", "Ocean"};
-        ThemeManager.Theme current = ThemeManager.getTheme(prefs);
+        ThemeManager.Theme current = ThemeManager.getTheme(settings);
         new AlertDialog.Builder(this)
                 .setTitle("Choose Theme")
                 .setSingleChoiceItems(items, current.ordinal(), (d, which) -> {
-                    ThemeManager.setTheme(prefs, ThemeManager.Theme.values()[which]);
+                    ThemeManager.setTheme(settings, ThemeManager.Theme.values()[which]);
                 }).setPositiveButton("OK", (d,w) -> finish())
                 .setNegativeButton("Cancel", (d,w) -> finish())
                 .show();
@@ -0,0 +1,125 @@
+package com.projuktilipi.Touchme;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+
+/**
+ * Plays an {@link SfxMixer} through a low-latency {@link AudioTrack} on its own thread.
+ *
+ * The thread mixes one device burst at a time and writes it blocking, so the track's queue
+ * stays a couple of bursts deep. After {@link #IDLE_BURSTS} silent bursts it pauses the
+ * track and sleeps until the next sound is queued; the first sound after that pays for a
+ * track restart (a few ms) instead of the device spinning on silence all session.
+ */
+final class SfxOutput implements Runnable {
+
+    private static final int IDLE_BURSTS = 200; // ~1 s at 48 kHz / 256-frame bursts
+
+    final int sampleRate;
+    private final int burstFrames;
+    private final SfxMixer mixer;
+    private Thread thread; // guarded by this
+
+    SfxOutput(Context ctx, int voices) {
+        AudioManager am = (AudioManager) ctx.getSystemService(Context.AUDIO_SERVICE);
+        sampleRate = intProperty(am, AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE, 48000);
+        burstFrames = intProperty(am, AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER, 256);
+        mixer = new SfxMixer(AudioEngine.SFX_SLOTS, voices, burstFrames);
+    }
+
+    SfxMixer mixer() { return mixer; }
+
+    /** Start the mixer thread if it isn't running. */
+    synchronized void start() {
+        if (thread != null) return;
+        thread = new Thread(this, "SfxMixer");
+        thread.start();
+    }
+
+    /** Stop the thread and release the track. Waits for the thread; call off the audio thread. */
+    void stop() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+        }
+        if (t == null) return;
+        t.interrupt();
+        boolean interrupted = false;
+        while (t.isAlive()) {
+            try { t.join(); } catch (InterruptedException e) { interrupted = true; }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    @Override public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        AudioTrack track;
+        try {
+            track = createTrack();
+        } catch (RuntimeException e) {
+            return; // no output: the game stays silent rather than crashing
+        }
+        short[] buf = new short[burstFrames * 2];
+        int idle = 0;
+        try {
+            track.play();
+            while (!Thread.currentThread().isInterrupted()) {
+                int active = mixer.mix(buf, burstFrames);
+                if (track.write(buf, 0, buf.length) < 0) break;
+                idle = active > 0 ? 0 : idle + 1;
+                if (idle >= IDLE_BURSTS) {
+                    track.pause();
+                    track.flush();
+                    mixer.awaitSound();
+                    track.play();
+                    idle = 0;
+                }
+            }
+        } catch (InterruptedException ignored) {
+            // stop()
+        } finally {
+            try { track.stop(); } catch (IllegalStateException ignored) { }
+            track.release();
+        }
+    }
+
+    private AudioTrack createTrack() {
+        AudioAttributes aa = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_GAME)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        AudioFormat fmt = new AudioFormat.Builder()
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setSampleRate(sampleRate)
+                .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                .build();
+        int min = AudioTrack.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack.Builder b = new AudioTrack.Builder()
+                .setAudioAttributes(aa)
+                .setAudioFormat(fmt)
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setBufferSizeInBytes(Math.max(min, burstFrames * 4 * 2));
+        if (Build.VERSION.SDK_INT >= 26) b.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        AudioTrack track = b.build();
+        // keep the queue at two bursts: enough to ride out scheduling hiccups, no more
+        if (Build.VERSION.SDK_INT >= 24) track.setBufferSizeInFrames(burstFrames * 2);
+        return track;
+    }
+
+    private static int intProperty(AudioManager am, String key, int def) {
+        String v = am != null ? am.getProperty(key) : null;
+        if (v == null) return def;
+        try {
+            int n = Integer.parseInt(v);
+            return n > 0 ? n : def;
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+}
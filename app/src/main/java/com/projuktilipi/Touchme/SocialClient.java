@@ -13,6 +13,10 @@ public interface SocialClient {
     void submitScore(Activity activity, String leaderboardId, long score);
     void unlock(Activity activity, String achievementId);
 
+    // Same, reporting whether the service accepted it (for SocialOutbox). Main thread.
+    void submitScore(Activity activity, String leaderboardId, long score, ScoreOutbox.Done done);
+    void unlock(Activity activity, String achievementId, ScoreOutbox.Done done);
+
     void showLeaderboards(Activity activity);
     void showAchievements(Activity activity);
 }
@@ -67,6 +67,22 @@ public class SocialGpgs implements SocialClient {
         ac.unlock(achievementId);
     }
 
+    @Override
+    public void submitScore(Activity act, String leaderboardId, long score, ScoreOutbox.Done done) {
+        if (!authed || leaderboardId == null || leaderboardId.isEmpty()) { done.onResult(false); return; }
+        PlayGames.getLeaderboardsClient(act)
+                .submitScoreImmediate(leaderboardId, score)
+                .addOnCompleteListener(t -> done.onResult(t.isSuccessful()));
+    }
+
+    @Override
+    public void unlock(Activity act, String achievementId, ScoreOutbox.Done done) {
+        if (!authed || achievementId == null || achievementId.isEmpty()) { done.onResult(false); return; }
+        PlayGames.getAchievementsClient(act)
+                .unlockImmediate(achievementId)
+                .addOnCompleteListener(t -> done.onResult(t.isSuccessful()));
+    }
+
     @Override
     public void showLeaderboards(Activity act) {
         if (!authed) { signIn(act, () -> showLeaderboards(act)); return; }
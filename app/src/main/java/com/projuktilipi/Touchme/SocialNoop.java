@@ -10,6 +10,8 @@ public class SocialNoop implements SocialClient {
     @Override public @Nullable String getPlayerId() { return null; }
     @Override public void submitScore(Activity activity, String leaderboardId, long score) { }
     @Override public void unlock(Activity activity, String achievementId) { }
+    @Override public void submitScore(Activity activity, String leaderboardId, long score, ScoreOutbox.Done done) { done.onResult(false); }
+    @Override public void unlock(Activity activity, String achievementId, ScoreOutbox.Done done) { done.onResult(false); }
     @Override public void showLeaderboards(Activity activity) { }
     @Override public void showAchievements(Activity activity) { }
 }
@@ -0,0 +1,164 @@
+package com.projuktilipi.Touchme;
+
+import android.app.Activity;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+
+/**
+ * A {@link SocialClient} whose scores and unlocks go through a {@link ScoreOutbox}, so they
+ * survive being offline, signed out or killed, and repeats of the same best never leave the
+ * device.
+ *
+ * The outbox lives on its own "SocialOutbox" thread (it writes its file on every change).
+ * Calls to the wrapped client are made on the main thread, with the latest Activity seen,
+ * and their results hop back. A flush is tried after each queued operation, on resume,
+ * and with the backoff skipped when sign-in succeeds or a network comes up.
+ */
+final class SocialOutbox implements SocialClient, ScoreOutbox.Transport {
+
+    private static final int BATCH = 8;
+    private static final long BACKOFF_BASE_MS = 5_000L;
+    private static final long BACKOFF_MAX_MS = 10 * 60_000L;
+
+    private final SocialClient delegate;
+    private final HandlerThread thread = new HandlerThread("SocialOutbox");
+    private final Handler io;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final ScoreOutbox outbox;
+    private final ConnectivityManager connectivity;
+    private final ConnectivityManager.NetworkCallback networkCallback;
+
+    private volatile WeakReference<Activity> activity = new WeakReference<>(null);
+    private volatile boolean online = true;
+
+    SocialOutbox(Context ctx, SocialClient delegate) {
+        this.delegate = delegate;
+        thread.start();
+        io = new Handler(thread.getLooper());
+        outbox = new ScoreOutbox(new File(ctx.getFilesDir(), "social.outbox"), this,
+                BATCH, BACKOFF_BASE_MS, BACKOFF_MAX_MS);
+        io.post(outbox::load);
+
+        connectivity = (ConnectivityManager) ctx.getSystemService(Context.CONNECTIVITY_SERVICE);
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override public void onAvailable(@NonNull Network network) {
+                online = true;
+                wake();
+            }
+            @Override public void onLost(@NonNull Network network) {
+                // below 24 this is any network, not the default one: don't trust it to mean offline
+                if (Build.VERSION.SDK_INT >= 24) online = false;
+            }
+        };
+        if (connectivity != null) {
+            try {
+                if (Build.VERSION.SDK_INT >= 24) {
+                    connectivity.registerDefaultNetworkCallback(networkCallback);
+                } else {
+                    NetworkRequest req = new NetworkRequest.Builder()
+                            .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                            .build();
+                    connectivity.registerNetworkCallback(req, networkCallback);
+                }
+            } catch (RuntimeException ignored) { } // too many callbacks registered: flushes still run on resume
+        }
+    }
+
+    /** Try to send what's queued (resume, end of a round). Any thread. */
+    void flush() {
+        io.post(() -> outbox.flush(SystemClock.elapsedRealtime()));
+    }
+
+    private void wake() {
+        io.post(() -> outbox.wake(SystemClock.elapsedRealtime()));
+    }
+
+    void release() {
+        if (connectivity != null) {
+            try { connectivity.unregisterNetworkCallback(networkCallback); } catch (RuntimeException ignored) { }
+        }
+        thread.quitSafely(); // a queued write still runs
+    }
+
+    // ===== SocialClient =====
+    @Override public void signIn(Activity act, @Nullable Runnable onResult) {
+        remember(act);
+        delegate.signIn(act, () -> {
+            if (delegate.isSignedIn()) wake();
+            if (onResult != null) onResult.run();
+        });
+    }
+
+    @Override public void signOut() { delegate.signOut(); }
+    @Override public boolean isSignedIn() { return delegate.isSignedIn(); }
+    @Override public @Nullable String getPlayerId() { return delegate.getPlayerId(); }
+
+    /** Queued: sent when signed in and online, only if higher than what's already on the board. */
+    @Override public void submitScore(Activity act, String leaderboardId, long score) {
+        if (leaderboardId == null || leaderboardId.isEmpty()) return;
+        remember(act);
+        io.post(() -> {
+            if (outbox.submitScore(leaderboardId, score)) outbox.flush(SystemClock.elapsedRealtime());
+        });
+    }
+
+    /** Queued like {@link #submitScore}. */
+    @Override public void unlock(Activity act, String achievementId) {
+        if (achievementId == null || achievementId.isEmpty()) return;
+        remember(act);
+        io.post(() -> {
+            if (outbox.unlock(achievementId)) outbox.flush(SystemClock.elapsedRealtime());
+        });
+    }
+
+    @Override public void submitScore(Activity act, String leaderboardId, long score, ScoreOutbox.Done done) {
+        delegate.submitScore(act, leaderboardId, score, done);
+    }
+
+    @Override public void unlock(Activity act, String achievementId, ScoreOutbox.Done done) {
+        delegate.unlock(act, achievementId, done);
+    }
+
+    @Override public void showLeaderboards(Activity act) { remember(act); delegate.showLeaderboards(act); }
+    @Override public void showAchievements(Activity act) { remember(act); delegate.showAchievements(act); }
+
+    private void remember(Activity act) {
+        if (act != null && act != activity.get()) activity = new WeakReference<>(act);
+    }
+
+    // ===== ScoreOutbox.Transport (outbox thread) =====
+    @Override public boolean isReady() {
+        Activity a = activity.get();
+        return online && a != null && !a.isFinishing() && delegate.isSignedIn();
+    }
+
+    @Override public void submitScore(String leaderboardId, long score, ScoreOutbox.Done done) {
+        main.post(() -> {
+            Activity a = activity.get();
+            if (a == null) { io.post(() -> done.onResult(false)); return; }
+            delegate.submitScore(a, leaderboardId, score, ok -> io.post(() -> done.onResult(ok)));
+        });
+    }
+
+    @Override public void unlock(String achievementId, ScoreOutbox.Done done) {
+        main.post(() -> {
+            Activity a = activity.get();
+            if (a == null) { io.post(() -> done.onResult(false)); return; }
+            delegate.unlock(a, achievementId, ok -> io.post(() -> done.onResult(ok)));
+        });
+    }
+}
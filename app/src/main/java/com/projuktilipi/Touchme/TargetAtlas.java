@@ -0,0 +1,131 @@
+package com.projuktilipi.Touchme;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Pre-rasterised target sprites in one bitmap, so a frame draws targets as bitmap blits
+ * from a single texture (which the hardware renderer batches) instead of two
+ * anti-aliased circles each.
+ *
+ * Layout: one row per radius bucket; in each row one filled disc per palette colour,
+ * then the white ring. Sprites are drawn at the bucket's largest radius and scaled down
+ * to the exact radius; scale-in and the ring fade are the destination rect and paint alpha.
+ *
+ * The bucket count is whatever fits {@code maxBytes}; fewer buckets = coarser radius steps.
+ * Built lazily from the draw thread; {@link #invalidate()} on size/config/theme change.
+ */
+public class TargetAtlas {
+
+    static final float RING_GAP = 6f;      // ring radius = r + 6 (as before)
+    static final float RING_STROKE = 6f;
+    private static final int PAD = 2;      // keeps filtering from bleeding between cells
+    private static final int MIN_BUCKET_STEP = 2;
+
+    private final long maxBytes;
+    private final Paint spritePaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG);
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    private Bitmap bitmap;
+    private boolean dirty = true;
+    private boolean usable = false;
+    private int minR, maxR;
+    private int[] palette = new int[0];
+    private int buckets, bucketStep, cell;
+
+    public TargetAtlas(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public void invalidate() { dirty = true; }
+
+    /** Rebuild if invalidated or if the radius range / palette changed. @return false if unusable */
+    public boolean ensure(int minRadius, int maxRadius, int[] colors) {
+        if (!dirty && minRadius == minR && maxRadius == maxR && colors == palette) return usable;
+        release();
+        dirty = false;
+        usable = false;
+        minR = Math.max(1, Math.min(minRadius, maxRadius));
+        maxR = Math.max(minR, maxRadius);
+        palette = colors;
+
+        int cols = colors.length + 1; // + ring
+        cell = 2 * (int) Math.ceil(maxR + RING_GAP + RING_STROKE / 2f) + 2 * PAD;
+        long rowBytes = (long) cols * cell * cell * 4;
+        int affordable = (int) Math.max(0, maxBytes / rowBytes);
+        if (affordable == 0) return false; // caller falls back to plain circles
+        int wanted = (maxR - minR) / MIN_BUCKET_STEP + 1;
+        buckets = Math.max(1, Math.min(wanted, affordable));
+        int span = maxR - minR + 1;
+        bucketStep = Math.max(1, (span + buckets - 1) / buckets);
+
+        try {
+            bitmap = Bitmap.createBitmap(cols * cell, buckets * cell, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            return false;
+        }
+        Canvas c = new Canvas(bitmap);
+        Paint fill = new Paint(Paint.ANTI_ALIAS_FLAG);
+        fill.setStyle(Paint.Style.FILL);
+        Paint ring = new Paint(Paint.ANTI_ALIAS_FLAG);
+        ring.setStyle(Paint.Style.STROKE);
+        ring.setStrokeWidth(RING_STROKE);
+        ring.setColor(Color.WHITE);
+        for (int b = 0; b < buckets; b++) {
+            float r = bucketRadius(b);
+            float cy = b * cell + cell / 2f;
+            for (int k = 0; k < colors.length; k++) {
+                fill.setColor(colors[k]);
+                c.drawCircle(k * cell + cell / 2f, cy, r, fill);
+            }
+            c.drawCircle(colors.length * cell + cell / 2f, cy, r + RING_GAP, ring);
+        }
+        usable = true;
+        return true;
+    }
+
+    // bucket b covers radii [minR + b*step, minR + (b+1)*step - 1]
+    private int bucketOf(float r) {
+        int b = (int) ((r - minR) / bucketStep);
+        return b < 0 ? 0 : (b >= buckets ? buckets - 1 : b);
+    }
+
+    /** Largest radius a bucket covers; sprites are only ever scaled down. */
+    private float bucketRadius(int b) {
+        return Math.min(maxR, minR + (b + 1) * bucketStep - 1);
+    }
+
+    /** Fill sprite for palette entry {@code colorIndex} then its ring, both scaled by {@code scale}. */
+    public void drawTarget(Canvas canvas, float cx, float cy, float r, int colorIndex,
+                           float scale, int ringAlpha) {
+        int b = bucketOf(r);
+        float k = (r / bucketRadius(b)) * scale; // sprite → screen scale
+        float half = (cell / 2f) * k;
+        dst.set(cx - half, cy - half, cx + half, cy + half);
+
+        int top = b * cell;
+        src.set(colorIndex * cell, top, colorIndex * cell + cell, top + cell);
+        spritePaint.setAlpha(255);
+        canvas.drawBitmap(bitmap, src, dst, spritePaint);
+
+        if (ringAlpha <= 0) return;
+        int ringLeft = palette.length * cell;
+        src.set(ringLeft, top, ringLeft + cell, top + cell);
+        spritePaint.setAlpha(ringAlpha);
+        canvas.drawBitmap(bitmap, src, dst, spritePaint);
+    }
+
+    public long byteCount() { return bitmap == null ? 0 : bitmap.getByteCount(); }
+    public int bucketCount() { return bitmap == null ? 0 : buckets; }
+
+    public void release() {
+        if (bitmap != null) bitmap.recycle();
+        bitmap = null;
+        usable = false;
+    }
+}
@@ -1,17 +1,37 @@
 package com.projuktilipi.Touchme;
 
-import android.content.SharedPreferences;
-
 public final class ThemeManager {
-    private static final String KEY_THEME = "theme";
+    public static final SettingsStore.Key<Integer> KEY_THEME = SettingsStore.Key.integer("theme", 0);
     public enum Theme { CLASSIC, SUNSET, OCEAN }
 
-    public static Theme getTheme(SharedPreferences p) {
-        int ord = p.getInt(KEY_THEME, Theme.CLASSIC.ordinal());
-        return Theme.values()[ord];
+    public static Theme getTheme(SettingsStore s) {
+        int ord = s.get(KEY_THEME);
+        Theme[] all = Theme.values();
+        return ord >= 0 && ord < all.length ? all[ord] : Theme.CLASSIC;
+    }
+
+    public static void setTheme(SettingsStore s, Theme t) {
+        s.set(KEY_THEME, t.ordinal());
     }
 
-    public static void setTheme(SharedPreferences p, Theme t) {
-        p.edit().putInt(KEY_THEME, t.ordinal()).apply();
+    // Fixed palettes so target sprites can be pre-rendered per colour (see TargetAtlas).
+    private static final int[] CLASSIC_PALETTE = {
+            0xFFF06292, 0xFFBA68C8, 0xFF9575CD, 0xFFFF80AB,
+            0xFFCE93D8, 0xFFF48FB1, 0xFFB388FF, 0xFFEA80FC };
+    private static final int[] SUNSET_PALETTE = {
+            0xFFFF7043, 0xFFFFA726, 0xFFFFCA28, 0xFFEF5350,
+            0xFFFF8A65, 0xFFEC407A, 0xFFFFB74D, 0xFFF4511E };
+    private static final int[] OCEAN_PALETTE = {
+            0xFF4FC3F7, 0xFF4DD0E1, 0xFF4DB6AC, 0xFF64B5F6,
+            0xFF81D4FA, 0xFF26C6DA, 0xFF7986CB, 0xFF80CBC4 };
+
+    /** Target colours for a theme. Shared arrays: don't modify. */
+    public static int[] palette(Theme t) {
+        switch (t) {
+            case SUNSET: return SUNSET_PALETTE;
+            case OCEAN:  return OCEAN_PALETTE;
+            case CLASSIC:
+            default:     return CLASSIC_PALETTE;
+        }
     }
 }
@@ -1,11 +1,10 @@
 package com.projuktilipi.Touchme;
 
 import android.app.Application;
-import com.google.android.gms.games.PlayGamesSdk;
 
 public class TouchMeApp extends Application {
     @Override public void onCreate() {
         super.onCreate();
-        PlayGamesSdk.initialize(this);
+        // PlayGamesSdk.initialize runs after the first frame (MainActivity's startup graph)
     }
 }
@@ -0,0 +1,29 @@
+package com.projuktilipi.Touchme;
+
+import java.util.Random;
+
+/** Shared fixtures for the benchmarks. */
+final class Benchmarks {
+
+    static final GameSimulation.Listener SILENT = new GameSimulation.Listener() {
+        @Override public void onTargetHit(int points, int streak, boolean fever) { }
+        @Override public void onTargetExpired() { }
+        @Override public void onTapMissed() { }
+        @Override public void onRoundEnd() { }
+        @Override public void onAlarm(int id) { }
+    };
+
+    private Benchmarks() { }
+
+    /** {@code n} targets of radius 42-80 px scattered over a w x h field, one in seven moving. */
+    static TargetStore fill(int n, int w, int h, long seed) {
+        Random rnd = new Random(seed);
+        TargetStore s = new TargetStore(64);
+        for (int i = 0; i < n; i++) {
+            float r = 42 + rnd.nextInt(39);
+            float v = (i % 7 == 0) ? 120f : 0f;
+            s.add(r + rnd.nextFloat() * (w - 2 * r), r + rnd.nextFloat() * (h - 2 * r), r, v, -v, i, 0);
+        }
+        return s;
+    }
+}
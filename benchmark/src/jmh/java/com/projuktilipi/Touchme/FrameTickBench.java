@@ -0,0 +1,66 @@
+package com.projuktilipi.Touchme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One display frame of simulation: what used to be GameView's frameTick.
+ * {@code frame} runs the whole GameSimulation (spawn, move, cull, grid, particles) at a
+ * steady state; {@code updateAndCull} is just the per-step target work at a fixed count.
+ */
+@State(Scope.Thread)
+public class FrameTickBench {
+
+    private static final long MS = 1_000_000L;
+    private static final long FRAME = 16_666_667L; // 60 Hz display → 2 fixed steps
+    private static final int W = 1080, H = 2280;
+
+    private GameSimulation sim;
+    private long t;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sim = new GameSimulation(new FixedStepClock(), Benchmarks.SILENT);
+        sim.setConfig(GameConfig.forMode(GameMode.HARDCORE));
+        sim.setSize(W, H);
+        t = 0;
+        sim.start(t, 1);
+        for (int i = 0; i < 600; i++) sim.step(t += FRAME); // reach the spawn/expiry steady state
+    }
+
+    @State(Scope.Thread)
+    public static class Targets {
+        @Param({"8", "32", "64"})
+        public int targetCount;
+
+        TargetStore store;
+        SpatialGrid grid;
+        long now;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            store = Benchmarks.fill(targetCount, W, H, 7);
+            grid = new SpatialGrid(store.capacity());
+            grid.configure(W, H, 160f);
+            now = 0;
+        }
+    }
+
+    @Benchmark
+    public int frame() {
+        return sim.step(t += FRAME);
+    }
+
+    /** Nothing expires (born at 0, life far away), so the count stays at targetCount. */
+    @Benchmark
+    public int updateAndCull(Targets s) {
+        s.store.integrate(W, H, FixedStepClock.DEFAULT_STEP_NANOS / 1e9f);
+        int culled = s.store.cullExpired(s.now += 8 * MS, Long.MAX_VALUE / 2);
+        s.grid.rebuild(s.store);
+        return culled;
+    }
+}
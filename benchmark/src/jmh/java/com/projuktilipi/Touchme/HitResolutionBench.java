@@ -0,0 +1,58 @@
+package com.projuktilipi.Touchme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/** Resolving one tap: spatial grid vs. the linear scan it replaced, by live target count. */
+@State(Scope.Thread)
+public class HitResolutionBench {
+
+    private static final int W = 1080, H = 2280;
+    private static final int TAPS = 1024; // power of two
+
+    @Param({"4", "16", "64"})
+    public int targetCount;
+
+    private TargetStore store;
+    private SpatialGrid grid;
+    private final float[] tx = new float[TAPS], ty = new float[TAPS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = Benchmarks.fill(targetCount, W, H, 11);
+        grid = new SpatialGrid(store.capacity());
+        grid.configure(W, H, 160f);
+        grid.rebuild(store);
+        // half the taps land on a target, half anywhere
+        Random rnd = new Random(3);
+        for (int i = 0; i < TAPS; i++) {
+            if ((i & 1) == 0) {
+                int k = rnd.nextInt(store.size());
+                tx[i] = store.cx[k] + rnd.nextFloat() * 20 - 10;
+                ty[i] = store.cy[k] + rnd.nextFloat() * 20 - 10;
+            } else {
+                tx[i] = rnd.nextFloat() * W;
+                ty[i] = rnd.nextFloat() * H;
+            }
+        }
+    }
+
+    @Benchmark
+    public int grid() {
+        int i = next++ & (TAPS - 1);
+        return grid.query(store, tx[i], ty[i]);
+    }
+
+    @Benchmark
+    public int linear() {
+        int i = next++ & (TAPS - 1);
+        return store.hitTest(tx[i], ty[i]);
+    }
+}
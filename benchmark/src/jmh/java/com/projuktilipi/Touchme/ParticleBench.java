@@ -0,0 +1,55 @@
+package com.projuktilipi.Touchme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Hit explosions: stepping a loaded particle system, emitting into it, and filling draw buffers. */
+@State(Scope.Thread)
+public class ParticleBench {
+
+    private static final long MS = 1_000_000L;
+    private static final long LIFE = 380 * MS;
+
+    /** live bursts kept in flight (32 = full budget at 12 particles each) */
+    @Param({"4", "32"})
+    public int bursts;
+
+    private ParticleSystem ps;
+    private final SplitRandom rnd = new SplitRandom(5);
+    private final float[] points = new float[2 * ParticleSystem.PER_BURST];
+    private long now;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ps = new ParticleSystem(384, LIFE);
+        now = 0;
+        for (int i = 0; i < bursts; i++) ps.emit(500, 900, i, now, rnd);
+    }
+
+    /** Time doesn't move, so nothing expires: a pure integrate over every live particle. */
+    @Benchmark
+    public int step() {
+        ps.step(now, 1f / 120f);
+        return ps.liveParticles();
+    }
+
+    /** Emit one burst and retire the oldest: constant load, exercises the budget path. */
+    @Benchmark
+    public int emit() {
+        now += LIFE / bursts;
+        ps.emit(500, 900, 1, now, rnd);
+        ps.step(now, 0f);
+        return ps.liveBursts();
+    }
+
+    @Benchmark
+    public int fillPoints() {
+        int n = 0;
+        for (int b = ps.firstBurst(), end = ps.endBurst(); b != end; b++) n += ps.fillPoints(b, 0.004f, points);
+        return n;
+    }
+}
@@ -0,0 +1,32 @@
+package com.projuktilipi.Touchme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** ComboMeter bookkeeping and DifficultyCurve evaluation, both called per hit/spawn. */
+@State(Scope.Thread)
+public class ScoringBench {
+
+    private final ComboMeter combo = new ComboMeter();
+    private long nowMs = 0;
+    private int score = 0;
+
+    /** A hit every 300 ms with a frame update between: streak climbs into fever and stays. */
+    @Benchmark
+    public int comboHitAndUpdate() {
+        nowMs += 300;
+        combo.onHit(nowMs);
+        combo.update(nowMs + 8);
+        return combo.pointsForHit();
+    }
+
+    @Benchmark
+    public void difficultyCurve(Blackhole bh) {
+        int s = score = (score + 1) & 1023;
+        bh.consume(DifficultyCurve.spawnIntervalMs(550, s));
+        bh.consume(DifficultyCurve.targetLifeMs(900, s));
+        bh.consume(DifficultyCurve.radiusPx(42, 80, s));
+    }
+}
@@ -0,0 +1,48 @@
+package com.projuktilipi.Touchme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** SFX mixing: one 256-frame device burst with N voices playing, and a fever-burst retrigger. */
+@State(Scope.Thread)
+public class SfxMixerBench {
+
+    private static final int BURST = 256;
+
+    /** voices kept playing (32 = every voice busy) */
+    @Param({"1", "8", "32"})
+    public int voices;
+
+    private SfxMixer mixer;
+    private final short[] out = new short[BURST * 2];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        short[] s = new short[48_000 * 2]; // 1 s, long enough to never finish mid-trial
+        SplitRandom rnd = new SplitRandom(3);
+        for (int i = 0; i < s.length; i++) s[i] = (short) (rnd.nextInt(20_000) - 10_000);
+        mixer = new SfxMixer(1, 32, BURST);
+        mixer.setClip(0, new PcmClip(s), 1);
+        for (int i = 0; i < voices; i++) mixer.play(0, 0.5f);
+        mixer.mix(out, BURST);
+    }
+
+    /** Voices restart when they run out, so the load stays at {@code voices}. */
+    @Benchmark
+    public int mix() {
+        int active = mixer.mix(out, BURST);
+        for (int i = active; i < voices; i++) mixer.play(0, 0.5f);
+        return active;
+    }
+
+    /** A tap per burst on top of the load; at 32 voices every one of them steals. */
+    @Benchmark
+    public int mixWithSteal() {
+        mixer.play(0, 0.5f);
+        return mixer.mix(out, BURST);
+    }
+}
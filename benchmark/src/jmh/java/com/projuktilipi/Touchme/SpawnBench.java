@@ -0,0 +1,33 @@
+package com.projuktilipi.Touchme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Placing one target (radius from the curve, position/colour/velocity from the RNG streams). */
+@State(Scope.Thread)
+public class SpawnBench {
+
+    private GameSimulation sim;
+    private TargetStore targets;
+    private long now;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sim = new GameSimulation(new FixedStepClock(), Benchmarks.SILENT);
+        sim.setConfig(GameConfig.forMode(GameMode.TIME_ATTACK));
+        sim.setSize(1080, 2280);
+        sim.start(0, 1);
+        targets = sim.targets();
+    }
+
+    @Benchmark
+    public int spawn() {
+        sim.spawnTarget(++now);
+        int n = targets.size();
+        targets.removeAt(n - 1); // keep the store from filling up
+        return n;
+    }
+}
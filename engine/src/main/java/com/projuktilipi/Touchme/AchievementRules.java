@@ -0,0 +1,130 @@
+package com.projuktilipi.Touchme;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Achievements as threshold rules ("streak ≥ 10", "score ≥ 50") over a few game stats,
+ * checked incrementally as the stats change.
+ *
+ * {@link Builder#build} sorts each stat's rules by threshold. {@link #update} then costs one
+ * comparison against the lowest threshold still locked for that stat, so calling it on every
+ * hit is free until something actually unlocks. Each rule fires once: unlocked rules are
+ * remembered, and {@link #unlocked}/{@link #restore} carry that set across launches as a
+ * comma-separated list of keys.
+ *
+ * Not thread-safe: update from the thread that owns the game events.
+ */
+public class AchievementRules {
+
+    public static final int STREAK = 0, SCORE = 1;
+    private static final int STATS = 2;
+
+    public interface Listener {
+        /**
+         * Rule {@code rule} (its index in build order) was just reached.
+         * @return false if it couldn't be delivered yet: it stays locked and fires again
+         */
+        boolean onUnlocked(int rule, String key);
+    }
+
+    public static final class Builder {
+        private final List<String> keys = new ArrayList<>();
+        private final List<Integer> stats = new ArrayList<>();
+        private final List<Long> thresholds = new ArrayList<>();
+
+        /** Unlock {@code key} once {@code stat} reaches {@code threshold}. */
+        public Builder rule(String key, int stat, long threshold) {
+            if (stat < 0 || stat >= STATS) throw new IllegalArgumentException("stat " + stat);
+            keys.add(key);
+            stats.add(stat);
+            thresholds.add(threshold);
+            return this;
+        }
+
+        public AchievementRules build() { return new AchievementRules(this); }
+    }
+
+    private final String[] keys;
+    private final long[] threshold;
+    private final boolean[] unlocked;
+    private final int[][] order;   // per stat: rule indices by ascending threshold
+    private final int[] cursor;    // per stat: position in order of the first locked rule
+    private final long[] next;     // per stat: that rule's threshold, or MAX_VALUE
+
+    private AchievementRules(Builder b) {
+        int n = b.keys.size();
+        keys = b.keys.toArray(new String[0]);
+        threshold = new long[n];
+        unlocked = new boolean[n];
+        int[] perStat = new int[STATS];
+        for (int i = 0; i < n; i++) {
+            threshold[i] = b.thresholds.get(i);
+            perStat[b.stats.get(i)]++;
+        }
+        order = new int[STATS][];
+        for (int s = 0; s < STATS; s++) order[s] = new int[perStat[s]];
+        int[] fill = new int[STATS];
+        Integer[] byThreshold = new Integer[n];
+        for (int i = 0; i < n; i++) byThreshold[i] = i;
+        Arrays.sort(byThreshold, (x, y) -> Long.compare(threshold[x], threshold[y]));
+        for (int i : byThreshold) {
+            int s = b.stats.get(i);
+            order[s][fill[s]++] = i;
+        }
+        cursor = new int[STATS];
+        next = new long[STATS];
+        for (int s = 0; s < STATS; s++) advance(s);
+    }
+
+    public int size() { return keys.length; }
+    public String key(int rule) { return keys[rule]; }
+    public boolean isUnlocked(int rule) { return unlocked[rule]; }
+
+    /** Mark the keys in {@code csv} (from {@link #unlocked}) as done; unknown keys are ignored. */
+    public void restore(String csv) {
+        for (String k : csv.split(",")) {
+            for (int i = 0; i < keys.length; i++) if (keys[i].equals(k)) unlocked[i] = true;
+        }
+        for (int s = 0; s < STATS; s++) {
+            cursor[s] = 0;
+            advance(s);
+        }
+    }
+
+    /** Unlocked keys, comma-separated, in build order. */
+    public String unlocked() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (!unlocked[i]) continue;
+            if (sb.length() > 0) sb.append(',');
+            sb.append(keys[i]);
+        }
+        return sb.toString();
+    }
+
+    /** {@code stat} is now {@code value}. @return rules unlocked by this call */
+    public int update(int stat, long value, Listener listener) {
+        if (value < next[stat]) return 0;
+        int fired = 0;
+        int[] o = order[stat];
+        for (int p = cursor[stat]; p < o.length && threshold[o[p]] <= value; p++) {
+            int rule = o[p];
+            if (unlocked[rule]) continue;
+            if (!listener.onUnlocked(rule, keys[rule])) continue;
+            unlocked[rule] = true;
+            fired++;
+        }
+        advance(stat);
+        return fired;
+    }
+
+    private void advance(int s) {
+        int[] o = order[s];
+        int p = cursor[s];
+        while (p < o.length && unlocked[o[p]]) p++;
+        cursor[s] = p;
+        next[s] = p < o.length ? threshold[o[p]] : Long.MAX_VALUE;
+    }
+}
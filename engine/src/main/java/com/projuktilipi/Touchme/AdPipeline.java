@@ -0,0 +1,139 @@
+package com.projuktilipi.Touchme;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a few full-screen ads of each kind loaded ahead of time, so showing one never waits
+ * on the network.
+ *
+ * Each kind has a small ready queue. Ads older than the time-to-live are thrown away
+ * instead of shown; networks stop paying for stale ads. {@link #refill} starts at most one
+ * load per kind. The app calls it at quiet moments (pause, results screen, menu), never
+ * mid-round. A failed load backs off exponentially before the next refill may try again,
+ * and a success resets the delay. {@link #take} just pops what's there, or returns null.
+ *
+ * The ad network sits behind {@link Loader}; ads are opaque objects. Single-threaded: call
+ * everything, and deliver {@link Loaded} results, on one thread (the main thread with AdMob).
+ */
+public class AdPipeline {
+
+    public static final int INTERSTITIAL = 0, REWARDED = 1;
+    private static final int KINDS = 2;
+
+    /** Starts one ad load; reports exactly once through {@code done}, on the pipeline's thread. */
+    public interface Loader {
+        void load(int kind, Loaded done);
+    }
+
+    public interface Loaded {
+        void onLoaded(Object ad);
+        void onFailed();
+    }
+
+    /** Milliseconds on any monotonic clock. */
+    public interface Clock {
+        long nowMs();
+    }
+
+    private static final class Ready {
+        final Object ad;
+        final long loadedAt;
+        Ready(Object ad, long loadedAt) { this.ad = ad; this.loadedAt = loadedAt; }
+    }
+
+    private final Loader loader;
+    private final Clock clock;
+    private final long ttlMs, backoffBaseMs, backoffMaxMs;
+    private final int[] capacity = new int[KINDS];
+    private final List<ArrayDeque<Ready>> ready = new ArrayList<>(KINDS); // by kind
+    private final boolean[] loading = new boolean[KINDS];
+    private final long[] retryAt = new long[KINDS];
+    private final long[] backoff = new long[KINDS];
+    private final int[] expired = new int[KINDS];
+    private int generation; // bumped by clear(): results of older loads are ignored
+
+    public AdPipeline(Loader loader, Clock clock, int interstitials, int rewarded,
+                      long ttlMs, long backoffBaseMs, long backoffMaxMs) {
+        this.loader = loader;
+        this.clock = clock;
+        this.ttlMs = ttlMs;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        capacity[INTERSTITIAL] = interstitials;
+        capacity[REWARDED] = rewarded;
+        for (int k = 0; k < KINDS; k++) {
+            ready.add(new ArrayDeque<>());
+            backoff[k] = backoffBaseMs;
+        }
+    }
+
+    /** Quiet moment: top up every kind that's short, unless it's loading or backing off. */
+    public void refill() {
+        long nowMs = clock.nowMs();
+        for (int k = 0; k < KINDS; k++) {
+            dropExpired(k, nowMs);
+            if (loading[k] || nowMs < retryAt[k] || ready.get(k).size() >= capacity[k]) continue;
+            startLoad(k);
+        }
+    }
+
+    /** @return a fresh ad of {@code kind} to show now, or null if none is ready (never waits) */
+    public Object take(int kind) {
+        dropExpired(kind, clock.nowMs());
+        Ready r = ready.get(kind).pollFirst();
+        return r == null ? null : r.ad;
+    }
+
+    public boolean hasReady(int kind) {
+        dropExpired(kind, clock.nowMs());
+        return !ready.get(kind).isEmpty();
+    }
+
+    public int readyCount(int kind) { return ready.get(kind).size(); }
+    public boolean isLoading(int kind) { return loading[kind]; }
+    public int expiredCount(int kind) { return expired[kind]; }
+    /** Earliest time a refill may retry {@code kind} after a failure. */
+    public long retryAt(int kind) { return retryAt[kind]; }
+
+    /** Forget everything (ads removed): queued ads are dropped, late results ignored. */
+    public void clear() {
+        generation++;
+        for (int k = 0; k < KINDS; k++) {
+            ready.get(k).clear();
+            loading[k] = false;
+        }
+    }
+
+    private void startLoad(final int k) {
+        final int gen = generation;
+        loading[k] = true;
+        loader.load(k, new Loaded() {
+            boolean done;
+            @Override public void onLoaded(Object ad) {
+                if (done || gen != generation) return;
+                done = true;
+                loading[k] = false;
+                backoff[k] = backoffBaseMs;
+                retryAt[k] = 0;
+                if (ready.get(k).size() < capacity[k]) ready.get(k).addLast(new Ready(ad, clock.nowMs()));
+            }
+            @Override public void onFailed() {
+                if (done || gen != generation) return;
+                done = true;
+                loading[k] = false;
+                retryAt[k] = clock.nowMs() + backoff[k];
+                backoff[k] = Math.min(backoffMaxMs, backoff[k] * 2);
+            }
+        });
+    }
+
+    private void dropExpired(int k, long nowMs) {
+        ArrayDeque<Ready> q = ready.get(k);
+        while (!q.isEmpty() && nowMs - q.peekFirst().loadedAt >= ttlMs) {
+            q.pollFirst();
+            expired[k]++;
+        }
+    }
+}
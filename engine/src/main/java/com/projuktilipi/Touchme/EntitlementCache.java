@@ -0,0 +1,147 @@
+package com.projuktilipi.Touchme;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The products the player owns, as last verified with the store, answered from memory.
+ *
+ * The snapshot (product ids and when they were verified) lives in the {@link SettingsStore},
+ * so {@link #owns} is right from the first frame of a launch without waiting on the store
+ * connection. {@link #refreshIfStale} asks the {@link Source} for the owned set at most once
+ * per refresh interval, and retries a failed query no sooner than the retry interval. The
+ * answer replaces the snapshot, so refunds drop out as well. A purchase the app just
+ * completed is {@link #grant}ed right away.
+ *
+ * Thread-safe. The listener hears about each product whose ownership changed, on whichever
+ * thread delivered the change.
+ */
+public class EntitlementCache {
+
+    public static final SettingsStore.Key<String> OWNED = SettingsStore.Key.string("entitlements", "");
+    public static final SettingsStore.Key<Long> VERIFIED_AT = SettingsStore.Key.int64("entitlements_verified_at", 0L);
+
+    /** The store's view of what the player owns. */
+    public interface Source {
+        void queryOwned(Result result);
+    }
+
+    /** Reports exactly once. */
+    public interface Result {
+        void onOwned(Collection<String> products);
+        void onFailed();
+    }
+
+    public interface Listener {
+        void onEntitlementChanged(String product, boolean owned);
+    }
+
+    private final SettingsStore store;
+    private final Source source;
+    private final long refreshMs, retryMs;
+    private volatile Listener listener;
+
+    // Guarded by this
+    private final Set<String> owned = new LinkedHashSet<>();
+    private long verifiedAt;
+    private long attemptedAt = Long.MIN_VALUE / 2;
+    private boolean querying;
+
+    public EntitlementCache(SettingsStore store, Source source, long refreshMs, long retryMs) {
+        this.store = store;
+        this.source = source;
+        this.refreshMs = refreshMs;
+        this.retryMs = retryMs;
+        String csv = store.get(OWNED);
+        if (!csv.isEmpty()) for (String p : csv.split(",")) owned.add(p);
+        verifiedAt = store.get(VERIFIED_AT);
+    }
+
+    public void setListener(Listener l) { listener = l; }
+
+    public synchronized boolean owns(String product) { return owned.contains(product); }
+
+    /** Wall-clock millis of the last snapshot from the store; 0 if there never was one. */
+    public synchronized long verifiedAt() { return verifiedAt; }
+
+    /**
+     * Reconcile with the store if the snapshot is older than the refresh interval or there
+     * is none yet, and the last attempt is older than the retry interval.
+     * @return whether a query was started
+     */
+    public boolean refreshIfStale(long nowMs) {
+        synchronized (this) {
+            if (querying || nowMs - attemptedAt < retryMs) return false;
+            if (verifiedAt != 0 && nowMs - verifiedAt < refreshMs) return false;
+            querying = true;
+            attemptedAt = nowMs;
+        }
+        query(nowMs);
+        return true;
+    }
+
+    /** Reconcile now whatever the snapshot's age ("restore purchases"). @return false if one is running */
+    public boolean refresh(long nowMs) {
+        synchronized (this) {
+            if (querying) return false;
+            querying = true;
+            attemptedAt = nowMs;
+        }
+        query(nowMs);
+        return true;
+    }
+
+    /** A purchase just went through: owned from now on, until a refresh says otherwise. */
+    public void grant(String product) {
+        synchronized (this) {
+            if (!owned.add(product)) return;
+            save();
+        }
+        Listener l = listener;
+        if (l != null) l.onEntitlementChanged(product, true);
+    }
+
+    private void query(long startedMs) {
+        source.queryOwned(new Result() {
+            boolean done;
+            @Override public void onOwned(Collection<String> products) {
+                List<String> gained = new ArrayList<>(), lost = new ArrayList<>();
+                synchronized (EntitlementCache.this) {
+                    if (done) return;
+                    done = true;
+                    querying = false;
+                    for (String p : products) if (!owned.contains(p)) gained.add(p);
+                    for (String p : owned) if (!products.contains(p)) lost.add(p);
+                    owned.clear();
+                    owned.addAll(products);
+                    verifiedAt = startedMs;
+                    save();
+                }
+                Listener l = listener;
+                if (l == null) return;
+                for (String p : gained) l.onEntitlementChanged(p, true);
+                for (String p : lost) l.onEntitlementChanged(p, false);
+            }
+            @Override public void onFailed() {
+                synchronized (EntitlementCache.this) {
+                    if (done) return;
+                    done = true;
+                    querying = false;
+                }
+            }
+        });
+    }
+
+    private void save() {
+        StringBuilder sb = new StringBuilder();
+        for (String p : owned) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(p);
+        }
+        store.set(OWNED, sb.toString());
+        store.set(VERIFIED_AT, verifiedAt);
+    }
+}
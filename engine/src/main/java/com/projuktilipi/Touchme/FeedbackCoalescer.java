@@ -0,0 +1,60 @@
+package com.projuktilipi.Touchme;
+
+import java.util.Arrays;
+
+/**
+ * Merges feedback events (sounds, haptics) per frame. Any number of events on a channel
+ * between two {@link #flush}es become one dispatch carrying the count, so the receiver can
+ * scale intensity instead of stacking copies.
+ *
+ * Each channel also has a minimum interval. Events that arrive sooner stay pending (and
+ * keep merging) until the first flush after the interval has passed. Not thread-safe:
+ * record and flush from the thread that steps the game.
+ */
+public class FeedbackCoalescer {
+
+    public interface Sink {
+        void onFeedback(int channel, int count);
+    }
+
+    private final long[] minInterval;
+    private final long[] lastFired;
+    private final int[] pending;
+
+    /** One channel per interval; channel ids are the argument positions. */
+    public FeedbackCoalescer(long... minIntervalNanos) {
+        minInterval = minIntervalNanos.clone();
+        lastFired = new long[minInterval.length];
+        pending = new int[minInterval.length];
+        clear();
+    }
+
+    public void record(int channel) { pending[channel]++; }
+
+    public int pending(int channel) { return pending[channel]; }
+
+    /** Dispatch every channel that has events and is outside its interval. @return dispatches */
+    public int flush(long now, Sink sink) {
+        int fired = 0;
+        for (int c = 0; c < pending.length; c++) {
+            int n = pending[c];
+            if (n == 0 || now - lastFired[c] < minInterval[c]) continue;
+            pending[c] = 0;
+            lastFired[c] = now;
+            sink.onFeedback(c, n);
+            fired++;
+        }
+        return fired;
+    }
+
+    /** Drop pending events and forget the intervals (new round). */
+    public void clear() {
+        Arrays.fill(pending, 0);
+        Arrays.fill(lastFired, Long.MIN_VALUE / 2);
+    }
+
+    /** Loudness for {@code count} merged events: 1 for one, up to 1.5 for three or more. */
+    public static float gain(int count) {
+        return Math.min(1.5f, 1f + 0.25f * (count - 1));
+    }
+}
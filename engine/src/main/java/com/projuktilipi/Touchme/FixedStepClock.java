@@ -0,0 +1,90 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * Turns vsync timestamps into a whole number of fixed simulation steps plus an
+ * interpolation fraction for rendering, so gameplay speed doesn't depend on the
+ * display's refresh rate.
+ *
+ * Simulation time is virtual: it only moves inside {@link #advance(long)}, so a
+ * pause is just "stop calling advance, then {@link #resync(long)}".
+ *
+ * Usage per frame:
+ * <pre>
+ *   int n = clock.advance(frameTimeNanos);
+ *   for (int i = 0; i &lt; n; i++) update(clock.step());
+ *   draw(..., clock.renderTime(), clock.alpha());
+ * </pre>
+ */
+public class FixedStepClock {
+
+    /** 120 Hz: one step per frame on 120 Hz panels, two on 60 Hz. */
+    public static final long DEFAULT_STEP_NANOS = 1_000_000_000L / 120;
+
+    private final long stepNanos;
+    private final int maxStepsPerFrame;
+
+    private long lastFrame = 0;
+    private long accumulator = 0;
+    private long simTime = 0;
+    private long dropped = 0;
+
+    public FixedStepClock() { this(DEFAULT_STEP_NANOS, 8); }
+
+    /** @param maxStepsPerFrame cap after a long stall; time beyond it is dropped, not simulated */
+    public FixedStepClock(long stepNanos, int maxStepsPerFrame) {
+        this.stepNanos = stepNanos;
+        this.maxStepsPerFrame = Math.max(1, maxStepsPerFrame);
+    }
+
+    /** Start over with simulation time = {@code frameNanos}. */
+    public void reset(long frameNanos) {
+        lastFrame = frameNanos;
+        accumulator = 0;
+        simTime = frameNanos;
+    }
+
+    /** Continue from the current simulation time after a gap (pause) without simulating the gap. */
+    public void resync(long frameNanos) {
+        lastFrame = frameNanos;
+    }
+
+    /** @return how many {@link #step()} calls to make for this frame */
+    public int advance(long frameNanos) {
+        long dt = frameNanos - lastFrame;
+        if (dt <= 0) return 0; // already there: a tap may step ahead of the frame's vsync time
+        lastFrame = frameNanos;
+        accumulator += dt;
+        long n = accumulator / stepNanos;
+        if (n > maxStepsPerFrame) {
+            dropped += (n - maxStepsPerFrame) * stepNanos;
+            accumulator -= (n - maxStepsPerFrame) * stepNanos;
+            n = maxStepsPerFrame;
+        }
+        return (int) n;
+    }
+
+    /** Consume one step. @return simulation time at the end of that step */
+    public long step() {
+        accumulator -= stepNanos;
+        simTime += stepNanos;
+        return simTime;
+    }
+
+    public long stepNanos() { return stepNanos; }
+    public float stepSeconds() { return stepNanos / 1_000_000_000f; }
+
+    /** Simulation time of the last completed step. */
+    public long simTime() { return simTime; }
+
+    /** Fraction [0,1) of the next step already elapsed; blend previous → current state by this. */
+    public float alpha() {
+        float a = (float) accumulator / (float) stepNanos;
+        return a < 0f ? 0f : (a >= 1f ? 0.999f : a);
+    }
+
+    /** Interpolated time matching {@link #alpha()}; use for fades and input timestamps. */
+    public long renderTime() { return simTime + Math.max(0, accumulator); }
+
+    /** Total wall time skipped because a frame needed more than maxStepsPerFrame steps. */
+    public long droppedNanos() { return dropped; }
+}
@@ -0,0 +1,65 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * Frame-time histogram: percentiles, jank and dropped-frame counts for a run of frames.
+ *
+ * Durations go into a {@link LatencyHistogram}, so recording is O(1) with no allocation
+ * and percentiles are exact to a bucket. A frame is janky when it takes longer than one
+ * refresh period; each whole extra period it takes counts as a dropped frame (a 40 ms
+ * frame at 60 Hz is one jank and two drops).
+ */
+public class FrameStats {
+
+    public static final int MAX_MS = LatencyHistogram.MAX_MS;
+
+    private final LatencyHistogram times = new LatencyHistogram();
+    private long periodNanos = 1_000_000_000L / 60;
+    private int janky;
+    private int dropped;
+
+    /** Refresh period the frames are judged against (16.6 ms at 60 Hz, 8.3 ms at 120 Hz). */
+    public void setRefreshPeriod(long nanos) {
+        if (nanos > 0) periodNanos = nanos;
+    }
+    public long refreshPeriod() { return periodNanos; }
+
+    public void record(long frameNanos) {
+        if (frameNanos < 0) return;
+        times.record(frameNanos);
+        if (frameNanos > periodNanos) {
+            janky++;
+            dropped += (int) ((frameNanos - 1) / periodNanos);
+        }
+    }
+
+    public void reset() {
+        times.reset();
+        janky = 0;
+        dropped = 0;
+    }
+
+    /** Add {@code other}'s frames to this one (refresh period is kept). */
+    public void addAll(FrameStats other) {
+        times.addAll(other.times);
+        janky += other.janky;
+        dropped += other.dropped;
+    }
+
+    public int count() { return times.count(); }
+    public int janky() { return janky; }
+    public int dropped() { return dropped; }
+    public long maxNanos() { return times.maxNanos(); }
+    public long meanNanos() { return times.meanNanos(); }
+
+    /** See {@link LatencyHistogram#percentileNanos}. */
+    public long percentileNanos(double p) { return times.percentileNanos(p); }
+
+    /** The stats as JSON members (no braces, so callers can add their own), times in ms. */
+    public void appendJson(StringBuilder sb) {
+        sb.append("\"frames\":").append(times.count())
+          .append(",\"refresh_ms\":").append(LatencyHistogram.ms(periodNanos));
+        times.appendTimes(sb);
+        sb.append(",\"janky\":").append(janky)
+          .append(",\"dropped\":").append(dropped);
+    }
+}
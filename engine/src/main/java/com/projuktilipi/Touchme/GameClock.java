@@ -0,0 +1,43 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * Monotonic game time that stands still while paused. Everything that ages (targets,
+ * particles, floating text, round and ad timers) reads this instead of the wall clock,
+ * so pausing and resuming are O(1): nothing has to be shifted.
+ *
+ * Real time goes in as arguments (Choreographer frame time or System.nanoTime(), same
+ * timebase), which keeps the class free of any clock and easy to drive in tests.
+ */
+public class GameClock {
+
+    private long origin;      // real time of game time 0
+    private long pausedTotal; // real time spent paused since start
+    private long pausedAt;
+    private boolean paused;
+
+    /** Game time 0 is now. */
+    public void start(long realNanos) {
+        origin = realNanos;
+        pausedTotal = 0;
+        paused = false;
+    }
+
+    public void pause(long realNanos) {
+        if (paused) return;
+        paused = true;
+        pausedAt = realNanos;
+    }
+
+    public void resume(long realNanos) {
+        if (!paused) return;
+        paused = false;
+        if (realNanos > pausedAt) pausedTotal += realNanos - pausedAt;
+    }
+
+    public boolean isPaused() { return paused; }
+
+    /** Game time at real time {@code realNanos}; frozen at the pause instant while paused. */
+    public long now(long realNanos) {
+        return (paused ? pausedAt : realNanos) - origin - pausedTotal;
+    }
+}
@@ -12,13 +12,25 @@ public class GameConfig {
     /** NEW: divides score when ramping difficulty so Chill/Endless ramp slower. */
     public final int scaleDiv;
 
+    /**
+     * Most that moving targets are drawn ahead of the simulation to make up for display
+     * latency (see {@link PredictionHorizon}); 0 turns prediction off.
+     */
+    public final int predictionMs;
+
     /** 7-arg constructor (legacy). Defaults scaleDiv = 1. */
     public GameConfig(int spawn, int life, int minR, int maxR, long roundMs, boolean chill, boolean failOnMiss) {
         this(spawn, life, minR, maxR, roundMs, chill, failOnMiss, 1);
     }
 
-    /** 8-arg constructor with explicit scaleDiv. */
+    /** 8-arg constructor with explicit scaleDiv. No prediction. */
     public GameConfig(int spawn, int life, int minR, int maxR, long roundMs, boolean chill, boolean failOnMiss, int scaleDiv) {
+        this(spawn, life, minR, maxR, roundMs, chill, failOnMiss, scaleDiv, 0);
+    }
+
+    /** 9-arg constructor with explicit prediction horizon. */
+    public GameConfig(int spawn, int life, int minR, int maxR, long roundMs, boolean chill, boolean failOnMiss,
+                      int scaleDiv, int predictionMs) {
         this.baseSpawnMs = spawn;
         this.baseLifeMs  = life;
         this.minRadius   = minR;
@@ -27,25 +39,26 @@ public class GameConfig {
         this.chill       = chill;
         this.failOnMiss  = failOnMiss;
         this.scaleDiv    = Math.max(1, scaleDiv);
+        this.predictionMs = Math.max(0, predictionMs);
     }
 
     public static GameConfig forMode(GameMode m) {
         switch (m) {
             case CHILL:
-                // Slower spawn, longer life, bigger targets, slow difficulty ramp
+                // Slower spawn, longer life, bigger targets, slow difficulty ramp; no prediction
                 return new GameConfig(650, 1200, 54, 90, 60_000L, true,  false, 2);
             case ENDLESS:
                 // Miss does nothing; ramp very slowly
-                return new GameConfig(600, 1000, 48, 90, Long.MAX_VALUE, true,  false, 3);
+                return new GameConfig(600, 1000, 48, 90, Long.MAX_VALUE, true,  false, 3, 32);
             case HARDCORE:
                 // Fast, miss ends; ramp fast
-                return new GameConfig(500, 900, 42, 80, Long.MAX_VALUE, false, true, 1);
+                return new GameConfig(500, 900, 42, 80, Long.MAX_VALUE, false, true, 1, 48);
             case STORY:
                 // LevelManager will override numbers; keep defaults reasonable
-                return new GameConfig(580, 950, 46, 86, 45_000L, false, false, 2);
+                return new GameConfig(580, 950, 46, 86, 45_000L, false, false, 2, 48);
             case TIME_ATTACK:
             default:
-                return new GameConfig(550, 900, 42, 80, 60_000L, false, false, 1);
+                return new GameConfig(550, 900, 42, 80, 60_000L, false, false, 1, 48);
         }
     }
 }
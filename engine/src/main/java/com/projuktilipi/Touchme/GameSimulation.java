@@ -0,0 +1,409 @@
+package com.projuktilipi.Touchme;
+
+import java.util.Arrays;
+
+/**
+ * The game rules without any Android types: spawning, target lifetime and movement,
+ * hit resolution, streak/fever and hit explosions. Renderers read {@link #targets()}
+ * and {@link #particles()}; feedback goes out through {@link Listener}.
+ *
+ * Time comes only from the injected {@link FixedStepClock} and randomness only from the
+ * run seed given to {@link #start}, split into one {@link SplitRandom} stream per
+ * subsystem (spawns, colours, particles). A headless run is reproducible and runs as fast
+ * as the JVM can step it:
+ * <pre>
+ *   GameSimulation sim = new GameSimulation(new FixedStepClock(), listener);
+ *   sim.setSize(1080, 1920);
+ *   sim.start(0, 42);
+ *   for (long t = 0; t &lt; 60_000_000_000L; t += 16_666_667L) sim.step(t);
+ * </pre>
+ *
+ * Deadlines (target expiry, the streak/fever window, round end and the caller's alarms)
+ * live on a {@link TimerWheel} in simulation time. They fire in the fixed step that
+ * reaches them, and a pause costs nothing: simulation time simply doesn't move.
+ *
+ * Every resolved tap is logged, so a finished round can be captured as a {@link Replay}
+ * and checked with {@link ReplayVerifier}. The score driving the difficulty ramp is the
+ * simulation's own, so the Activity being a frame late with its count can't change a run.
+ *
+ * Not thread-safe: the owner decides which thread calls in.
+ */
+public class GameSimulation {
+
+    /** Feedback hooks; called synchronously from {@link #step} and {@link #tap}. */
+    public interface Listener {
+        void onTargetHit(int points, int streak, boolean fever);
+        /** a target expired while the mode fails on miss */
+        void onTargetExpired();
+        /** a tap hit nothing while the mode fails on miss */
+        void onTapMissed();
+        /** the round length given to {@link #start} ran out; the simulation has stopped */
+        void onRoundEnd();
+        /** an alarm set with {@link #setAlarm} came due */
+        void onAlarm(int id);
+    }
+
+    // Far more than can be alive at once (spawn >= 280 ms, life <= ~1.2 s)
+    private static final int MAX_TARGETS = 64;
+    // Exact cap: 32 full 12-particle bursts. Past half of it, fever tapping thins new bursts
+    private static final int PARTICLE_BUDGET = 384;
+    /** Alarm ids are 0 until this. */
+    public static final int MAX_ALARMS = 8;
+
+    private static final long MS = 1_000_000L;
+    private static final long EXPLOSION_NANOS = 380 * MS;
+    // the old per-frame speeds at 60 Hz, as px per second
+    private static final float MOVE_SPEED = 2f * 60f;
+    private static final long STREAK_WINDOW = 1200 * MS;
+    /** Colours a target can get when nobody called {@link #setColorCount}. */
+    public static final int DEFAULT_COLOR_COUNT = 8;
+
+    // RNG streams, all derived from the run seed
+    private static final int STREAM_SPAWN = 0;
+    private static final int STREAM_COLOR = 1;
+    private static final int STREAM_FX = 2;
+
+    // Timer kinds
+    private static final int TIMER_EXPIRE = 0; // data: target handle
+    private static final int TIMER_STREAK = 1;
+    private static final int TIMER_ROUND = 2;
+    private static final int TIMER_ALARM = 3;  // data: alarm id
+
+    private final FixedStepClock clock;
+    private final Listener listener;
+    private final SplitRandom spawnRnd = new SplitRandom(0);
+    private final SplitRandom colorRnd = new SplitRandom(0);
+    private final SplitRandom fxRnd = new SplitRandom(0);
+    private long seed = 0;
+    private long startTime = 0;
+    private int startWidth = 0, startHeight = 0;
+
+    // Tap log for replays: sim-time offset and POS_SCALE fixed-point position
+    private long[] logTimes = new long[256];
+    private int[] logX = new int[256], logY = new int[256];
+    private int logSize = 0;
+
+    private final TargetStore targets = new TargetStore(MAX_TARGETS);
+    private final SpatialGrid grid = new SpatialGrid(MAX_TARGETS);
+    private final ParticleSystem particles = new ParticleSystem(PARTICLE_BUDGET, EXPLOSION_NANOS);
+    private final TimerWheel timers = new TimerWheel(MS, MAX_TARGETS + MAX_ALARMS + 2);
+    private final int[] alarmTimer = new int[MAX_ALARMS];
+    private final long[] alarmPeriod = new long[MAX_ALARMS];
+    private int streakTimer = -1;
+    private boolean ended = false;
+    private long roundEnd = 0; // 0: untimed
+
+    private long nextSpawnAt = 0;
+    private int colorCount = DEFAULT_COLOR_COUNT;
+
+    // Size
+    private int widthPx = 0;
+    private int heightPx = 0;
+
+    private GameConfig config = GameConfig.forMode(GameMode.TIME_ATTACK);
+    private int score = 0;
+
+    // Simple streak/fever
+    private int streak = 0;
+    private long lastHitAt = 0;
+    private boolean fever = false;
+
+    // Run summary for RunHistory
+    private int hits = 0, misses = 0, maxStreak = 0;
+
+    public GameSimulation(FixedStepClock clock, Listener listener) {
+        this.clock = clock;
+        this.listener = listener;
+        Arrays.fill(alarmTimer, -1);
+    }
+
+    public void setConfig(GameConfig cfg) {
+        this.config = cfg;
+        configureGrid();
+    }
+    public GameConfig config() { return config; }
+    public void setSize(int w, int h) {
+        widthPx = w; heightPx = h;
+        configureGrid();
+    }
+
+    /**
+     * Targets store a colour index in [0, n) (and bursts inherit it); the renderer maps it
+     * to a real colour. Live targets are folded into the new range.
+     */
+    public void setColorCount(int n) {
+        if (n <= 0) return;
+        colorCount = n;
+        for (int i = 0; i < targets.size(); i++) targets.color[i] %= n;
+    }
+
+    // One cell per largest target diameter keeps every target in at most 4 cells.
+    private void configureGrid() {
+        grid.configure(widthPx, heightPx, 2f * config.maxRadius);
+        grid.rebuild(targets);
+    }
+
+    /** Begin an untimed round with simulation time = {@code now}; {@code seed} fixes every random choice. */
+    public void start(long now, long seed) { start(now, seed, 0); }
+
+    /** As {@link #start(long, long)}, ending the round {@code roundNanos} later (0: untimed). */
+    public void start(long now, long seed, long roundNanos) {
+        this.seed = seed;
+        spawnRnd.setSeed(SplitRandom.streamSeed(seed, STREAM_SPAWN));
+        colorRnd.setSeed(SplitRandom.streamSeed(seed, STREAM_COLOR));
+        fxRnd.setSeed(SplitRandom.streamSeed(seed, STREAM_FX));
+        clock.reset(now);
+        startTime = now;
+        startWidth = widthPx;
+        startHeight = heightPx;
+        logSize = 0;
+        timers.reset(now);
+        reset(); // a replay starts from an empty field, so the live run must too
+        lastHitAt = now - 2 * STREAK_WINDOW;
+        nextSpawnAt = now + 400 * MS;
+        if (roundNanos > 0) {
+            roundEnd = now + roundNanos;
+            timers.schedule(roundEnd, TIMER_ROUND, 0);
+        }
+    }
+
+    /**
+     * Call {@link Listener#onAlarm} {@code delayNanos} of simulation time from now, then
+     * every {@code periodNanos} (0: once). Replaces the alarm's previous schedule.
+     */
+    public void setAlarm(int id, long delayNanos, long periodNanos) {
+        timers.cancel(alarmTimer[id]);
+        alarmPeriod[id] = periodNanos;
+        alarmTimer[id] = timers.schedule(clock.renderTime() + delayNanos, TIMER_ALARM, id);
+    }
+
+    public void cancelAlarm(int id) {
+        timers.cancel(alarmTimer[id]);
+        alarmTimer[id] = -1;
+    }
+
+    /** True once the round length ran out; steps no longer change the field and taps are ignored. */
+    public boolean isEnded() { return ended; }
+
+    public void reset() {
+        timers.clear();
+        streakTimer = -1;
+        Arrays.fill(alarmTimer, -1);
+        ended = false;
+        roundEnd = 0;
+        targets.clear();
+        grid.rebuild(targets);
+        particles.clear();
+        streak = 0;
+        fever = false;
+        score = 0;
+        hits = misses = maxStreak = 0;
+    }
+
+    /**
+     * Advance to frame time {@code nanos}: runs as many fixed steps as have elapsed.
+     * @return steps run
+     */
+    public int step(long nanos) {
+        int steps = clock.advance(nanos);
+        float dt = clock.stepSeconds();
+        for (int i = 0; i < steps; i++) update(clock.step(), dt);
+        return steps;
+    }
+
+    /**
+     * Resolve a tap at the current render time against the topmost target under it.
+     * Safe to call several times between steps (one per pointer). @return true if something was hit
+     */
+    public boolean tap(float x, float y) {
+        if (ended) return false;
+        long now = clock.renderTime();
+        // quantise exactly as the replay stores it, so re-simulation resolves identically
+        int qx = Math.round(x * Replay.POS_SCALE), qy = Math.round(y * Replay.POS_SCALE);
+        x = qx / (float) Replay.POS_SCALE;
+        y = qy / (float) Replay.POS_SCALE;
+        logTap(now - startTime, qx, qy);
+
+        int i = grid.query(targets, x, y);
+        if (i >= 0) {
+            float hx = targets.cx[i], hy = targets.cy[i];
+            int hc = targets.color[i];
+            timers.cancel(targets.tag[i]);
+            targets.removeAt(i);
+
+            // scoring: maintain streak if within 1.2s window
+            // (checked here too: the window can lapse between steps, before its timer runs)
+            if (now - lastHitAt <= STREAK_WINDOW) streak++; else streak = 1;
+            lastHitAt = now;
+            timers.cancel(streakTimer);
+            streakTimer = timers.schedule(now + STREAK_WINDOW, TIMER_STREAK, 0);
+            hits++;
+            if (streak > maxStreak) maxStreak = streak;
+
+            // simple fever when streak >= 10
+            fever = streak >= 10;
+            int points = fever ? 2 : 1;
+            score += points;
+
+            listener.onTargetHit(points, streak, fever);
+            particles.emit(hx, hy, hc, now, fxRnd);
+            return true;
+        }
+
+        // Optional: tap miss feedback (penalty only if config.failOnMiss)
+        misses++;
+        if (config.failOnMiss) listener.onTapMissed();
+        return false;
+    }
+
+    /**
+     * Resolve a tap that happened at simulation time {@code nanos}: steps up to it first, so
+     * expiry, the streak window and the replay all see when the finger landed rather than when
+     * the tap got processed. Times at or before the current render time resolve now.
+     */
+    public boolean tap(float x, float y, long nanos) {
+        if (nanos > clock.renderTime()) step(nanos);
+        return tap(x, y);
+    }
+
+    private void logTap(long t, int qx, int qy) {
+        if (logSize == logTimes.length) {
+            int cap = logSize * 2;
+            logTimes = Arrays.copyOf(logTimes, cap);
+            logX = Arrays.copyOf(logX, cap);
+            logY = Arrays.copyOf(logY, cap);
+        }
+        logTimes[logSize] = t;
+        logX[logSize] = qx;
+        logY[logSize] = qy;
+        logSize++;
+    }
+
+    /** The round so far as a replay; {@code mode} must be the one whose config this run used. */
+    public Replay captureReplay(GameMode mode) {
+        return new Replay(seed, mode, startWidth, startHeight, clock.stepNanos(),
+                clock.renderTime() - startTime, score,
+                Arrays.copyOf(logTimes, logSize), Arrays.copyOf(logX, logSize),
+                Arrays.copyOf(logY, logSize));
+    }
+
+    /** Summary of the round so far for {@link RunHistory}; the wall-clock end time comes from the caller. */
+    public RunRecord captureRun(GameMode mode, long endedAtMillis) {
+        int durationMs = (int) ((clock.renderTime() - startTime) / MS);
+        return new RunRecord(mode, score, durationMs, maxStreak, hits, misses, seed, endedAtMillis);
+    }
+
+    private int scaledScore() {
+        return (config.scaleDiv <= 1) ? score : (score / config.scaleDiv);
+    }
+
+    /** Spawn, move and run due timers for one fixed step of {@code dt} seconds ending at {@code now}. */
+    private void update(long now, float dt) {
+        if (ended) {
+            particles.step(now, dt); // let the last explosions finish
+            return;
+        }
+
+        // Spawn
+        if(now >= nextSpawnAt) {
+            spawnTarget(now);
+
+            // Smoother difficulty ramp that respects scaleDiv
+            int dynSpawn = DifficultyCurve.spawnIntervalMs(config.baseSpawnMs, scaledScore());
+            int jitter = 100 + spawnRnd.nextInt(180);
+            nextSpawnAt = now + (dynSpawn + jitter) * MS;
+        }
+
+        // subtle movement
+        targets.integrate(widthPx, heightPx, dt);
+
+        // expiries, streak end, round end, alarms
+        timers.advance(now, timerSink);
+
+        // taps until the next frame are resolved against these positions
+        grid.rebuild(targets);
+
+        // Explosions: expire + move
+        particles.step(now, dt);
+    }
+
+    private final TimerWheel.Sink timerSink = new TimerWheel.Sink() {
+        @Override public void onTimer(int kind, int data, long deadline) {
+            switch (kind) {
+                case TIMER_EXPIRE: {
+                    int i = targets.indexOf(data);
+                    if (i < 0) return;
+                    targets.removeAt(i);
+                    misses++;
+                    // miss handling only if the mode wants it (e.g., HARDCORE)
+                    if (config.failOnMiss) listener.onTargetExpired();
+                    return;
+                }
+                case TIMER_STREAK:
+                    streakTimer = -1;
+                    streak = 0;
+                    fever = false;
+                    return;
+                case TIMER_ROUND:
+                    if (ended) return;
+                    ended = true;
+                    listener.onRoundEnd();
+                    return;
+                case TIMER_ALARM:
+                    alarmTimer[data] = alarmPeriod[data] > 0
+                            ? timers.schedule(deadline + alarmPeriod[data], TIMER_ALARM, data) : -1;
+                    listener.onAlarm(data);
+                    return;
+            }
+        }
+    };
+
+    // package-private for SpawnBench
+    void spawnTarget(long now) {
+        if(widthPx == 0 || heightPx == 0) return;
+
+        int r = DifficultyCurve.radiusPx(config.minRadius, config.maxRadius, scaledScore());
+
+        int x = r + spawnRnd.nextInt(Math.max(1, widthPx - 2*r));
+        int y = r + spawnRnd.nextInt(Math.max(1, heightPx - 2*r));
+
+        int color = colorRnd.nextInt(colorCount);
+
+        // small chance of moving target (not in CHILL)
+        float vx = 0, vy = 0;
+        if (!config.chill && spawnRnd.nextFloat() < 0.15f) {
+            vx = spawnRnd.nextBoolean()? MOVE_SPEED: -MOVE_SPEED;
+            vy = spawnRnd.nextBoolean()? MOVE_SPEED: -MOVE_SPEED;
+        }
+        int h = targets.add(x, y, r, vx, vy, color, now); // -1 when full: skip rather than allocate
+        if (h < 0) return;
+        // lifetime is fixed at spawn (the difficulty ramp used to shorten live targets too)
+        int i = targets.size() - 1;
+        long life = targetLifeNanos();
+        targets.life[i] = life;
+        targets.tag[i] = timers.schedule(now + life, TIMER_EXPIRE, h);
+    }
+
+    // ----- rendering access
+
+    public TargetStore targets() { return targets; }
+    public ParticleSystem particles() { return particles; }
+    /** Lifetime a target spawned now would get; live targets keep theirs in {@link TargetStore#life}. */
+    public long targetLifeNanos() {
+        return DifficultyCurve.targetLifeMs(config.baseLifeMs, scaledScore()) * MS;
+    }
+    /** Interpolated time for fades; see {@link FixedStepClock#renderTime()}. */
+    public long renderTime() { return clock.renderTime(); }
+    /** Blend factor between the previous and current step. */
+    public float alpha() { return clock.alpha(); }
+    public float stepSeconds() { return clock.stepSeconds(); }
+    public int streak() { return streak; }
+    /** Game time left in a timed round (0 once it's over); -1 if untimed. */
+    public long remainingNanos() { return roundEnd == 0 ? -1 : Math.max(0, roundEnd - clock.renderTime()); }
+    public int maxStreak() { return maxStreak; }
+    public int hits() { return hits; }
+    /** Taps on empty space plus targets that expired untouched. */
+    public int misses() { return misses; }
+    /** Points this round (what the Activity shows). */
+    public int score() { return score; }
+}
@@ -0,0 +1,92 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * The in-game HUD's text as reusable char buffers: a few numeric fields, each with a fixed
+ * prefix and suffix ("Score 120", "45s", "x7").
+ *
+ * {@link #set} writes the digits into the field's own buffer only when the value changed
+ * and reports whether it did, so a renderer can call it every frame and redraw text only
+ * when something moved. Nothing here allocates after construction. A negative value hides
+ * the field (length 0), except {@link #INFINITE}, which shows the prefix and an infinity
+ * sign (an untimed round's clock).
+ */
+public final class HudText {
+
+    /** Shows as the prefix plus {@link #INFINITY_SIGN}, without the suffix. */
+    public static final long INFINITE = -2;
+    public static final char INFINITY_SIGN = '\u221E';
+
+    private static final int MAX_DIGITS = 19; // Long.MAX_VALUE
+
+    private final char[][] chars;
+    private final int[] prefixLength;
+    private final char[][] suffix;
+    private final int[] length;
+    private final long[] value;
+    private final char[] scratch = new char[MAX_DIGITS];
+    private boolean dirty = true;
+
+    /** Field {@code i} reads {@code prefixes[i]}, the value, then {@code suffixes[i]}. */
+    public HudText(String[] prefixes, String[] suffixes) {
+        int n = prefixes.length;
+        chars = new char[n][];
+        prefixLength = new int[n];
+        suffix = new char[n][];
+        length = new int[n];
+        value = new long[n];
+        for (int i = 0; i < n; i++) {
+            suffix[i] = suffixes[i].toCharArray();
+            prefixLength[i] = prefixes[i].length();
+            chars[i] = new char[prefixLength[i] + MAX_DIGITS + suffix[i].length];
+            prefixes[i].getChars(0, prefixLength[i], chars[i], 0);
+            value[i] = Long.MIN_VALUE; // first set() always formats
+        }
+    }
+
+    public int fields() { return chars.length; }
+
+    /** @return whether the field's text changed */
+    public boolean set(int field, long v) {
+        if (v < 0 && v != INFINITE) v = -1;
+        if (value[field] == v) return false;
+        value[field] = v;
+        dirty = true;
+        char[] out = chars[field];
+        if (v == INFINITE) {
+            out[prefixLength[field]] = INFINITY_SIGN;
+            length[field] = prefixLength[field] + 1;
+            return true;
+        }
+        if (v < 0) {
+            length[field] = 0;
+            return true;
+        }
+        int at = writeDigits(out, prefixLength[field], v, scratch);
+        System.arraycopy(suffix[field], 0, out, at, suffix[field].length);
+        length[field] = at + suffix[field].length;
+        return true;
+    }
+
+    /** The field's characters; only the first {@link #length} are valid. */
+    public char[] chars(int field) { return chars[field]; }
+    public int length(int field) { return length[field]; }
+    public long value(int field) { return value[field]; }
+
+    /** True once after any field changed (and initially). */
+    public boolean consumeDirty() {
+        boolean d = dirty;
+        dirty = false;
+        return d;
+    }
+
+    /** Decimal digits of {@code v} (>= 0) into {@code out} at {@code at}. @return the end index */
+    static int writeDigits(char[] out, int at, long v, char[] scratch) {
+        int n = 0;
+        do {
+            scratch[n++] = (char) ('0' + (int) (v % 10));
+            v /= 10;
+        } while (v > 0);
+        while (n > 0) out[at++] = scratch[--n];
+        return at;
+    }
+}
@@ -0,0 +1,86 @@
+package com.projuktilipi.Touchme;
+
+import java.util.Arrays;
+
+/**
+ * Duration histogram (frame times, touch event to tap resolved, and the like): count,
+ * mean, max and percentiles.
+ *
+ * Fixed 0.1 ms buckets up to {@link #MAX_MS}, so recording is O(1) with no allocation and
+ * percentiles are exact to a bucket. Not thread-safe; callers hold their own lock.
+ */
+public class LatencyHistogram {
+
+    public static final int MAX_MS = 100;
+    private static final long BUCKET_NANOS = 100_000L;
+    private static final int BUCKETS = (int) (MAX_MS * 1_000_000L / BUCKET_NANOS);
+
+    private final int[] hist = new int[BUCKETS + 1]; // last bucket: everything >= MAX_MS
+    private int count;
+    private long total;
+    private long max;
+
+    /** Negative samples (clocks that disagree) are dropped. */
+    public void record(long nanos) {
+        if (nanos < 0) return;
+        hist[(int) Math.min(BUCKETS, nanos / BUCKET_NANOS)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    public void reset() {
+        Arrays.fill(hist, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /** Add {@code other}'s samples to this one. */
+    public void addAll(LatencyHistogram other) {
+        for (int i = 0; i < hist.length; i++) hist[i] += other.hist[i];
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public int count() { return count; }
+    public long maxNanos() { return max; }
+    public long meanNanos() { return count == 0 ? 0 : total / count; }
+
+    /**
+     * Upper edge of the bucket holding the {@code p}-th percentile (0..100), but never more
+     * than the largest sample; 0 when empty.
+     */
+    public long percentileNanos(double p) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(p / 100.0 * count);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < hist.length; i++) {
+            seen += hist[i];
+            if (seen >= rank) return i == BUCKETS ? max : Math.min(max, (i + 1) * BUCKET_NANOS);
+        }
+        return max;
+    }
+
+    /** As a JSON object, times in ms. */
+    public void appendJson(StringBuilder sb) {
+        sb.append("{\"count\":").append(count);
+        appendTimes(sb);
+        sb.append('}');
+    }
+
+    /** Mean, p50/p95/p99 and max as JSON members, each with a leading comma. */
+    void appendTimes(StringBuilder sb) {
+        sb.append(",\"mean_ms\":").append(ms(meanNanos()))
+          .append(",\"p50_ms\":").append(ms(percentileNanos(50)))
+          .append(",\"p95_ms\":").append(ms(percentileNanos(95)))
+          .append(",\"p99_ms\":").append(ms(percentileNanos(99)))
+          .append(",\"max_ms\":").append(ms(max));
+    }
+
+    static double ms(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
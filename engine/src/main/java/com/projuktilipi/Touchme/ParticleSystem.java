@@ -0,0 +1,157 @@
+package com.projuktilipi.Touchme;
+
+import java.util.Random;
+
+/**
+ * Hit-explosion particles in flat arrays.
+ *
+ * Every burst has the same lifetime, so bursts expire in the order they were emitted:
+ * bursts and particles both live in FIFO rings, and a burst is one contiguous run of
+ * particles. A renderer draws each burst (one colour, one alpha) with a single batched
+ * call from {@link #fillPoints}.
+ *
+ * The live-particle budget is global. Past half of it new bursts get fewer particles
+ * (down to {@link #MIN_PER_BURST}); when even that doesn't fit, the oldest bursts are
+ * retired early. Gameplay never waits on particles and nothing is allocated.
+ */
+public class ParticleSystem {
+
+    public static final int PER_BURST = 12;
+    public static final int MIN_PER_BURST = 4;
+
+    // the old per-frame speeds at 60 Hz, as px per second
+    private static final float SPEED_MIN = 3.5f * 60f;
+    private static final float SPEED_RANGE = 2.2f * 60f;
+
+    private final long lifeNanos;
+    private final int budget; // max live particles; the ring may be larger (power of two)
+
+    // particle ring
+    private final float[] x, y, vx, vy;
+    private final int pMask;
+    private int pHead = 0, pTail = 0;
+
+    // burst ring
+    private final int[] bStart, bCount, bColor;
+    private final long[] bBorn;
+    private final int bMask;
+    private int bHead = 0, bTail = 0;
+
+    private int thinned = 0;  // bursts emitted with fewer than PER_BURST particles
+    private int retired = 0;  // bursts cut short to make room
+
+    /** @param budget max live particles (exact; the ring behind it rounds up to a power of two) */
+    public ParticleSystem(int budget, long lifeNanos) {
+        this.budget = Math.max(PER_BURST, budget);
+        int cap = pow2(this.budget);
+        x = new float[cap];
+        y = new float[cap];
+        vx = new float[cap];
+        vy = new float[cap];
+        pMask = cap - 1;
+        int bursts = pow2(cap / MIN_PER_BURST);
+        bStart = new int[bursts];
+        bCount = new int[bursts];
+        bColor = new int[bursts];
+        bBorn = new long[bursts];
+        bMask = bursts - 1;
+        this.lifeNanos = lifeNanos;
+    }
+
+    private static int pow2(int v) {
+        return Integer.highestOneBit(Math.max(2, v) - 1) << 1;
+    }
+
+    public int budget() { return budget; }
+    public int liveParticles() { return pTail - pHead; }
+    public int liveBursts() { return bTail - bHead; }
+    public int thinnedBursts() { return thinned; }
+    public int retiredBursts() { return retired; }
+
+    public void clear() {
+        pHead = pTail;
+        bHead = bTail;
+    }
+
+    /** How many particles a new burst gets at the current load. */
+    int particlesForNextBurst() {
+        int live = pTail - pHead;
+        int half = budget / 2;
+        if (live <= half) return PER_BURST;
+        // linear fade from PER_BURST at half load to MIN_PER_BURST at full load
+        int n = PER_BURST - (PER_BURST - MIN_PER_BURST) * (live - half) / half;
+        return Math.max(MIN_PER_BURST, n);
+    }
+
+    public void emit(float cx, float cy, int color, long now, Random rnd) {
+        int n = particlesForNextBurst();
+        if (n < PER_BURST) thinned++;
+        // out of room: retire the oldest bursts (also frees a burst slot)
+        while (bTail - bHead > 0 && ((pTail - pHead) + n > budget || bTail - bHead > bMask)) {
+            retireHead();
+            retired++;
+        }
+
+        int b = bTail & bMask;
+        bStart[b] = pTail;
+        bCount[b] = n;
+        bColor[b] = color;
+        bBorn[b] = now;
+        bTail++;
+
+        for (int k = 0; k < n; k++) {
+            int i = (pTail + k) & pMask;
+            x[i] = cx; y[i] = cy;
+            double ang = (Math.PI * 2) * (k / (double) n) + rnd.nextFloat() * 0.3 - 0.15;
+            float speed = SPEED_MIN + rnd.nextFloat() * SPEED_RANGE;
+            vx[i] = (float) (Math.cos(ang) * speed);
+            vy[i] = (float) (Math.sin(ang) * speed);
+        }
+        pTail += n;
+    }
+
+    private void retireHead() {
+        int b = bHead & bMask;
+        pHead = bStart[b] + bCount[b];
+        bHead++;
+    }
+
+    /** Expire old bursts, then move every live particle by {@code dt} seconds. */
+    public void step(long now, float dt) {
+        while (bTail - bHead > 0 && now - bBorn[bHead & bMask] > lifeNanos) retireHead();
+        final float[] x = this.x, y = this.y, vx = this.vx, vy = this.vy;
+        for (int p = pHead; p != pTail; p++) {
+            int i = p & pMask;
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+        }
+    }
+
+    // ----- rendering access; burst ids run from firstBurst() (inclusive) to endBurst() (exclusive)
+
+    public int firstBurst() { return bHead; }
+    public int endBurst() { return bTail; }
+    public int burstColor(int burst) { return bColor[burst & bMask]; }
+
+    /** 0 at birth, 1 at expiry. */
+    public float burstProgress(int burst, long now) {
+        float p = (now - bBorn[burst & bMask]) / (float) lifeNanos;
+        return p < 0f ? 0f : (p > 1f ? 1f : p);
+    }
+
+    /**
+     * Write the burst's particle positions, each pushed {@code lead} seconds along its
+     * velocity, as x,y pairs into {@code out} (size &gt;= 2 * PER_BURST).
+     * @return number of floats written, ready for Canvas.drawPoints(out, 0, n, paint)
+     */
+    public int fillPoints(int burst, float lead, float[] out) {
+        int b = burst & bMask;
+        int start = bStart[b], n = bCount[b], o = 0;
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) & pMask;
+            out[o++] = x[i] + vx[i] * lead;
+            out[o++] = y[i] + vy[i] * lead;
+        }
+        return o;
+    }
+}
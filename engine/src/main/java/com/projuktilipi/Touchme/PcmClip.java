@@ -0,0 +1,88 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * A decoded sound effect, ready for {@link SfxMixer}: 16-bit interleaved stereo at the
+ * mixer's sample rate.
+ *
+ * {@link #fromWav} reads uncompressed 16-bit PCM WAV (mono or stereo, any rate), which is
+ * what the SFX ship as. Mono is duplicated to both channels and other rates are converted
+ * once at load with linear interpolation, so mixing never resamples.
+ */
+public final class PcmClip {
+
+    public final short[] samples; // L R L R ...
+    public final int frames;
+
+    public PcmClip(short[] interleavedStereo) {
+        this.samples = interleavedStereo;
+        this.frames = interleavedStereo.length / 2;
+    }
+
+    /** @throws IllegalArgumentException if {@code wav} isn't 16-bit PCM WAV */
+    public static PcmClip fromWav(byte[] wav, int outRate) {
+        if (wav.length < 12 || !tag(wav, 0, "RIFF") || !tag(wav, 8, "WAVE")) {
+            throw new IllegalArgumentException("not a WAV file");
+        }
+        int channels = 0, rate = 0, bits = 0;
+        int dataAt = -1, dataLen = 0;
+        int p = 12;
+        while (p + 8 <= wav.length) {
+            int len = le32(wav, p + 4);
+            int body = p + 8;
+            if (len < 0 || body + len > wav.length) len = wav.length - body; // tolerate a short last chunk
+            if (tag(wav, p, "fmt ") && len >= 16) {
+                int format = le16(wav, body);
+                channels = le16(wav, body + 2);
+                rate = le32(wav, body + 4);
+                bits = le16(wav, body + 14);
+                if (format != 1) throw new IllegalArgumentException("not PCM (format " + format + ")");
+            } else if (tag(wav, p, "data")) {
+                dataAt = body;
+                dataLen = len;
+                break;
+            }
+            p = body + len + (len & 1); // chunks are word-aligned
+        }
+        if (dataAt < 0 || channels < 1 || channels > 2 || bits != 16 || rate <= 0) {
+            throw new IllegalArgumentException("unsupported WAV: " + channels + " ch, " + bits + " bit, " + rate + " Hz");
+        }
+        int inFrames = dataLen / (2 * channels);
+        short[] in = new short[inFrames * 2];
+        for (int f = 0; f < inFrames; f++) {
+            int at = dataAt + f * 2 * channels;
+            short l = (short) le16(wav, at);
+            in[2 * f] = l;
+            in[2 * f + 1] = channels == 2 ? (short) le16(wav, at + 2) : l;
+        }
+        return new PcmClip(rate == outRate ? in : resample(in, inFrames, rate, outRate));
+    }
+
+    private static short[] resample(short[] in, int inFrames, int inRate, int outRate) {
+        int outFrames = (int) ((long) inFrames * outRate / inRate);
+        short[] out = new short[outFrames * 2];
+        for (int f = 0; f < outFrames; f++) {
+            long pos = (long) f * inRate;      // source position, in units of 1/outRate frames
+            int i = (int) (pos / outRate);
+            float t = (pos % outRate) / (float) outRate;
+            int j = Math.min(i + 1, inFrames - 1);
+            for (int c = 0; c < 2; c++) {
+                float a = in[2 * i + c], b = in[2 * j + c];
+                out[2 * f + c] = (short) Math.round(a + (b - a) * t);
+            }
+        }
+        return out;
+    }
+
+    private static boolean tag(byte[] b, int at, String s) {
+        for (int i = 0; i < 4; i++) if (b[at + i] != s.charAt(i)) return false;
+        return true;
+    }
+
+    private static int le16(byte[] b, int at) {
+        return (b[at] & 0xFF) | (b[at + 1] & 0xFF) << 8;
+    }
+
+    private static int le32(byte[] b, int at) {
+        return le16(b, at) | le16(b, at + 2) << 16;
+    }
+}
@@ -0,0 +1,33 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * How far ahead of the simulation to draw moving targets: a smoothed estimate of the time
+ * from a frame's vsync to its pixels reaching the screen, capped per mode by
+ * {@link GameConfig#predictionMs}.
+ *
+ * Samples go through an exponential moving average (1/8 weight), the cheap steady-state
+ * form of a Kalman filter for a slowly drifting value, so one slow frame doesn't yank every
+ * target forward. Not thread-safe.
+ */
+public class PredictionHorizon {
+
+    private static final int SHIFT = 3; // weight 1/8
+
+    private long average = -1; // -1: no samples yet
+
+    public void record(long nanos) {
+        if (nanos < 0) return;
+        average = average < 0 ? nanos : average + ((nanos - average) >> SHIFT);
+    }
+
+    public void reset() { average = -1; }
+
+    /** Smoothed latency so far; 0 before the first sample. */
+    public long estimateNanos() { return Math.max(0, average); }
+
+    /** @return the lead to draw with: the estimate capped at {@code capNanos}; 0 when off or unmeasured */
+    public long horizonNanos(long capNanos) {
+        if (capNanos <= 0 || average < 0) return 0;
+        return Math.min(capNanos, average);
+    }
+}
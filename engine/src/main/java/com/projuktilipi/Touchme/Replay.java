@@ -0,0 +1,156 @@
+package com.projuktilipi.Touchme;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Everything needed to re-run a round: run seed, mode, playfield size, step length,
+ * and every tap the simulation resolved (simulation time since start, position).
+ *
+ * Binary layout (all integers unsigned LEB128 varints, signed ones zig-zagged first):
+ * <pre>
+ *   'T' 'M' 'R' version
+ *   seed(zz) mode width height stepNanos durationNanos score tapCount
+ *   tapCount x { dt  dx(zz)  dy(zz) }   // deltas from the previous tap
+ * </pre>
+ * Times are nanoseconds; positions are in {@link #POS_SCALE}ths of a pixel, the same
+ * quantisation {@link GameSimulation#tap} applies, so a replay resolves exactly like the
+ * live run did. A typical tap costs 6-8 bytes.
+ */
+public class Replay {
+
+    public static final int POS_SCALE = 8;
+    private static final int VERSION = 1;
+
+    public final long seed;
+    public final GameMode mode;
+    public final int width, height;
+    public final long stepNanos;
+    public final long durationNanos;
+    /** score the live simulation counted; informational, the verifier recomputes it */
+    public final int score;
+    public final long[] tapTimes;  // nanos since start, non-decreasing
+    public final int[] tapX, tapY; // POS_SCALE fixed point
+
+    public Replay(long seed, GameMode mode, int width, int height, long stepNanos,
+                  long durationNanos, int score, long[] tapTimes, int[] tapX, int[] tapY) {
+        if (tapX.length != tapTimes.length || tapY.length != tapTimes.length) {
+            throw new IllegalArgumentException("tap arrays differ in length");
+        }
+        this.seed = seed;
+        this.mode = mode;
+        this.width = width;
+        this.height = height;
+        this.stepNanos = stepNanos;
+        this.durationNanos = durationNanos;
+        this.score = score;
+        this.tapTimes = tapTimes;
+        this.tapX = tapX;
+        this.tapY = tapY;
+    }
+
+    public int tapCount() { return tapTimes.length; }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + 8 * tapTimes.length);
+        out.write('T'); out.write('M'); out.write('R'); out.write(VERSION);
+        writeVarint(out, zigzag(seed));
+        writeVarint(out, mode.ordinal());
+        writeVarint(out, width);
+        writeVarint(out, height);
+        writeVarint(out, stepNanos);
+        writeVarint(out, durationNanos);
+        writeVarint(out, score);
+        writeVarint(out, tapTimes.length);
+        long t = 0;
+        int x = 0, y = 0;
+        for (int i = 0; i < tapTimes.length; i++) {
+            writeVarint(out, tapTimes[i] - t);
+            writeVarint(out, zigzag(tapX[i] - x));
+            writeVarint(out, zigzag(tapY[i] - y));
+            t = tapTimes[i]; x = tapX[i]; y = tapY[i];
+        }
+        return out.toByteArray();
+    }
+
+    /** @throws IllegalArgumentException if {@code data} isn't a replay this version can read */
+    public static Replay decode(byte[] data) {
+        Reader in = new Reader(data);
+        if (in.u8() != 'T' || in.u8() != 'M' || in.u8() != 'R') {
+            throw new IllegalArgumentException("not a replay");
+        }
+        int version = in.u8();
+        if (version != VERSION) throw new IllegalArgumentException("unknown replay version " + version);
+        long seed = unzigzag(in.varint());
+        int modeIdx = (int) in.varint();
+        GameMode[] modes = GameMode.values();
+        if (modeIdx >= modes.length) throw new IllegalArgumentException("bad mode " + modeIdx);
+        int width = (int) in.varint();
+        int height = (int) in.varint();
+        long stepNanos = in.varint();
+        long duration = in.varint();
+        int score = (int) in.varint();
+        long n = in.varint();
+        // every tap takes at least 3 bytes; reject counts the data can't hold before allocating
+        if (n > (data.length - in.pos) / 3) throw new IllegalArgumentException("truncated replay");
+        long[] times = new long[(int) n];
+        int[] xs = new int[(int) n], ys = new int[(int) n];
+        long t = 0;
+        int x = 0, y = 0;
+        for (int i = 0; i < n; i++) {
+            t += in.varint();
+            x += (int) unzigzag(in.varint());
+            y += (int) unzigzag(in.varint());
+            times[i] = t; xs[i] = x; ys[i] = y;
+        }
+        return new Replay(seed, modes[modeIdx], width, height, stepNanos, duration, score, times, xs, ys);
+    }
+
+    @Override public boolean equals(Object o) {
+        if (!(o instanceof Replay)) return false;
+        Replay r = (Replay) o;
+        return seed == r.seed && mode == r.mode && width == r.width && height == r.height
+                && stepNanos == r.stepNanos && durationNanos == r.durationNanos && score == r.score
+                && Arrays.equals(tapTimes, r.tapTimes) && Arrays.equals(tapX, r.tapX)
+                && Arrays.equals(tapY, r.tapY);
+    }
+
+    @Override public int hashCode() {
+        return (int) (seed ^ (seed >>> 32)) * 31 + Arrays.hashCode(tapTimes);
+    }
+
+    // ----- varints
+
+    static long zigzag(long v) { return (v << 1) ^ (v >> 63); }
+    static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    static void writeVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static class Reader {
+        final byte[] data;
+        int pos = 0;
+
+        Reader(byte[] data) { this.data = data; }
+
+        int u8() {
+            if (pos >= data.length) throw new IllegalArgumentException("truncated replay");
+            return data[pos++] & 0xFF;
+        }
+
+        long varint() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = u8();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IllegalArgumentException("malformed varint");
+        }
+    }
+}
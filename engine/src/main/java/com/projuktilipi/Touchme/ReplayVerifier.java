@@ -0,0 +1,54 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * Re-runs a {@link Replay} on a fresh headless {@link GameSimulation} and reports the
+ * score its taps actually earn. A 60 s round is ~7200 fixed steps: a few milliseconds.
+ */
+public class ReplayVerifier {
+
+    // Feed time in chunks the clock never caps, so no simulated time is dropped.
+    private static final int CHUNK_STEPS = 4;
+
+    private static final GameSimulation.Listener SILENT = new GameSimulation.Listener() {
+        @Override public void onTargetHit(int points, int streak, boolean fever) { }
+        @Override public void onTargetExpired() { }
+        @Override public void onTapMissed() { }
+        @Override public void onRoundEnd() { }
+        @Override public void onAlarm(int id) { }
+    };
+
+    private ReplayVerifier() { }
+
+    /** @return the score the replay's taps earn */
+    public static int resimulate(Replay r) {
+        GameSimulation sim = new GameSimulation(new FixedStepClock(r.stepNanos, 2 * CHUNK_STEPS), SILENT);
+        sim.setConfig(GameConfig.forMode(r.mode));
+        sim.setSize(r.width, r.height);
+        sim.start(0, r.seed);
+        long chunk = CHUNK_STEPS * r.stepNanos;
+        long t = 0;
+        for (int i = 0; i < r.tapCount(); i++) {
+            t = advance(sim, t, r.tapTimes[i], chunk);
+            sim.tap(r.tapX[i] / (float) Replay.POS_SCALE, r.tapY[i] / (float) Replay.POS_SCALE);
+        }
+        advance(sim, t, r.durationNanos, chunk);
+        return sim.score();
+    }
+
+    /**
+     * True if the replay earns at least {@code claimed}. Not strict equality: a hit can
+     * still be in flight to the UI thread when the round ends, so the Activity's count
+     * may trail the simulation's by a tap or two — but it can never exceed it.
+     */
+    public static boolean verify(Replay r, int claimed) {
+        return claimed >= 0 && resimulate(r) >= claimed;
+    }
+
+    private static long advance(GameSimulation sim, long from, long to, long chunk) {
+        while (from < to) {
+            from = Math.min(to, from + chunk);
+            sim.step(from);
+        }
+        return from;
+    }
+}
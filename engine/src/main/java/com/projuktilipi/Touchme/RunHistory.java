@@ -0,0 +1,312 @@
+package com.projuktilipi.Touchme;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Every finished run, in an append-only log of fixed-size {@link RunRecord}s, plus
+ * per-mode aggregates (count, best, average, recent trend) kept up to date as runs are
+ * appended. Reading the aggregates never touches the log, so a stats screen is instant
+ * however many runs there are.
+ *
+ * Files in {@code dir}:
+ *  - runs-G.log: the current generation's records. Once it holds {@code maxRecords}
+ *    records a new generation starts. The previous one is kept as an archive; older
+ *    ones are deleted.
+ *  - runs.agg: aggregates + (generation, records folded in), checksummed, written via
+ *    temp file + rename after every append.
+ *
+ * Crash safety: each record is fsynced and carries a CRC. On {@link #open} a torn or
+ * corrupt tail is cut off, and records newer than the aggregate snapshot are folded in.
+ * Without a usable snapshot, the current and previous generations are rescanned.
+ *
+ * Blocking file I/O: call everything except {@link #stats} from a background thread.
+ * {@link #stats} never waits on that I/O: it reads an immutable copy of the aggregates that
+ * {@link #open} and {@link #append} republish when they finish.
+ */
+public class RunHistory {
+
+    public static final int MAX_LOG_RECORDS = 20_000; // ~860 KB per generation
+    /** Scores kept per mode for {@link ModeStats#trend()}. */
+    public static final int TREND_WINDOW = 20;
+
+    private static final int AGG_MAGIC = ('T' << 16) | ('M' << 8) | 'A';
+    private static final int AGG_VERSION = 1;
+    private static final int SCAN_CHUNK = 256; // records per read
+
+    /** Aggregates for one mode. Those handed out by {@link #stats} don't change. */
+    public static final class ModeStats {
+        private int count, best;
+        private long total;
+        private final int[] recent = new int[TREND_WINDOW]; // ring, oldest at head when full
+        private int recentSize, recentHead;
+
+        ModeStats() { }
+
+        ModeStats(ModeStats o) {
+            count = o.count;
+            best = o.best;
+            total = o.total;
+            System.arraycopy(o.recent, 0, recent, 0, TREND_WINDOW);
+            recentSize = o.recentSize;
+            recentHead = o.recentHead;
+        }
+
+        void add(int score) {
+            count++;
+            total += score;
+            if (score > best) best = score;
+            recent[(recentHead + recentSize) % TREND_WINDOW] = score;
+            if (recentSize < TREND_WINDOW) recentSize++; else recentHead = (recentHead + 1) % TREND_WINDOW;
+        }
+
+        public int count() { return count; }
+        public int best() { return best; }
+        public double average() { return count == 0 ? 0 : (double) total / count; }
+
+        /** Up to {@link #TREND_WINDOW} latest scores, oldest first. */
+        public int[] recentScores() {
+            int[] out = new int[recentSize];
+            for (int i = 0; i < recentSize; i++) out[i] = recent[(recentHead + i) % TREND_WINDOW];
+            return out;
+        }
+
+        /**
+         * Average of the newer half of the recent scores minus the older half: positive
+         * when the player is improving. 0 with fewer than two runs.
+         */
+        public double trend() {
+            if (recentSize < 2) return 0;
+            int half = recentSize / 2;
+            long older = 0, newer = 0;
+            for (int i = 0; i < half; i++) older += recent[(recentHead + i) % TREND_WINDOW];
+            for (int i = recentSize - half; i < recentSize; i++) newer += recent[(recentHead + i) % TREND_WINDOW];
+            return (double) (newer - older) / half;
+        }
+    }
+
+    private final File dir;
+    private final int maxRecords;
+    private final File aggFile;
+
+    private ModeStats[] stats = fresh(); // guarded by this
+    private volatile ModeStats[] published = fresh(); // never mutated once assigned
+    private long generation;
+    private long logRecords; // records in the current generation, all folded into stats
+    private boolean open;
+
+    public RunHistory(File dir) { this(dir, MAX_LOG_RECORDS); }
+
+    RunHistory(File dir, int maxRecords) {
+        this.dir = dir;
+        this.maxRecords = maxRecords;
+        this.aggFile = new File(dir, "runs.agg");
+    }
+
+    private static ModeStats[] fresh() {
+        ModeStats[] s = new ModeStats[GameMode.values().length];
+        for (int i = 0; i < s.length; i++) s[i] = new ModeStats();
+        return s;
+    }
+
+    private void publish() {
+        ModeStats[] copy = new ModeStats[stats.length];
+        for (int i = 0; i < copy.length; i++) copy[i] = new ModeStats(stats[i]);
+        published = copy;
+    }
+
+    private File logFile(long gen) { return new File(dir, "runs-" + gen + ".log"); }
+
+    /** Load the snapshot and catch up with the log. Called by {@link #append} if needed. */
+    public synchronized void open() throws IOException {
+        if (open) return;
+        ModeStats[] s = fresh();
+        long[] genAndCovered = readSnapshot(s);
+        if (genAndCovered != null) {
+            generation = genAndCovered[0];
+            long covered = genAndCovered[1];
+            long valid = repairTail(logFile(generation));
+            if (covered <= valid) {
+                scan(logFile(generation), covered, s);
+            } else {
+                genAndCovered = null; // log lost records the snapshot counted: don't trust either
+            }
+        }
+        if (genAndCovered == null) {
+            s = fresh();
+            generation = latestGeneration();
+            if (generation > 0) {
+                repairTail(logFile(generation - 1));
+                scan(logFile(generation - 1), 0, s);
+            }
+            repairTail(logFile(generation));
+            scan(logFile(generation), 0, s);
+        }
+        stats = s;
+        logRecords = logFile(generation).length() / RunRecord.BYTES;
+        open = true;
+        publish();
+        writeSnapshot();
+    }
+
+    /** Persist one run and update the aggregates. */
+    public synchronized void append(RunRecord r) throws IOException {
+        open();
+        if (logRecords >= maxRecords) rotate();
+        ByteBuffer b = ByteBuffer.allocate(RunRecord.BYTES);
+        r.writeTo(b);
+        try (FileOutputStream out = new FileOutputStream(logFile(generation), true)) {
+            out.write(b.array());
+            out.getFD().sync();
+        }
+        logRecords++;
+        stats[r.mode.ordinal()].add(r.score);
+        publish();
+        writeSnapshot();
+    }
+
+    /**
+     * {@code mode}'s aggregates as of the last finished open/append. Lock-free and no I/O, so
+     * safe on the UI thread while an append is syncing. Empty until {@link #open} ran.
+     */
+    public ModeStats stats(GameMode mode) {
+        return published[mode.ordinal()];
+    }
+
+    public synchronized boolean isOpen() { return open; }
+
+    private void rotate() throws IOException {
+        // snapshot first: a crash after it just leaves the new generation empty
+        generation++;
+        logRecords = 0;
+        writeSnapshot();
+        File old = logFile(generation - 2);
+        if (generation >= 2 && old.exists() && !old.delete()) throw new IOException("can't delete " + old);
+    }
+
+    private long latestGeneration() {
+        long latest = 0;
+        String[] names = dir.list();
+        if (names == null) return 0;
+        for (String n : names) {
+            if (!n.startsWith("runs-") || !n.endsWith(".log")) continue;
+            try {
+                latest = Math.max(latest, Long.parseLong(n.substring(5, n.length() - 4)));
+            } catch (NumberFormatException ignored) { }
+        }
+        return latest;
+    }
+
+    /** Cut a partial record or a bad-checksum record (and everything after) off the end. @return valid records */
+    private static long repairTail(File log) throws IOException {
+        if (!log.exists()) return 0;
+        long valid = countValid(log);
+        if (log.length() != valid * RunRecord.BYTES) {
+            try (RandomAccessFile f = new RandomAccessFile(log, "rw")) {
+                f.setLength(valid * RunRecord.BYTES);
+                f.getFD().sync();
+            }
+        }
+        return valid;
+    }
+
+    private static long countValid(File log) throws IOException {
+        long[] n = { 0 };
+        forEach(log, 0, r -> n[0]++);
+        return n[0];
+    }
+
+    private static void scan(File log, long from, ModeStats[] into) throws IOException {
+        forEach(log, from, r -> into[r.mode.ordinal()].add(r.score));
+    }
+
+    private interface Visitor { void visit(RunRecord r); }
+
+    /** Records from index {@code from} up to the first bad one. */
+    private static void forEach(File log, long from, Visitor v) throws IOException {
+        if (!log.exists()) return;
+        byte[] chunk = new byte[SCAN_CHUNK * RunRecord.BYTES];
+        ByteBuffer b = ByteBuffer.wrap(chunk);
+        try (RandomAccessFile f = new RandomAccessFile(log, "r")) {
+            long end = f.length() / RunRecord.BYTES;
+            f.seek(from * RunRecord.BYTES);
+            for (long i = from; i < end; ) {
+                int n = (int) Math.min(SCAN_CHUNK, end - i);
+                f.readFully(chunk, 0, n * RunRecord.BYTES);
+                b.clear();
+                for (int k = 0; k < n; k++) {
+                    RunRecord r = RunRecord.readFrom(b);
+                    if (r == null) return;
+                    v.visit(r);
+                }
+                i += n;
+            }
+        }
+    }
+
+    /** @return {generation, records covered} or null if missing/corrupt; fills {@code into} */
+    private long[] readSnapshot(ModeStats[] into) {
+        if (!aggFile.exists()) return null;
+        byte[] all = new byte[(int) aggFile.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(aggFile))) {
+            in.readFully(all);
+        } catch (IOException e) {
+            return null;
+        }
+        if (all.length < 4) return null;
+        CRC32 crc = new CRC32();
+        crc.update(all, 0, all.length - 4);
+        ByteBuffer b = ByteBuffer.wrap(all);
+        if (b.getInt(all.length - 4) != (int) crc.getValue()) return null;
+        int magic = b.getInt();
+        if ((magic >>> 8) != AGG_MAGIC || (magic & 0xFF) != AGG_VERSION) return null;
+        long gen = b.getLong(), covered = b.getLong();
+        int modes = b.get();
+        for (int m = 0; m < modes; m++) {
+            ModeStats s = m < into.length ? into[m] : new ModeStats(); // modes from a newer build: skip
+            s.count = b.getInt();
+            s.best = b.getInt();
+            s.total = b.getLong();
+            int n = b.get();
+            for (int i = 0; i < n; i++) s.recent[i] = b.getInt();
+            s.recentSize = n;
+            s.recentHead = 0;
+        }
+        return new long[] { gen, covered };
+    }
+
+    private void writeSnapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt((AGG_MAGIC << 8) | AGG_VERSION);
+        out.writeLong(generation);
+        out.writeLong(logRecords);
+        out.writeByte(stats.length);
+        for (ModeStats s : stats) {
+            out.writeInt(s.count);
+            out.writeInt(s.best);
+            out.writeLong(s.total);
+            int[] recent = s.recentScores();
+            out.writeByte(recent.length);
+            for (int v : recent) out.writeInt(v);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        File tmp = new File(dir, "runs.agg.tmp");
+        try (FileOutputStream f = new FileOutputStream(tmp)) {
+            bytes.writeTo(f);
+            f.getFD().sync();
+        }
+        if (!tmp.renameTo(aggFile)) throw new IOException("can't replace " + aggFile);
+    }
+}
@@ -0,0 +1,70 @@
+package com.projuktilipi.Touchme;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * One finished run as stored in the {@link RunHistory} log.
+ *
+ * Fixed {@link #BYTES}-byte record, big-endian:
+ * <pre>
+ *   endedAtMillis(8) seed(8) score(4) durationMs(4) maxStreak(4) hits(4) misses(4)
+ *   mode(1) reserved(3) crc32(4)   // crc over the first 40 bytes
+ * </pre>
+ * The checksum lets a torn write at the end of the log be detected and dropped.
+ */
+public final class RunRecord {
+
+    public static final int BYTES = 44;
+    private static final int BODY = BYTES - 4;
+
+    public final GameMode mode;
+    public final int score;
+    /** played time, pauses excluded */
+    public final int durationMs;
+    public final int maxStreak;
+    public final int hits;
+    /** taps on empty space plus targets that expired untouched */
+    public final int misses;
+    public final long seed;
+    public final long endedAtMillis;
+
+    public RunRecord(GameMode mode, int score, int durationMs, int maxStreak, int hits, int misses,
+                     long seed, long endedAtMillis) {
+        this.mode = mode;
+        this.score = score;
+        this.durationMs = durationMs;
+        this.maxStreak = maxStreak;
+        this.hits = hits;
+        this.misses = misses;
+        this.seed = seed;
+        this.endedAtMillis = endedAtMillis;
+    }
+
+    /** Write at {@code b}'s position; {@code b} must be a heap buffer. */
+    void writeTo(ByteBuffer b) {
+        int start = b.position();
+        b.putLong(endedAtMillis).putLong(seed)
+         .putInt(score).putInt(durationMs).putInt(maxStreak).putInt(hits).putInt(misses)
+         .put((byte) mode.ordinal()).put((byte) 0).put((byte) 0).put((byte) 0);
+        b.putInt(crc(b.array(), b.arrayOffset() + start));
+    }
+
+    /** Read at {@code b}'s position (heap buffer); null if the checksum or mode is bad. */
+    static RunRecord readFrom(ByteBuffer b) {
+        int start = b.position();
+        int expected = crc(b.array(), b.arrayOffset() + start);
+        long endedAt = b.getLong(), seed = b.getLong();
+        int score = b.getInt(), duration = b.getInt(), maxStreak = b.getInt(), hits = b.getInt(), misses = b.getInt();
+        int mode = b.get() & 0xFF;
+        b.position(start + BODY);
+        if (b.getInt() != expected || mode >= GameMode.values().length) return null;
+        return new RunRecord(GameMode.values()[mode], score, duration, maxStreak, hits, misses, seed, endedAt);
+    }
+
+    private static int crc(byte[] a, int off) {
+        CRC32 c = new CRC32();
+        c.update(a, off, BODY);
+        return (int) c.getValue();
+    }
+}
@@ -0,0 +1,261 @@
+package com.projuktilipi.Touchme;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Leaderboard scores and achievement unlocks waiting to reach the game service, kept on
+ * disk until it confirms them.
+ *
+ * Scores are coalesced per leaderboard: only the highest pending score is kept, since a
+ * leaderboard only keeps a player's best anyway, and a score no higher than one the service
+ * already confirmed isn't queued at all. An unlock is queued once, however often
+ * it's requested before it's sent. {@link #flush} sends up to {@code batchSize} operations
+ * when the {@link Transport} is ready (signed in, online), and starts the next batch as soon
+ * as one succeeds. If any operation in a batch fails, the next flush waits out an
+ * exponential backoff. A success resets it.
+ *
+ * The queue is rewritten (checksummed, temp file + rename) on every change. A failed write
+ * is retried with the next change. Single-threaded: call everything, and deliver
+ * {@link Done} results, on one thread, since it does blocking file I/O.
+ */
+public class ScoreOutbox {
+
+    /** Reports exactly once whether the service accepted an operation, on the outbox's thread. */
+    public interface Done {
+        void onResult(boolean ok);
+    }
+
+    public interface Transport {
+        /** Signed in and online: worth trying now. */
+        boolean isReady();
+        void submitScore(String leaderboardId, long score, Done done);
+        void unlock(String achievementId, Done done);
+    }
+
+    private static final int MAGIC = ('T' << 16) | ('M' << 8) | 'O';
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Transport transport;
+    private final int batchSize;
+    private final long backoffBaseMs, backoffMaxMs;
+
+    private final LinkedHashMap<String, Long> scores = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> confirmed = new LinkedHashMap<>(); // best accepted, per leaderboard
+    private final LinkedHashSet<String> unlocks = new LinkedHashSet<>();
+    private boolean dirty;           // last write failed
+
+    private int inFlight;
+    private boolean batchFailed;
+    private long batchStartMs;
+    private long retryAtMs;
+    private long backoffMs;
+    private int sent, failed;
+
+    public ScoreOutbox(File file, Transport transport, int batchSize, long backoffBaseMs, long backoffMaxMs) {
+        this.file = file;
+        this.transport = transport;
+        this.batchSize = batchSize;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.backoffMs = backoffBaseMs;
+    }
+
+    /** Read what a previous process left queued. A missing or corrupt file is an empty queue. */
+    public void load() {
+        scores.clear();
+        confirmed.clear();
+        unlocks.clear();
+        if (!file.exists()) return;
+        byte[] all = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(all);
+        } catch (IOException e) {
+            return;
+        }
+        if (all.length < 8) return;
+        CRC32 crc = new CRC32();
+        crc.update(all, 0, all.length - 4);
+        if (ByteBuffer.wrap(all).getInt(all.length - 4) != (int) crc.getValue()) return;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(all, 0, all.length - 4))) {
+            int magic = in.readInt();
+            if ((magic >>> 8) != MAGIC || (magic & 0xFF) != VERSION) return;
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) scores.put(in.readUTF(), in.readLong());
+            n = in.readInt();
+            for (int i = 0; i < n; i++) unlocks.add(in.readUTF());
+            n = in.readInt();
+            for (int i = 0; i < n; i++) confirmed.put(in.readUTF(), in.readLong());
+        } catch (IOException e) {
+            scores.clear();
+            confirmed.clear();
+            unlocks.clear();
+        }
+    }
+
+    /** Queue {@code score}, unless one at least as high is waiting or confirmed. @return whether the queue changed */
+    public boolean submitScore(String leaderboardId, long score) {
+        Long pending = scores.get(leaderboardId);
+        if (pending != null && pending >= score) return false;
+        Long best = confirmed.get(leaderboardId);
+        if (best != null && best >= score) return false;
+        scores.put(leaderboardId, score);
+        save();
+        return true;
+    }
+
+    /** Queue an unlock. @return whether the queue changed */
+    public boolean unlock(String achievementId) {
+        if (!unlocks.add(achievementId)) return false;
+        save();
+        return true;
+    }
+
+    /**
+     * Send the next batch if the transport is ready, nothing is in flight and no backoff is
+     * pending. @return operations sent
+     */
+    public int flush(long nowMs) {
+        if (inFlight > 0 || nowMs < retryAtMs || pending() == 0 || !transport.isReady()) return 0;
+        return sendBatch(nowMs);
+    }
+
+    /** Sign-in or connectivity came back: the last failure says nothing now, so skip its backoff. */
+    public int wake(long nowMs) {
+        if (inFlight == 0) {
+            retryAtMs = 0;
+            backoffMs = backoffBaseMs;
+        }
+        return flush(nowMs);
+    }
+
+    private int sendBatch(long nowMs) {
+        List<String> lbs = new ArrayList<>();
+        List<String> achs = new ArrayList<>();
+        for (String lb : scores.keySet()) {
+            if (lbs.size() == batchSize) break;
+            lbs.add(lb);
+        }
+        for (String ach : unlocks) {
+            if (lbs.size() + achs.size() == batchSize) break;
+            achs.add(ach);
+        }
+        batchStartMs = nowMs;
+        batchFailed = false;
+        inFlight = 1; // held until every op is out, in case results arrive synchronously
+        for (final String lb : lbs) {
+            final long score = scores.get(lb);
+            inFlight++;
+            transport.submitScore(lb, score, ok -> {
+                // a higher score queued meanwhile still has to go
+                Long now = scores.get(lb);
+                if (ok && now != null && now == score) scores.remove(lb);
+                if (ok) confirmed.put(lb, Math.max(score, confirmedScore(lb)));
+                finishOne(ok);
+            });
+        }
+        for (final String ach : achs) {
+            inFlight++;
+            transport.unlock(ach, ok -> {
+                if (ok) unlocks.remove(ach);
+                finishOne(ok);
+            });
+        }
+        settle();
+        return lbs.size() + achs.size();
+    }
+
+    private void finishOne(boolean ok) {
+        if (ok) {
+            sent++;
+        } else {
+            batchFailed = true;
+            failed++;
+        }
+        settle();
+    }
+
+    private void settle() {
+        if (--inFlight > 0) return;
+        save();
+        if (batchFailed) {
+            retryAtMs = batchStartMs + backoffMs;
+            backoffMs = Math.min(backoffMaxMs, backoffMs * 2);
+            return;
+        }
+        retryAtMs = 0;
+        backoffMs = backoffBaseMs;
+        if (pending() > 0 && transport.isReady()) sendBatch(batchStartMs);
+    }
+
+    public int pending() { return scores.size() + unlocks.size(); }
+    /** Highest score waiting for {@code leaderboardId}, or -1. */
+    public long pendingScore(String leaderboardId) {
+        Long s = scores.get(leaderboardId);
+        return s == null ? -1 : s;
+    }
+    /** Highest score the service accepted for {@code leaderboardId}, or -1. */
+    public long confirmedScore(String leaderboardId) {
+        Long s = confirmed.get(leaderboardId);
+        return s == null ? -1 : s;
+    }
+    public boolean isUnlockPending(String achievementId) { return unlocks.contains(achievementId); }
+    public boolean isFlushing() { return inFlight > 0; }
+    /** Earliest time a flush may try again after a failed batch. */
+    public long retryAt() { return retryAtMs; }
+    public int sentCount() { return sent; }
+    public int failedCount() { return failed; }
+    /** True if the last write failed; the queue in memory is still complete. */
+    public boolean isDirty() { return dirty; }
+
+    private void save() {
+        try {
+            write();
+            dirty = false;
+        } catch (IOException e) {
+            dirty = true;
+        }
+    }
+
+    private void write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt((MAGIC << 8) | VERSION);
+        out.writeInt(scores.size());
+        for (Map.Entry<String, Long> e : scores.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeLong(e.getValue());
+        }
+        out.writeInt(unlocks.size());
+        for (String a : unlocks) out.writeUTF(a);
+        out.writeInt(confirmed.size());
+        for (Map.Entry<String, Long> e : confirmed.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeLong(e.getValue());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream f = new FileOutputStream(tmp)) {
+            bytes.writeTo(f);
+            f.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("can't replace " + file);
+    }
+}
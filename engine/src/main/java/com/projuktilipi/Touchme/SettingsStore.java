@@ -0,0 +1,214 @@
+package com.projuktilipi.Touchme;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Typed settings and progress, read from memory and written behind.
+ *
+ * The whole file is read once by {@link #load}. After that {@link #get} never touches disk,
+ * and {@link #set} only updates memory and marks the store dirty. The first change after a
+ * write hands one flush to the {@code writer} executor. Every later change rides along with
+ * that flush until it runs, so a burst of updates (a round ending, a settings toggle plus
+ * a mode change) becomes a single file write. The writer decides the delay and the thread;
+ * the app posts to a background handler a few frames later.
+ *
+ * File format (big-endian, a few hundred bytes): "TMS", version, entry count (u16), then
+ * per entry the name (modified UTF-8), a type tag and the value. Writes go to a temp file
+ * that is renamed over the old one, so a crash mid-write leaves the previous version.
+ */
+public class SettingsStore {
+
+    private static final int MAGIC = ('T' << 16) | ('M' << 8) | 'S';
+    private static final int VERSION = 1;
+    private static final byte T_BOOL = 0, T_INT = 1, T_LONG = 2, T_STRING = 3;
+
+    /** A named, typed value with its default. Declare once as a constant. */
+    public static final class Key<T> {
+        final String name;
+        final Class<T> type;
+        final T def;
+
+        private Key(String name, Class<T> type, T def) {
+            this.name = name;
+            this.type = type;
+            this.def = def;
+        }
+
+        public static Key<Boolean> bool(String name, boolean def) { return new Key<>(name, Boolean.class, def); }
+        public static Key<Integer> integer(String name, int def) { return new Key<>(name, Integer.class, def); }
+        public static Key<Long> int64(String name, long def) { return new Key<>(name, Long.class, def); }
+        public static Key<String> string(String name, String def) { return new Key<>(name, String.class, def); }
+
+        public String name() { return name; }
+    }
+
+    private final File file;
+    private final Executor writer;
+    private final Object fileLock = new Object();
+    private final Map<String, Object> values = new LinkedHashMap<>();
+    private boolean dirty, flushQueued;
+
+    public SettingsStore(File file, Executor writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+    /**
+     * Read the file into memory, replacing anything set so far.
+     * @return false if there was no readable file (the store is then empty: defaults)
+     */
+    public boolean load() {
+        Map<String, Object> read = new LinkedHashMap<>();
+        boolean ok;
+        synchronized (fileLock) {
+            ok = file.exists() && readInto(read);
+        }
+        synchronized (this) {
+            values.clear();
+            if (ok) values.putAll(read);
+        }
+        return ok;
+    }
+
+    private boolean readInto(Map<String, Object> out) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            int magic = (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+            if (magic != MAGIC || in.readUnsignedByte() != VERSION) return false;
+            int n = in.readUnsignedShort();
+            for (int i = 0; i < n; i++) {
+                String name = in.readUTF();
+                byte t = in.readByte();
+                switch (t) {
+                    case T_BOOL:   out.put(name, in.readBoolean()); break;
+                    case T_INT:    out.put(name, in.readInt()); break;
+                    case T_LONG:   out.put(name, in.readLong()); break;
+                    case T_STRING: out.put(name, in.readUTF()); break;
+                    default: return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            out.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Copy values from the old storage (e.g. {@code SharedPreferences.getAll()}) that this
+     * store doesn't have yet. Booleans, ints, longs and strings are kept; anything else is
+     * dropped. @return how many values were copied
+     */
+    public int migrate(Map<String, ?> legacy) {
+        int copied = 0;
+        synchronized (this) {
+            for (Map.Entry<String, ?> e : legacy.entrySet()) {
+                Object v = e.getValue();
+                boolean supported = v instanceof Boolean || v instanceof Integer
+                        || v instanceof Long || v instanceof String;
+                if (!supported || values.containsKey(e.getKey())) continue;
+                values.put(e.getKey(), v);
+                copied++;
+            }
+        }
+        if (copied > 0) markDirty();
+        return copied;
+    }
+
+    /** The stored value, or the key's default when unset or stored with another type. */
+    public synchronized <T> T get(Key<T> key) {
+        Object v = values.get(key.name);
+        return key.type.isInstance(v) ? key.type.cast(v) : key.def;
+    }
+
+    public <T> void set(Key<T> key, T value) {
+        synchronized (this) {
+            Object old = values.get(key.name);
+            if (value == null ? old == null : value.equals(old)) return;
+            if (value == null) values.remove(key.name); else values.put(key.name, value);
+        }
+        markDirty();
+    }
+
+    private void markDirty() {
+        boolean queue;
+        synchronized (this) {
+            dirty = true;
+            queue = !flushQueued;
+            flushQueued = true;
+        }
+        if (queue) writer.execute(this::flush);
+    }
+
+    public synchronized boolean isDirty() { return dirty; }
+
+    /**
+     * Write the current values if anything changed since the last write. Runs on the
+     * caller's thread; normally that's the writer, but it's safe to call directly
+     * (e.g. to write immediately when the app goes to the background).
+     * @return false if the write failed (the store stays dirty for the next flush)
+     */
+    public boolean flush() {
+        synchronized (fileLock) {
+            byte[] bytes;
+            synchronized (this) {
+                flushQueued = false;
+                if (!dirty) return true;
+                bytes = encodeLocked();
+                dirty = false;
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(bytes);
+                out.getFD().sync();
+            } catch (IOException e) {
+                synchronized (this) { dirty = true; }
+                return false;
+            }
+            if (!tmp.renameTo(file)) {
+                synchronized (this) { dirty = true; }
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private byte[] encodeLocked() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC >> 16);
+            out.writeByte(MAGIC >> 8);
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeShort(values.size());
+            for (Map.Entry<String, Object> e : values.entrySet()) {
+                out.writeUTF(e.getKey());
+                Object v = e.getValue();
+                if (v instanceof Boolean) {
+                    out.writeByte(T_BOOL);
+                    out.writeBoolean((Boolean) v);
+                } else if (v instanceof Integer) {
+                    out.writeByte(T_INT);
+                    out.writeInt((Integer) v);
+                } else if (v instanceof Long) {
+                    out.writeByte(T_LONG);
+                    out.writeLong((Long) v);
+                } else {
+                    out.writeByte(T_STRING);
+                    out.writeUTF((String) v);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,165 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * Software mixer for sound effects: a fixed set of voices summed into 16-bit stereo.
+ *
+ * {@link #play} may be called from any thread; it only queues a trigger. The audio thread
+ * calls {@link #mix}, which starts the queued voices and then mixes without taking the
+ * lock. When every voice is busy, a new sound takes over the voice with the lowest
+ * priority (the one furthest along among equals); a sound that outranks nothing playing
+ * is dropped. Everything is preallocated, so mixing never allocates.
+ */
+public class SfxMixer {
+
+    private static final int GAIN_ONE = 1 << 12; // gains are Q12 fixed point
+
+    // Clips by slot; written under the lock, copied into voices under the lock
+    private final PcmClip[] clips;
+    private final int[] clipPriority;
+
+    // Triggers waiting for the next mix; guarded by this
+    private final int[] pendingSlot;
+    private final int[] pendingGain;
+    private int pendingCount;
+    private int dropped;
+    private boolean stopRequested;
+
+    // Voices; audio thread only
+    private final PcmClip[] voiceClip; // null: free
+    private final int[] voicePos;      // next frame to play
+    private final int[] voiceGain;
+    private final int[] voicePriority;
+    private int active;
+    private int stolen;
+
+    private final int[] acc;           // per-sample accumulator for one mix call
+    private volatile int masterGain = GAIN_ONE;
+
+    /** @param maxFrames most frames a single {@link #mix} call will be asked for */
+    public SfxMixer(int clipSlots, int voices, int maxFrames) {
+        clips = new PcmClip[clipSlots];
+        clipPriority = new int[clipSlots];
+        pendingSlot = new int[voices];
+        pendingGain = new int[voices];
+        voiceClip = new PcmClip[voices];
+        voicePos = new int[voices];
+        voiceGain = new int[voices];
+        voicePriority = new int[voices];
+        acc = new int[maxFrames * 2];
+    }
+
+    /** Register (or replace) the clip in {@code slot}; higher priority wins when voices run out. */
+    public synchronized void setClip(int slot, PcmClip clip, int priority) {
+        clips[slot] = clip;
+        clipPriority[slot] = priority;
+    }
+
+    public synchronized boolean hasClip(int slot) { return clips[slot] != null; }
+
+    public void setMasterGain(float gain) { masterGain = toQ12(gain); }
+
+    /** Queue {@code slot} to start on the next mix. Any thread. No-op for an empty slot. */
+    public synchronized void play(int slot, float gain) {
+        if (clips[slot] == null) return;
+        if (pendingCount == pendingSlot.length) { dropped++; return; } // a burst wider than the voices
+        pendingSlot[pendingCount] = slot;
+        pendingGain[pendingCount] = toQ12(gain);
+        pendingCount++;
+        notifyAll();
+    }
+
+    /** Silence every voice and forget queued triggers (takes effect on the next mix). */
+    public synchronized void stopAll() {
+        pendingCount = 0;
+        stopRequested = true;
+    }
+
+    /** Audio thread: block until something is queued. */
+    public synchronized void awaitSound() throws InterruptedException {
+        while (pendingCount == 0) wait();
+    }
+
+    /**
+     * Audio thread: mix the next {@code frames} frames into {@code out} (interleaved stereo,
+     * overwritten). @return voices still playing afterwards
+     */
+    public int mix(short[] out, int frames) {
+        if (frames * 2 > acc.length) throw new IllegalArgumentException("frames " + frames);
+        synchronized (this) {
+            if (stopRequested) {
+                for (int v = 0; v < voiceClip.length; v++) voiceClip[v] = null;
+                active = 0;
+                stopRequested = false;
+            }
+            for (int i = 0; i < pendingCount; i++) start(pendingSlot[i], pendingGain[i]);
+            pendingCount = 0;
+        }
+
+        int n = frames * 2;
+        for (int i = 0; i < n; i++) acc[i] = 0;
+        if (active > 0) {
+            for (int v = 0; v < voiceClip.length; v++) {
+                PcmClip clip = voiceClip[v];
+                if (clip == null) continue;
+                short[] s = clip.samples;
+                int pos = voicePos[v];
+                int count = Math.min(frames, clip.frames - pos) * 2;
+                int g = voiceGain[v];
+                for (int i = 0, j = pos * 2; i < count; i++, j++) acc[i] += (s[j] * g) >> 12;
+                pos += count / 2;
+                if (pos >= clip.frames) {
+                    voiceClip[v] = null;
+                    active--;
+                } else {
+                    voicePos[v] = pos;
+                }
+            }
+        }
+        int m = masterGain;
+        for (int i = 0; i < n; i++) {
+            int x = m == GAIN_ONE ? acc[i] : (int) (((long) acc[i] * m) >> 12);
+            out[i] = (short) (x > Short.MAX_VALUE ? Short.MAX_VALUE : Math.max(x, Short.MIN_VALUE));
+        }
+        return active;
+    }
+
+    private void start(int slot, int gain) {
+        PcmClip clip = clips[slot];
+        int priority = clipPriority[slot];
+        int v = -1;
+        for (int i = 0; i < voiceClip.length; i++) {
+            if (voiceClip[i] == null) { v = i; break; }
+        }
+        if (v < 0) {
+            // steal: lowest priority, and among those the one closest to done
+            for (int i = 0; i < voiceClip.length; i++) {
+                if (v < 0 || voicePriority[i] < voicePriority[v]
+                        || (voicePriority[i] == voicePriority[v] && progress(i) > progress(v))) {
+                    v = i;
+                }
+            }
+            if (voicePriority[v] > priority) { dropped++; return; }
+            stolen++;
+            active--;
+        }
+        voiceClip[v] = clip;
+        voicePos[v] = 0;
+        voiceGain[v] = gain;
+        voicePriority[v] = priority;
+        active++;
+    }
+
+    private float progress(int v) {
+        return voicePos[v] / (float) voiceClip[v].frames;
+    }
+
+    /** Voices playing after the last mix. Audio thread. */
+    public int activeVoices() { return active; }
+    /** Voices taken over by a higher-or-equal priority sound. Audio thread. */
+    public int stolenVoices() { return stolen; }
+    public synchronized int droppedSounds() { return dropped; }
+
+    private static int toQ12(float gain) {
+        return Math.round(Math.max(0f, Math.min(4f, gain)) * GAIN_ONE);
+    }
+}
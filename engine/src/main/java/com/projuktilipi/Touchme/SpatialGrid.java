@@ -0,0 +1,115 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * Uniform grid over the play field for tap hit-testing.
+ *
+ * Each target is filed (by handle) under every cell its bounding box touches; with
+ * cells at least one target diameter wide that is at most 4 cells. A query only looks
+ * at the one cell under the finger, so its cost doesn't grow with the target count.
+ *
+ * Cells are packed CSR-style (counting sort), so rebuild() allocates nothing.
+ * Handles survive swap-removes, so taps resolved after a hit but before the next
+ * rebuild still see the right targets.
+ */
+public class SpatialGrid {
+
+    private static final int MAX_CELLS_PER_ITEM = 4;
+
+    private final int[] entries;   // handles, grouped by cell
+    private int[] cellStart = new int[1];
+    private int[] cellFill = new int[0];
+    private int cols = 0, rows = 0;
+    private float cellSize = 1f;
+    private boolean overflow = true; // nothing built yet
+
+    public SpatialGrid(int maxItems) {
+        entries = new int[maxItems * MAX_CELLS_PER_ITEM];
+    }
+
+    /** Size the grid. Allocates only when the cell count grows, so call it on size/config change. */
+    public void configure(float width, float height, float cell) {
+        cellSize = Math.max(1f, cell);
+        cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int cells = cols * rows;
+        if (cellFill.length < cells) {
+            cellFill = new int[cells];
+            cellStart = new int[cells + 1];
+        }
+        overflow = true;
+    }
+
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+
+    private int col(float x) {
+        int c = (int) (x / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(float y) {
+        int r = (int) (y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    /** Refile every target in {@code s}. O(n), no allocation. */
+    public void rebuild(TargetStore s) {
+        final int cells = cols * rows;
+        final int n = s.size();
+        final float[] cx = s.cx, cy = s.cy, r = s.r;
+
+        // pass 1: count per cell
+        for (int c = 0; c < cells; c++) cellFill[c] = 0;
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            int c0 = col(cx[i] - r[i]), c1 = col(cx[i] + r[i]);
+            int r0 = row(cy[i] - r[i]), r1 = row(cy[i] + r[i]);
+            for (int y = r0; y <= r1; y++) {
+                for (int x = c0; x <= c1; x++) cellFill[y * cols + x]++;
+            }
+            total += (c1 - c0 + 1) * (r1 - r0 + 1);
+        }
+        if (total > entries.length) { overflow = true; return; }
+
+        // prefix sums -> start offsets; cellFill becomes the write cursor
+        int acc = 0;
+        for (int c = 0; c < cells; c++) {
+            cellStart[c] = acc;
+            acc += cellFill[c];
+            cellFill[c] = cellStart[c];
+        }
+        cellStart[cells] = acc;
+
+        // pass 2: fill
+        for (int i = 0; i < n; i++) {
+            int h = s.handleAt(i);
+            int c0 = col(cx[i] - r[i]), c1 = col(cx[i] + r[i]);
+            int r0 = row(cy[i] - r[i]), r1 = row(cy[i] + r[i]);
+            for (int y = r0; y <= r1; y++) {
+                for (int x = c0; x <= c1; x++) entries[cellFill[y * cols + x]++] = h;
+            }
+        }
+        overflow = false;
+    }
+
+    /**
+     * @return dense index of the topmost (highest {@link TargetStore#seq}) live target
+     * containing (x, y), or -1. Falls back to a linear scan if the last rebuild didn't fit.
+     */
+    public int query(TargetStore s, float x, float y) {
+        if (overflow) return s.hitTest(x, y);
+        int cell = row(y) * cols + col(x);
+        int best = -1;
+        long bestSeq = Long.MIN_VALUE;
+        for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; k++) {
+            int i = s.indexOf(entries[k]);
+            if (i < 0 || s.seq[i] <= bestSeq) continue; // gone, or can't beat what we have
+            float dx = x - s.cx[i], dy = y - s.cy[i], rr = s.r[i];
+            if (dx * dx + dy * dy <= rr * rr) {
+                best = i;
+                bestSeq = s.seq[i];
+            }
+        }
+        return best;
+    }
+}
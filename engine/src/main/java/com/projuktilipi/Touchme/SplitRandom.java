@@ -0,0 +1,50 @@
+package com.projuktilipi.Touchme;
+
+import java.util.Random;
+
+/**
+ * SplitMix64 behind the {@link Random} API, so it drops into code that takes a Random.
+ *
+ * Android only has {@code java.util.SplittableRandom} from API 24 and {@code Random}'s
+ * own generator is weak for small seeds, hence this. Output depends only on the seed,
+ * and {@link Random}'s derived methods (nextInt(bound), nextFloat, ...) have a specified
+ * algorithm, so the same seed gives the same stream on a device and on a desktop JVM.
+ *
+ * Subsystems get independent streams from one run seed via {@link #streamSeed}; drawing
+ * more or fewer numbers in one stream (say, particles) never shifts another (spawns).
+ */
+public class SplitRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public SplitRandom(long seed) {
+        super(seed); // calls our setSeed
+    }
+
+    @Override public synchronized void setSeed(long seed) {
+        super.setSeed(seed); // clears Random's cached nextGaussian
+        state = seed;
+    }
+
+    @Override public long nextLong() {
+        return mix64(state += GOLDEN_GAMMA);
+    }
+
+    @Override protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /** Seed for sub-stream {@code stream} of a run seeded with {@code seed}. */
+    public static long streamSeed(long seed, int stream) {
+        return mix64(seed ^ mix64((stream + 1) * GOLDEN_GAMMA));
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,209 @@
+package com.projuktilipi.Touchme;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Startup work as a dependency graph. Each task names the tasks it waits for and whether
+ * it runs on the main or a background executor; a task is dispatched the moment its last
+ * dependency finishes. Signals are tasks without a body that the caller completes (e.g.
+ * "first_frame"), so work can be deferred until after the first frame without polling.
+ *
+ * A task that throws is recorded in the trace and still counts as finished: a failing
+ * ad SDK must not keep leaderboards from coming up.
+ *
+ * Usage: declare everything with {@link #task}/{@link #signal}, then {@link #start} once.
+ */
+public class StartupGraph {
+
+    public enum On { MAIN, BACKGROUND }
+
+    public interface Listener {
+        /** Called on the thread that finished the last task. */
+        void onFinished(StartupGraph graph);
+    }
+
+    private static class Node {
+        final String name;
+        final On on;
+        final Runnable body; // null for signals
+        final String[] deps;
+        final List<Node> dependents = new ArrayList<>();
+        int pending;
+        boolean dispatched, done;
+        long startNanos, endNanos;
+        String thread;
+        Throwable error;
+
+        Node(String name, On on, Runnable body, String[] deps) {
+            this.name = name;
+            this.on = on;
+            this.body = body;
+            this.deps = deps;
+        }
+    }
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final Listener listener;
+    private Executor main, background;
+    private long t0;
+    private int remaining;
+    private boolean started;
+
+    public StartupGraph(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized StartupGraph task(String name, On on, Runnable body, String... deps) {
+        return add(new Node(name, on, body, deps));
+    }
+
+    /** A node with no body that the caller completes via {@link #complete}. */
+    public synchronized StartupGraph signal(String name) {
+        return add(new Node(name, On.MAIN, null, new String[0]));
+    }
+
+    private StartupGraph add(Node n) {
+        if (started) throw new IllegalStateException("graph already started");
+        if (nodes.containsKey(n.name)) throw new IllegalArgumentException("duplicate task " + n.name);
+        nodes.put(n.name, n);
+        return this;
+    }
+
+    /**
+     * Check the graph (unknown deps, cycles) and dispatch everything with no dependencies.
+     * @throws IllegalStateException if the graph can never finish
+     */
+    public void start(Executor main, Executor background) {
+        List<Node> ready = new ArrayList<>();
+        synchronized (this) {
+            if (started) throw new IllegalStateException("graph already started");
+            for (Node n : nodes.values()) {
+                for (String d : n.deps) {
+                    Node dep = nodes.get(d);
+                    if (dep == null) throw new IllegalStateException(n.name + " depends on unknown " + d);
+                    dep.dependents.add(n);
+                }
+                n.pending = n.deps.length;
+            }
+            checkAcyclic();
+            this.main = main;
+            this.background = background;
+            started = true;
+            t0 = System.nanoTime();
+            remaining = nodes.size();
+            for (Node n : nodes.values()) {
+                if (n.pending == 0 && n.body != null) {
+                    n.dispatched = true;
+                    ready.add(n);
+                }
+            }
+        }
+        for (Node n : ready) dispatch(n);
+    }
+
+    /** Mark a signal as reached; repeats (and calls before {@link #start}) are ignored. */
+    public void complete(String signal) {
+        Node n;
+        synchronized (this) {
+            n = nodes.get(signal);
+            if (n == null || n.body != null) throw new IllegalArgumentException("not a signal: " + signal);
+            if (!started || n.done) return;
+            n.startNanos = System.nanoTime();
+            n.thread = Thread.currentThread().getName();
+        }
+        finish(n, null);
+    }
+
+    private void dispatch(Node n) {
+        Executor ex = n.on == On.MAIN ? main : background;
+        ex.execute(() -> run(n));
+    }
+
+    private void run(Node n) {
+        synchronized (this) {
+            n.startNanos = System.nanoTime();
+            n.thread = Thread.currentThread().getName();
+        }
+        Throwable error = null;
+        try {
+            n.body.run();
+        } catch (Throwable t) {
+            error = t;
+        }
+        finish(n, error);
+    }
+
+    private void finish(Node n, Throwable error) {
+        List<Node> ready = new ArrayList<>();
+        boolean all;
+        synchronized (this) {
+            n.endNanos = System.nanoTime();
+            n.error = error;
+            n.done = true;
+            for (Node d : n.dependents) {
+                if (--d.pending == 0 && d.body != null && !d.dispatched) {
+                    d.dispatched = true;
+                    ready.add(d);
+                }
+            }
+            all = --remaining == 0;
+        }
+        for (Node d : ready) dispatch(d);
+        if (all && listener != null) listener.onFinished(this);
+    }
+
+    private void checkAcyclic() {
+        // Kahn's algorithm over a copy of the pending counts
+        Map<Node, Integer> pending = new LinkedHashMap<>();
+        List<Node> queue = new ArrayList<>();
+        for (Node n : nodes.values()) {
+            pending.put(n, n.deps.length);
+            if (n.deps.length == 0) queue.add(n);
+        }
+        int seen = 0;
+        while (!queue.isEmpty()) {
+            Node n = queue.remove(queue.size() - 1);
+            seen++;
+            for (Node d : n.dependents) {
+                int p = pending.get(d) - 1;
+                pending.put(d, p);
+                if (p == 0) queue.add(d);
+            }
+        }
+        if (seen != nodes.size()) throw new IllegalStateException("startup graph has a cycle");
+    }
+
+    public synchronized boolean isDone(String name) {
+        Node n = nodes.get(name);
+        return n != null && n.done;
+    }
+
+    public synchronized boolean isFinished() { return started && remaining == 0; }
+
+    /** Milliseconds from {@link #start} until {@code name} finished; -1 if it hasn't. */
+    public synchronized long finishedAtMillis(String name) {
+        Node n = nodes.get(name);
+        return n == null || !n.done ? -1 : (n.endNanos - t0) / 1_000_000L;
+    }
+
+    /** One line per finished task in finishing order: name, thread, start offset, duration. */
+    public synchronized String trace() {
+        List<Node> done = new ArrayList<>();
+        for (Node n : nodes.values()) if (n.done) done.add(n);
+        Collections.sort(done, (a, b) -> Long.compare(a.endNanos, b.endNanos));
+        StringBuilder sb = new StringBuilder();
+        for (Node n : done) {
+            sb.append(n.name).append(" [").append(n.thread).append("] +")
+              .append((n.startNanos - t0) / 1_000_000L).append("ms ")
+              .append((n.endNanos - n.startNanos) / 1_000_000L).append("ms");
+            if (n.error != null) sb.append(" FAILED ").append(n.error);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * Single-producer / single-consumer ring of taps.
+ * The UI thread offers, the render thread drains. No locks, no allocation.
+ */
+public class TapQueue {
+
+    public interface Consumer {
+        void onTap(float x, float y, long time);
+    }
+
+    private final float[] xs;
+    private final float[] ys;
+    private final long[] times;
+    private final int mask;
+
+    // head: next slot to read (consumer), tail: next slot to write (producer)
+    private volatile int head = 0;
+    private volatile int tail = 0;
+
+    /** @param capacity rounded up to a power of two */
+    public TapQueue(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        xs = new float[cap];
+        ys = new float[cap];
+        times = new long[cap];
+        mask = cap - 1;
+    }
+
+    public int capacity() { return mask + 1; }
+
+    /** Producer side. @return false if the queue is full and the tap was dropped */
+    public boolean offer(float x, float y, long time) {
+        int t = tail;
+        if (t - head > mask) return false;
+        int slot = t & mask;
+        xs[slot] = x;
+        ys[slot] = y;
+        times[slot] = time;
+        tail = t + 1; // volatile write publishes the slot
+        return true;
+    }
+
+    /** Consumer side. @return number of taps handed to {@code c} */
+    public int drain(Consumer c) {
+        int h = head;
+        int t = tail;
+        int n = t - h;
+        for (; h != t; h++) {
+            int slot = h & mask;
+            c.onTap(xs[slot], ys[slot], times[slot]);
+        }
+        head = h;
+        return n;
+    }
+
+    /** Consumer side: drop everything queued so far. */
+    public void clear() {
+        head = tail;
+    }
+
+    public boolean isEmpty() { return head == tail; }
+}
@@ -0,0 +1,207 @@
+package com.projuktilipi.Touchme;
+
+/**
+ * Live targets as parallel primitive columns (structure of arrays).
+ *
+ * - Dense: indices 0..size()-1 are all live, so loops are straight array walks.
+ * - Removal swaps the last target into the hole: O(1), so index order is not spawn
+ *   order. seq numbers targets in spawn order instead: the newest target (highest seq)
+ *   is "topmost" for hit-testing, and {@link #drawOrder} lists indices oldest first.
+ * - add() hands out a handle that stays valid while the target lives even though
+ *   its index moves; stale handles resolve to -1.
+ * - px/py hold the position before the last {@link #integrate} so renderers can
+ *   interpolate between simulation steps. Velocities are in px per second.
+ * - tag is owner data that travels with the target (GameSimulation: its expiry timer);
+ *   -1 after add().
+ * - life is how long the target lasts after bornAt, fixed by the owner at spawn, for
+ *   fades; 0 (unknown) after add().
+ */
+public class TargetStore {
+
+    private static final int SLOT_BITS = 16;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+
+    // Columns, indexed by dense index
+    public final float[] cx, cy, px, py, r, vx, vy;
+    public final int[] color;   // whatever the owner uses to pick a colour (GameSimulation: colour index)
+    public final long[] bornAt, life;
+    public final long[] seq;    // spawn order, increasing across add()s
+    public final int[] tag;
+    private final int[] handle;
+
+    private long nextSeq;
+    private final int[] order;  // dense indices by ascending seq; valid unless orderDirty
+    private boolean orderDirty;
+
+    // Handle bookkeeping, indexed by slot
+    private final int[] slotIndex; // slot -> dense index (or -1)
+    private final int[] slotGen;
+    private final int[] freeSlots;
+    private int freeCount;
+
+    private int size = 0;
+
+    public TargetStore(int capacity) {
+        if (capacity <= 0 || capacity > SLOT_MASK) throw new IllegalArgumentException("capacity " + capacity);
+        cx = new float[capacity];
+        cy = new float[capacity];
+        px = new float[capacity];
+        py = new float[capacity];
+        r = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        color = new int[capacity];
+        bornAt = new long[capacity];
+        life = new long[capacity];
+        seq = new long[capacity];
+        order = new int[capacity];
+        tag = new int[capacity];
+        handle = new int[capacity];
+        slotIndex = new int[capacity];
+        slotGen = new int[capacity];
+        freeSlots = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slotIndex[i] = -1;
+            freeSlots[i] = capacity - 1 - i;
+        }
+        freeCount = capacity;
+    }
+
+    public int size() { return size; }
+    public int capacity() { return cx.length; }
+    public boolean isFull() { return size == cx.length; }
+
+    /** @return the new target's handle, or -1 if the store is full */
+    public int add(float x, float y, float radius, float velX, float velY, int argb, long born) {
+        if (size == cx.length) return -1;
+        int slot = freeSlots[--freeCount];
+        int i = size++;
+        cx[i] = x; cy[i] = y; px[i] = x; py[i] = y; r[i] = radius;
+        vx[i] = velX; vy[i] = velY;
+        color[i] = argb; bornAt[i] = born; life[i] = 0; tag[i] = -1;
+        seq[i] = nextSeq++;
+        order[i] = i; // newest goes last, so a clean order stays clean
+        int h = (slotGen[slot] << SLOT_BITS) | slot;
+        handle[i] = h;
+        slotIndex[slot] = i;
+        return h;
+    }
+
+    public int handleAt(int index) { return handle[index]; }
+
+    /** @return current dense index for {@code h}, or -1 if that target is gone */
+    public int indexOf(int h) {
+        if (h < 0) return -1;
+        int slot = h & SLOT_MASK;
+        if (slot >= slotIndex.length || slotGen[slot] != (h >>> SLOT_BITS)) return -1;
+        return slotIndex[slot];
+    }
+
+    /** Swap-remove the target at {@code index}; the last target moves into its place. */
+    public void removeAt(int index) {
+        int slot = handle[index] & SLOT_MASK;
+        slotIndex[slot] = -1;
+        slotGen[slot] = (slotGen[slot] + 1) & 0x7FFF; // keeps handles non-negative
+        freeSlots[freeCount++] = slot;
+        orderDirty = true;
+
+        int last = --size;
+        if (index != last) {
+            cx[index] = cx[last]; cy[index] = cy[last]; r[index] = r[last];
+            px[index] = px[last]; py[index] = py[last];
+            vx[index] = vx[last]; vy[index] = vy[last];
+            color[index] = color[last]; bornAt[index] = bornAt[last]; life[index] = life[last];
+            seq[index] = seq[last]; tag[index] = tag[last];
+            handle[index] = handle[last];
+            slotIndex[handle[index] & SLOT_MASK] = index;
+        }
+    }
+
+    /**
+     * Dense indices, oldest target first: draw in this order so the newest is on top.
+     * Only the first {@link #size} entries are valid. Re-sorted (insertion sort on seq) on
+     * the first call after a removal, so removal itself stays O(1); no allocation.
+     */
+    public int[] drawOrder() {
+        if (orderDirty) {
+            orderDirty = false;
+            for (int i = 0; i < size; i++) {
+                long sq = seq[i];
+                int j = i - 1;
+                while (j >= 0 && seq[order[j]] > sq) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = i;
+            }
+        }
+        return order;
+    }
+
+    public void clear() {
+        while (size > 0) removeAt(size - 1);
+    }
+
+    /**
+     * Where target {@code i} will be {@code seconds} after the last step, bouncing off
+     * [r, w-r] like {@link #integrate} does. For drawing ahead of the simulation.
+     */
+    public float predictX(int i, float seconds, float w) {
+        return reflect(cx[i] + vx[i] * seconds, r[i], w - r[i]);
+    }
+
+    /** {@link #predictX} for y, inside [r, h-r]. */
+    public float predictY(int i, float seconds, float h) {
+        return reflect(cy[i] + vy[i] * seconds, r[i], h - r[i]);
+    }
+
+    // Fold v back into [lo, hi] as if it bounced off the ends.
+    private static float reflect(float v, float lo, float hi) {
+        if (v >= lo && v <= hi) return v;
+        float span = hi - lo;
+        if (span <= 0) return lo;
+        float p = (v - lo) % (2 * span);
+        if (p < 0) p += 2 * span;
+        return lo + (p > span ? 2 * span - p : p);
+    }
+
+    /** Advance every target by {@code dt} seconds and bounce it inside [r, w-r] x [r, h-r]. */
+    public void integrate(float w, float h, float dt) {
+        final float[] cx = this.cx, cy = this.cy, px = this.px, py = this.py;
+        final float[] r = this.r, vx = this.vx, vy = this.vy;
+        for (int i = 0, n = size; i < n; i++) {
+            float rr = r[i];
+            px[i] = cx[i]; py[i] = cy[i];
+            float x = cx[i] + vx[i] * dt;
+            float y = cy[i] + vy[i] * dt;
+            if (x < rr) { x = rr; vx[i] = -vx[i]; }
+            if (y < rr) { y = rr; vy[i] = -vy[i]; }
+            if (x > w - rr) { x = w - rr; vx[i] = -vx[i]; }
+            if (y > h - rr) { y = h - rr; vy[i] = -vy[i]; }
+            cx[i] = x; cy[i] = y;
+        }
+    }
+
+    /** Swap-remove every target at least {@code life} old (same unit as bornAt). @return how many expired */
+    public int cullExpired(long now, long life) {
+        int removed = 0;
+        // walk backwards so the swapped-in target has already been checked
+        for (int i = size - 1; i >= 0; i--) {
+            if (now - bornAt[i] >= life) {
+                removeAt(i);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /** @return index of the topmost (newest) target containing (x, y), or -1 */
+    public int hitTest(float x, float y) {
+        int best = -1;
+        for (int i = size - 1; i >= 0; i--) {
+            float dx = x - cx[i], dy = y - cy[i], rr = r[i];
+            if (dx * dx + dy * dy <= rr * rr && (best < 0 || seq[i] > seq[best])) best = i;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,190 @@
+package com.projuktilipi.Touchme;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timer wheel over game time: O(1) schedule and cancel, and advancing only
+ * touches the slots that come due. Four levels of 64 slots. With 1 ms ticks the levels
+ * cover 64 ms, 4 s, 4.4 min and 4.7 h; later deadlines park in the top level and drop
+ * down as time gets closer.
+ *
+ * A timer fires on the first {@link #advance} whose time is at or past its deadline, never
+ * earlier. It can be up to one tick late. Timers due in the same tick fire in the order
+ * they were scheduled. Everything is preallocated: no allocation after construction.
+ *
+ * Timers carry two ints ({@code kind}, {@code data}) for the owner to dispatch on.
+ * Handles stay unique for a while (generation-tagged), so cancelling a timer that
+ * already fired is a harmless no-op. Not thread-safe.
+ */
+public class TimerWheel {
+
+    public interface Sink {
+        void onTimer(int kind, int data, long deadline);
+    }
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int NODE_BITS = 16;
+    private static final int NODE_MASK = (1 << NODE_BITS) - 1;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickNanos;
+    private final int[] head = new int[LEVELS * SLOTS]; // bucket -> first node, -1 empty
+
+    // Nodes, indexed by slot; doubly linked within a bucket
+    private final long[] deadline, dueTick;
+    private final int[] kind, data, next, prev, bucket, gen;
+    private final int[] free;
+    private int freeCount;
+    private int size;
+
+    private long origin;  // game time of tick 0
+    private long current; // last processed tick
+
+    public TimerWheel(long tickNanos, int capacity) {
+        if (capacity <= 0 || capacity > NODE_MASK) throw new IllegalArgumentException("capacity " + capacity);
+        this.tickNanos = tickNanos;
+        deadline = new long[capacity];
+        dueTick = new long[capacity];
+        kind = new int[capacity];
+        data = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        bucket = new int[capacity];
+        gen = new int[capacity];
+        free = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            bucket[i] = -1;
+            free[i] = capacity - 1 - i;
+        }
+        freeCount = capacity;
+        Arrays.fill(head, -1);
+    }
+
+    /** Drop every timer and restart at game time {@code now}. */
+    public void reset(long now) {
+        clear();
+        origin = now;
+        current = 0;
+    }
+
+    /** Drop every timer; time stays where it is. */
+    public void clear() {
+        for (int b = 0; b < head.length; b++) {
+            while (head[b] >= 0) release(head[b]);
+        }
+    }
+
+    public int size() { return size; }
+
+    /** @return a handle for {@link #cancel}, or -1 if the wheel is full */
+    public int schedule(long when, int timerKind, int timerData) {
+        if (freeCount == 0) return -1;
+        int n = free[--freeCount];
+        deadline[n] = when;
+        // first tick whose start is at/after the deadline; already-due timers go to the next tick
+        long rel = when - origin;
+        long t = rel <= 0 ? 0 : (rel + tickNanos - 1) / tickNanos;
+        dueTick[n] = Math.max(t, current + 1);
+        kind[n] = timerKind;
+        data[n] = timerData;
+        size++;
+        insert(n);
+        return (gen[n] << NODE_BITS) | n;
+    }
+
+    /** @return true if the timer was still pending */
+    public boolean cancel(int handle) {
+        if (handle < 0) return false;
+        int n = handle & NODE_MASK;
+        if (n >= gen.length || gen[n] != (handle >>> NODE_BITS) || bucket[n] < 0) return false;
+        release(n);
+        return true;
+    }
+
+    /** Fire every timer due by game time {@code now}, tick by tick. @return how many fired */
+    public int advance(long now, Sink sink) {
+        if (now < origin) return 0;
+        long target = (now - origin) / tickNanos;
+        int fired = 0;
+        while (current < target) {
+            if (size == 0) { current = target; break; } // nothing to cascade or fire
+            current++;
+            cascade();
+            int b = (int) (current & SLOT_MASK);
+            // due timers are unlinked before the callback, which may schedule new ones
+            while (head[b] >= 0) {
+                int n = head[b];
+                int k = kind[n], d = data[n];
+                long dl = deadline[n];
+                release(n);
+                sink.onTimer(k, d, dl);
+                fired++;
+            }
+        }
+        return fired;
+    }
+
+    // On entering a new slot of a higher level, move its timers down to where they belong now.
+    // Top level first: what drops out of level 2 may land in level 1's slot for this tick.
+    private void cascade() {
+        int top = 0;
+        while (top < LEVELS - 1 && (current & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) top++;
+        for (int level = top; level >= 1; level--) {
+            int b = level * SLOTS + (int) ((current >>> (SLOT_BITS * level)) & SLOT_MASK);
+            int n = head[b];
+            head[b] = -1;
+            while (n >= 0) {
+                int nx = next[n];
+                insert(n);
+                n = nx;
+            }
+        }
+    }
+
+    private void insert(int n) {
+        long t = dueTick[n];
+        long delta = t - current;
+        int b;
+        if (delta < SLOTS) {
+            b = (int) (t & SLOT_MASK);
+        } else {
+            int level = 1;
+            if (delta > MAX_DELTA) t = current + MAX_DELTA; // park; re-inserted on cascade
+            while (level < LEVELS - 1 && (t >>> (SLOT_BITS * (level + 1))) != (current >>> (SLOT_BITS * (level + 1)))) level++;
+            b = level * SLOTS + (int) ((t >>> (SLOT_BITS * level)) & SLOT_MASK);
+        }
+        // append, so same-tick timers keep scheduling order
+        bucket[n] = b;
+        next[n] = -1;
+        int h = head[b];
+        if (h < 0) {
+            head[b] = n;
+            prev[n] = n; // head's prev points at the tail
+        } else {
+            int tail = prev[h];
+            next[tail] = n;
+            prev[n] = tail;
+            prev[h] = n;
+        }
+    }
+
+    private void release(int n) {
+        int b = bucket[n];
+        int h = head[b];
+        int nx = next[n];
+        if (n == h) {
+            head[b] = nx;
+            if (nx >= 0) prev[nx] = prev[n];
+        } else {
+            next[prev[n]] = nx;
+            if (nx >= 0) prev[nx] = prev[n]; else prev[h] = prev[n];
+        }
+        bucket[n] = -1;
+        gen[n] = (gen[n] + 1) & 0x7FFF; // keeps handles non-negative
+        free[freeCount++] = n;
+        size--;
+    }
+}
@@ -0,0 +1,82 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AchievementRulesTest {
+
+    private static AchievementRules rules() {
+        return new AchievementRules.Builder()
+                .rule("score_100", AchievementRules.SCORE, 100)
+                .rule("streak_10", AchievementRules.STREAK, 10)
+                .rule("score_50", AchievementRules.SCORE, 50)
+                .build();
+    }
+
+    private static final class Recorder implements AchievementRules.Listener {
+        final List<String> fired = new ArrayList<>();
+        boolean accept = true;
+        @Override public boolean onUnlocked(int rule, String key) {
+            if (accept) fired.add(key);
+            return accept;
+        }
+    }
+
+    @Test public void firesEachRuleOnceWhenItsThresholdIsReached() {
+        AchievementRules r = rules();
+        Recorder rec = new Recorder();
+        assertEquals(0, r.update(AchievementRules.SCORE, 49, rec));
+        assertEquals(1, r.update(AchievementRules.SCORE, 50, rec));
+        assertEquals(0, r.update(AchievementRules.SCORE, 60, rec));
+        assertEquals(1, r.update(AchievementRules.SCORE, 100, rec));
+        assertEquals(0, r.update(AchievementRules.SCORE, 500, rec));
+        assertEquals(1, r.update(AchievementRules.STREAK, 10, rec));
+        assertEquals(0, r.update(AchievementRules.STREAK, 11, rec));
+        assertEquals("[score_50, score_100, streak_10]", rec.fired.toString());
+    }
+
+    @Test public void jumpPastSeveralThresholdsFiresThemInOrder() {
+        AchievementRules r = rules();
+        Recorder rec = new Recorder();
+        assertEquals(2, r.update(AchievementRules.SCORE, 1_000, rec));
+        assertEquals("[score_50, score_100]", rec.fired.toString());
+        assertFalse(r.isUnlocked(1));
+    }
+
+    @Test public void undeliveredUnlockStaysLocked() {
+        AchievementRules r = rules();
+        Recorder rec = new Recorder();
+        rec.accept = false;
+        assertEquals(0, r.update(AchievementRules.SCORE, 50, rec));
+        rec.accept = true;
+        assertEquals(1, r.update(AchievementRules.SCORE, 51, rec));
+        assertEquals("[score_50]", rec.fired.toString());
+    }
+
+    @Test public void unlockedSetRoundTrips() {
+        AchievementRules r = rules();
+        Recorder rec = new Recorder();
+        r.update(AchievementRules.SCORE, 100, rec);
+        assertEquals("score_100,score_50", r.unlocked());
+
+        AchievementRules again = rules();
+        again.restore(r.unlocked() + ",removed_since");
+        Recorder rec2 = new Recorder();
+        assertEquals(0, again.update(AchievementRules.SCORE, 1_000, rec2));
+        assertEquals(1, again.update(AchievementRules.STREAK, 10, rec2));
+        again.restore("");
+        assertEquals("score_100,streak_10,score_50", again.unlocked());
+    }
+
+    @Test public void restoringOnlyAHigherRuleStillFiresTheLowerOne() {
+        AchievementRules r = rules();
+        r.restore("score_100");
+        Recorder rec = new Recorder();
+        assertEquals(1, r.update(AchievementRules.SCORE, 50, rec));
+        assertEquals("[score_50]", rec.fired.toString());
+    }
+}
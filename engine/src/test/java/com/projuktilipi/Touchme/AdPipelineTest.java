@@ -0,0 +1,102 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AdPipelineTest {
+
+    /** Local fake network: loads stay pending until the test answers them. */
+    private static class FakeNetwork implements AdPipeline.Loader, AdPipeline.Clock {
+        final List<AdPipeline.Loaded> pending = new ArrayList<>();
+        final List<Integer> kinds = new ArrayList<>();
+        long now;
+        int served;
+        @Override public void load(int kind, AdPipeline.Loaded done) { pending.add(done); kinds.add(kind); }
+        @Override public long nowMs() { return now; }
+        void succeedAll() {
+            List<AdPipeline.Loaded> p = new ArrayList<>(pending);
+            pending.clear();
+            for (AdPipeline.Loaded l : p) l.onLoaded("ad" + served++);
+        }
+        void failAll() {
+            List<AdPipeline.Loaded> p = new ArrayList<>(pending);
+            pending.clear();
+            for (AdPipeline.Loaded l : p) l.onFailed();
+        }
+    }
+
+    private static AdPipeline pipeline(FakeNetwork net) {
+        return new AdPipeline(net, net, 2, 1, 60_000, 1_000, 8_000);
+    }
+
+    @Test public void refillLoadsOnePerKindUntilFull() {
+        FakeNetwork net = new FakeNetwork();
+        AdPipeline p = pipeline(net);
+        p.refill();
+        assertEquals(2, net.pending.size());
+        p.refill(); // still loading: nothing new
+        assertEquals(2, net.pending.size());
+        net.succeedAll();
+        p.refill(); // one interstitial short
+        assertEquals(1, net.pending.size());
+        assertEquals(AdPipeline.INTERSTITIAL, (int) net.kinds.get(2));
+        net.succeedAll();
+        p.refill();
+        assertEquals(0, net.pending.size());
+        assertEquals(2, p.readyCount(AdPipeline.INTERSTITIAL));
+        assertEquals(1, p.readyCount(AdPipeline.REWARDED));
+    }
+
+    @Test public void takeNeverWaitsAndSkipsExpired() {
+        FakeNetwork net = new FakeNetwork();
+        AdPipeline p = pipeline(net);
+        assertNull(p.take(AdPipeline.INTERSTITIAL)); // nothing loaded yet
+        p.refill();
+        net.succeedAll();  // ad0 interstitial, ad1 rewarded
+        net.now = 30_000;
+        p.refill();
+        net.succeedAll();  // ad2 interstitial, loaded at 30 s
+        net.now = 61_000;  // ad0 is past its TTL
+        assertEquals("ad2", p.take(AdPipeline.INTERSTITIAL));
+        assertEquals(1, p.expiredCount(AdPipeline.INTERSTITIAL));
+        assertFalse(p.hasReady(AdPipeline.REWARDED));
+    }
+
+    @Test public void failuresBackOffExponentiallyAndSuccessResets() {
+        FakeNetwork net = new FakeNetwork();
+        AdPipeline p = new AdPipeline(net, net, 1, 0, 60_000, 1_000, 4_000);
+        long[] waits = new long[4];
+        for (int i = 0; i < 4; i++) {
+            p.refill();
+            assertEquals(1, net.pending.size());
+            net.failAll();
+            waits[i] = p.retryAt(AdPipeline.INTERSTITIAL) - net.now;
+            p.refill(); // too soon
+            assertTrue(net.pending.isEmpty());
+            net.now = p.retryAt(AdPipeline.INTERSTITIAL);
+        }
+        assertArrayEquals(new long[] { 1_000, 2_000, 4_000, 4_000 }, waits);
+        p.refill();
+        net.succeedAll();
+        p.take(AdPipeline.INTERSTITIAL);
+        p.refill();
+        net.failAll();
+        assertEquals(1_000, p.retryAt(AdPipeline.INTERSTITIAL) - net.now);
+    }
+
+    @Test public void clearDropsQueueAndLateResults() {
+        FakeNetwork net = new FakeNetwork();
+        AdPipeline p = pipeline(net);
+        p.refill();
+        p.clear();
+        net.succeedAll();
+        assertEquals(0, p.readyCount(AdPipeline.INTERSTITIAL));
+        assertFalse(p.isLoading(AdPipeline.INTERSTITIAL));
+        p.refill(); // back on (ads restored): loads start over
+        assertEquals(2, net.pending.size());
+    }
+}
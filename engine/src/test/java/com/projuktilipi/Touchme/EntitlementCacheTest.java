@@ -0,0 +1,91 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EntitlementCacheTest {
+
+    private static final long DAY = 24 * 3600_000L;
+    private static final long MINUTE = 60_000L;
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Local fake billing client: queries wait until the test answers them. */
+    private static class FakeBilling implements EntitlementCache.Source {
+        final List<EntitlementCache.Result> pending = new ArrayList<>();
+        int queries;
+        @Override public void queryOwned(EntitlementCache.Result r) { queries++; pending.add(r); }
+        void answer(String... owned) { pending.remove(0).onOwned(Arrays.asList(owned)); }
+        void fail() { pending.remove(0).onFailed(); }
+    }
+
+    private SettingsStore store() {
+        SettingsStore s = new SettingsStore(new File(tmp.getRoot(), "s.bin"), Runnable::run);
+        s.load();
+        return s;
+    }
+
+    @Test public void snapshotAnswersSynchronouslyOnNextLaunch() {
+        SettingsStore s = store();
+        FakeBilling b = new FakeBilling();
+        EntitlementCache c = new EntitlementCache(s, b, DAY, MINUTE);
+        assertFalse(c.owns("remove_ads"));
+        assertTrue(c.refreshIfStale(1_000));
+        b.answer("remove_ads");
+        assertTrue(c.owns("remove_ads"));
+
+        EntitlementCache relaunched = new EntitlementCache(store(), new FakeBilling(), DAY, MINUTE);
+        assertTrue(relaunched.owns("remove_ads"));
+        assertFalse(relaunched.owns("skin_pack"));
+        assertEquals(1_000, relaunched.verifiedAt());
+    }
+
+    @Test public void refreshIsThrottled() {
+        FakeBilling b = new FakeBilling();
+        EntitlementCache c = new EntitlementCache(store(), b, DAY, MINUTE);
+        assertTrue(c.refreshIfStale(DAY));
+        assertFalse(c.refreshIfStale(DAY + 1));   // still running
+        b.answer();
+        assertFalse(c.refreshIfStale(DAY + 10 * MINUTE));
+        assertTrue(c.refreshIfStale(2 * DAY));
+        b.fail();
+        assertFalse(c.refreshIfStale(2 * DAY + MINUTE / 2)); // failed: wait out the retry interval
+        assertTrue(c.refreshIfStale(2 * DAY + MINUTE));
+        assertFalse(c.refresh(2 * DAY + MINUTE + 1)); // forced refresh still one at a time
+        b.answer();
+        assertTrue(c.refresh(2 * DAY + MINUTE + 2));
+        assertEquals(4, b.queries);
+    }
+
+    @Test public void reconcileReportsGainsAndRefunds() {
+        FakeBilling b = new FakeBilling();
+        EntitlementCache c = new EntitlementCache(store(), b, DAY, MINUTE);
+        List<String> changes = new ArrayList<>();
+        c.setListener((p, owned) -> changes.add((owned ? "+" : "-") + p));
+        c.grant("remove_ads");
+        c.grant("remove_ads");
+        c.refresh(DAY);
+        b.answer("skin_pack");
+        assertEquals(Arrays.asList("+remove_ads", "+skin_pack", "-remove_ads"), changes);
+        assertFalse(c.owns("remove_ads"));
+        assertTrue(c.owns("skin_pack"));
+    }
+
+    @Test public void failedQueryKeepsTheSnapshot() {
+        FakeBilling b = new FakeBilling();
+        EntitlementCache c = new EntitlementCache(store(), b, DAY, MINUTE);
+        c.grant("remove_ads");
+        c.refresh(DAY);
+        b.fail();
+        assertTrue(c.owns("remove_ads"));
+        assertEquals(0, c.verifiedAt());
+    }
+}
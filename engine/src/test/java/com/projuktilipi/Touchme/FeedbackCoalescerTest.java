@@ -0,0 +1,51 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FeedbackCoalescerTest {
+    private static final long MS = 1_000_000L;
+
+    private static class Log implements FeedbackCoalescer.Sink {
+        final List<String> out = new ArrayList<>();
+        @Override public void onFeedback(int channel, int count) { out.add(channel + "x" + count); }
+    }
+
+    @Test public void eventsInOneFrameMerge() {
+        FeedbackCoalescer f = new FeedbackCoalescer(0, 0);
+        Log log = new Log();
+        f.record(0); f.record(0); f.record(0); f.record(1);
+        assertEquals(2, f.flush(16 * MS, log));
+        assertEquals("[0x3, 1x1]", log.out.toString());
+        assertEquals(0, f.flush(32 * MS, log));
+    }
+
+    @Test public void rateLimitedEventsWaitAndKeepMerging() {
+        FeedbackCoalescer f = new FeedbackCoalescer(50 * MS);
+        Log log = new Log();
+        f.record(0);
+        f.flush(0, log);
+        f.record(0);
+        f.flush(16 * MS, log);
+        f.record(0);
+        f.flush(32 * MS, log);
+        assertEquals(2, f.pending(0));
+        f.flush(50 * MS, log);
+        assertEquals("[0x1, 0x2]", log.out.toString());
+        f.record(0);
+        f.clear();
+        assertEquals(0, f.pending(0));
+        f.record(0);
+        assertEquals(1, f.flush(51 * MS, log)); // clear forgets the interval too
+    }
+
+    @Test public void gainGrowsWithCountAndCaps() {
+        assertEquals(1f, FeedbackCoalescer.gain(1), 0f);
+        assertEquals(1.25f, FeedbackCoalescer.gain(2), 0f);
+        assertEquals(1.5f, FeedbackCoalescer.gain(9), 0f);
+    }
+}
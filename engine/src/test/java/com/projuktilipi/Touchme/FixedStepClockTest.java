@@ -0,0 +1,63 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FixedStepClockTest {
+    private static final long MS = 1_000_000L;
+
+    /** Same wall time at ~60, ~90 and ~120 Hz must produce the same number of steps. */
+    @Test public void stepCountIndependentOfRefreshRate() {
+        assertEquals(300, runFor(16 * MS));
+        assertEquals(300, runFor(12 * MS));
+        assertEquals(300, runFor(8 * MS));
+    }
+
+    private static long runFor(long framePeriod) {
+        FixedStepClock c = new FixedStepClock(8 * MS, 8);
+        long t = 0;
+        c.reset(t);
+        long steps = 0;
+        while (t < 2_400 * MS) {
+            t += framePeriod;
+            int n = c.advance(t);
+            for (int i = 0; i < n; i++) c.step();
+            steps += n;
+        }
+        return steps;
+    }
+
+    @Test public void alphaIsFractionOfStep() {
+        FixedStepClock c = new FixedStepClock(10 * MS, 8);
+        c.reset(0);
+        assertEquals(1, c.advance(15 * MS));
+        c.step();
+        assertEquals(0.5f, c.alpha(), 1e-4f);
+        assertEquals(15 * MS, c.renderTime());
+    }
+
+    @Test public void longStallIsCappedAndPauseIsNotSimulated() {
+        FixedStepClock c = new FixedStepClock(10 * MS, 4);
+        c.reset(0);
+        assertEquals(4, c.advance(1_000 * MS));
+        for (int i = 0; i < 4; i++) c.step();
+        assertTrue(c.droppedNanos() > 0);
+
+        long before = c.simTime();
+        c.resync(60_000 * MS); // came back from a minute-long pause
+        assertEquals(0, c.advance(60_000 * MS + 5 * MS));
+        assertEquals(before, c.simTime());
+    }
+
+    @Test public void framesBehindAnEarlierAdvanceAreIgnored() {
+        FixedStepClock c = new FixedStepClock(10 * MS, 8);
+        c.reset(0);
+        assertEquals(2, c.advance(25 * MS)); // a tap stepped ahead to its event time
+        c.step(); c.step();
+        assertEquals(0, c.advance(20 * MS)); // then the frame's earlier vsync time arrives
+        assertEquals(25 * MS, c.renderTime());
+        assertEquals(1, c.advance(36 * MS)); // and time is not counted twice
+        c.step();
+        assertEquals(36 * MS, c.renderTime());
+    }
+}
@@ -0,0 +1,32 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FrameStatsTest {
+    private static final long MS = 1_000_000L;
+
+    @Test public void jankAndDroppedAgainstRefreshPeriod() {
+        FrameStats s = new FrameStats();
+        s.setRefreshPeriod(16_666_667L);
+        s.record(16 * MS); // on time
+        s.record(17 * MS); // missed one vsync
+        s.record(40 * MS); // missed two
+        assertEquals(2, s.janky());
+        assertEquals(3, s.dropped());
+    }
+
+    @Test public void addAllMergesAndResetClears() {
+        FrameStats a = new FrameStats(), b = new FrameStats();
+        a.record(5 * MS);
+        b.record(500 * MS); // beyond the histogram: still counted, p100 = max
+        a.addAll(b);
+        assertEquals(2, a.count());
+        assertEquals(1, a.janky());
+        assertEquals(500 * MS, a.percentileNanos(100));
+        a.reset();
+        assertEquals(0, a.count());
+        assertEquals(0, a.janky());
+        assertEquals(0, a.percentileNanos(50));
+    }
+}
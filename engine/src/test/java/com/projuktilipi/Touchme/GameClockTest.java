@@ -0,0 +1,30 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GameClockTest {
+
+    @Test public void pauseFreezesAndResumeSkipsTheGap() {
+        GameClock c = new GameClock();
+        c.start(1_000);
+        assertEquals(500, c.now(1_500));
+        c.pause(2_000);
+        assertEquals(1_000, c.now(9_000));
+        c.resume(10_000);
+        assertEquals(1_000, c.now(10_000));
+        assertEquals(1_250, c.now(10_250));
+    }
+
+    @Test public void repeatedPauseOrResumeIsIgnored() {
+        GameClock c = new GameClock();
+        c.start(0);
+        c.resume(100);
+        c.pause(200);
+        c.pause(300);
+        c.resume(400);
+        c.resume(500);
+        assertEquals(300, c.now(500));
+        assertFalse(c.isPaused());
+    }
+}
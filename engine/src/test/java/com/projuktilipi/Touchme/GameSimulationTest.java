@@ -0,0 +1,148 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GameSimulationTest {
+    private static final long MS = 1_000_000L;
+
+    private static class Counts implements GameSimulation.Listener {
+        int hits, points, expired, missed, roundEnds;
+        final java.util.List<Integer> alarms = new java.util.ArrayList<>();
+        @Override public void onTargetHit(int p, int streak, boolean fever) { hits++; points += p; }
+        @Override public void onTargetExpired() { expired++; }
+        @Override public void onTapMissed() { missed++; }
+        @Override public void onRoundEnd() { roundEnds++; }
+        @Override public void onAlarm(int id) { alarms.add(id); }
+    }
+
+    private static GameSimulation newSim(long seed, GameMode mode, Counts c) {
+        GameSimulation sim = new GameSimulation(new FixedStepClock(), c);
+        sim.setConfig(GameConfig.forMode(mode));
+        sim.setSize(1080, 1920);
+        sim.start(0, seed);
+        return sim;
+    }
+
+    /** Tap the newest target every ~100 ms of a 60 s headless run. */
+    private static int play(long seed, Counts c) {
+        GameSimulation sim = newSim(seed, GameMode.TIME_ATTACK, c);
+        for (long t = 0, f = 0; t < 60_000 * MS; t += 16 * MS, f++) {
+            sim.step(t);
+            TargetStore ts = sim.targets();
+            if (f % 6 == 0 && ts.size() > 0) sim.tap(ts.cx[ts.size() - 1], ts.cy[ts.size() - 1]);
+        }
+        return c.points;
+    }
+
+    @Test public void sameSeedSameGame() {
+        Counts a = new Counts(), b = new Counts();
+        int pa = play(7, a);
+        assertTrue(pa > 0);
+        assertEquals(pa, play(7, b));
+        assertEquals(a.hits, b.hits);
+    }
+
+    @Test public void tapOnTargetHitsAndEmptyTapMissesInHardcore() {
+        Counts c = new Counts();
+        GameSimulation sim = newSim(1, GameMode.HARDCORE, c);
+        long t = 0;
+        while (sim.targets().size() == 0) sim.step(t += 8 * MS);
+        TargetStore ts = sim.targets();
+        assertTrue(sim.tap(ts.cx[0], ts.cy[0]));
+        assertEquals(1, c.hits);
+        assertEquals(1, sim.particles().liveBursts());
+        assertFalse(sim.tap(-500, -500));
+        assertEquals(1, c.missed);
+    }
+
+    @Test public void roundEndsInTheStepThatReachesIt() {
+        Counts c = new Counts();
+        GameSimulation sim = new GameSimulation(new FixedStepClock(), c);
+        sim.setSize(1080, 1920);
+        sim.start(0, 5, 60_000 * MS);
+        long t = 0;
+        while (c.roundEnds == 0) sim.step(t += 16 * MS);
+        assertTrue(sim.isEnded());
+        long endedBy = t;
+        assertTrue(endedBy >= 60_000 * MS && endedBy < 60_000 * MS + 17 * MS);
+        int live = sim.targets().size();
+        sim.step(t += 1000 * MS);
+        assertEquals(live, sim.targets().size()); // frozen
+        if (live > 0) assertFalse(sim.tap(sim.targets().cx[0], sim.targets().cy[0]));
+        assertEquals(1, c.roundEnds);
+    }
+
+    @Test public void remainingTimeCountsDownOnSimulationTime() {
+        Counts c = new Counts();
+        GameSimulation sim = newSim(5, GameMode.ENDLESS, c);
+        assertEquals(-1, sim.remainingNanos());
+        sim.start(0, 5, 10_000 * MS);
+        assertEquals(10_000 * MS, sim.remainingNanos());
+        for (long t = 0; t <= 4_000 * MS; t += 16 * MS) sim.step(t);
+        long left = sim.remainingNanos();
+        assertTrue(left > 5_900 * MS && left <= 6_000 * MS);
+        for (long t = 4_000 * MS; t <= 11_000 * MS; t += 16 * MS) sim.step(t);
+        assertEquals(0, sim.remainingNanos());
+        sim.reset();
+        assertEquals(-1, sim.remainingNanos());
+    }
+
+    @Test public void alarmsRepeatOnSimulationTime() {
+        Counts c = new Counts();
+        GameSimulation sim = newSim(6, GameMode.ENDLESS, c);
+        sim.setAlarm(2, 1000 * MS, 1000 * MS);
+        sim.setAlarm(3, 2500 * MS, 0);
+        for (long t = 0; t <= 5000 * MS; t += 16 * MS) sim.step(t);
+        assertEquals("[2, 2, 3, 2, 2]", c.alarms.toString()); // 1, 2, 2.5, 3, 4 s
+        sim.cancelAlarm(2);
+        for (long t = 5000 * MS; t <= 9000 * MS; t += 16 * MS) sim.step(t);
+        assertEquals(5, c.alarms.size());
+    }
+
+    @Test public void tapAtEventTimeScoresBeforeProcessingTime() {
+        Counts c = new Counts();
+        GameSimulation sim = newSim(4, GameMode.HARDCORE, c);
+        long t = 0;
+        while (sim.targets().size() == 0) sim.step(t += 8 * MS);
+        TargetStore ts = sim.targets();
+        assertEquals(sim.targetLifeNanos(), ts.life[0]);
+        long expiresAt = ts.bornAt[0] + ts.life[0];
+        while (t + 16 * MS < expiresAt - 2 * MS) sim.step(t += 16 * MS);
+        float x = ts.cx[0], y = ts.cy[0];
+        // the finger landed just before expiry; the tap only gets processed a frame later
+        assertTrue(sim.tap(x, y, expiresAt - 2 * MS));
+        assertEquals(0, c.expired);
+        assertEquals(expiresAt - 2 * MS, sim.renderTime());
+        sim.step(expiresAt + 14 * MS);
+        assertEquals(1, c.hits);
+        // a stale event time resolves at the current time instead of rewinding
+        assertFalse(sim.tap(-500, -500, 0));
+        assertEquals(expiresAt + 14 * MS, sim.renderTime());
+    }
+
+    @Test public void runSummaryCountsHitsAndMisses() {
+        Counts c = new Counts();
+        GameSimulation sim = newSim(3, GameMode.CHILL, c);
+        long t = 0;
+        while (sim.targets().size() == 0) sim.step(t += 8 * MS);
+        TargetStore ts = sim.targets();
+        sim.tap(ts.cx[0], ts.cy[0]);
+        sim.tap(-500, -500);
+        RunRecord r = sim.captureRun(GameMode.CHILL, 1234L);
+        assertEquals(1, r.hits);
+        assertEquals(1, r.misses); // chill never reports misses, but they still count
+        assertEquals(1, r.maxStreak);
+        assertEquals(sim.score(), r.score);
+        assertEquals(3, r.seed);
+        assertEquals(t / MS, r.durationMs);
+    }
+
+    @Test public void untappedTargetsExpireInHardcore() {
+        Counts c = new Counts();
+        GameSimulation sim = newSim(2, GameMode.HARDCORE, c);
+        for (long t = 0; t < 10_000 * MS; t += 16 * MS) sim.step(t);
+        assertTrue(c.expired > 0);
+        assertEquals(0, c.hits);
+    }
+}
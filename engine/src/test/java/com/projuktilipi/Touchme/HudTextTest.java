@@ -0,0 +1,63 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HudTextTest {
+
+    private static final int SCORE = 0, TIME = 1;
+
+    private static String text(HudText t, int field) {
+        return new String(t.chars(field), 0, t.length(field));
+    }
+
+    private static HudText hud() {
+        return new HudText(new String[] { "Score ", "" }, new String[] { "", "s" });
+    }
+
+    @Test public void formatsPrefixValueAndSuffix() {
+        HudText t = hud();
+        assertTrue(t.set(SCORE, 0));
+        assertTrue(t.set(TIME, 60));
+        assertEquals("Score 0", text(t, SCORE));
+        assertEquals("60s", text(t, TIME));
+        t.set(SCORE, 1_234_567);
+        assertEquals("Score 1234567", text(t, SCORE));
+        t.set(SCORE, Long.MAX_VALUE);
+        assertEquals("Score " + Long.MAX_VALUE, text(t, SCORE));
+    }
+
+    @Test public void onlyChangesAreReported() {
+        HudText t = hud();
+        t.set(SCORE, 5);
+        t.set(TIME, 9);
+        assertTrue(t.consumeDirty());
+        assertFalse(t.consumeDirty());
+        assertFalse(t.set(SCORE, 5));
+        assertFalse(t.consumeDirty());
+        assertTrue(t.set(TIME, 10));
+        assertTrue(t.consumeDirty());
+        assertEquals("10s", text(t, TIME));
+    }
+
+    @Test public void negativeHidesTheField() {
+        HudText t = hud();
+        t.set(TIME, 3);
+        assertTrue(t.set(TIME, -1));
+        assertEquals(0, t.length(TIME));
+        assertFalse(t.set(TIME, -7));
+        assertTrue(t.set(TIME, 2));
+        assertEquals("2s", text(t, TIME));
+    }
+
+    @Test public void infiniteShowsTheSignWithoutSuffix() {
+        HudText t = hud();
+        t.set(TIME, 5);
+        assertTrue(t.set(TIME, HudText.INFINITE));
+        assertEquals("\u221E", text(t, TIME));
+        assertFalse(t.set(TIME, HudText.INFINITE));
+        assertTrue(t.set(TIME, -1));
+        assertEquals(0, t.length(TIME));
+    }
+}
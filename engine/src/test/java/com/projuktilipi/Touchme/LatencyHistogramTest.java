@@ -0,0 +1,53 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    private static final long MS = 1_000_000L;
+
+    @Test public void percentilesAreBucketExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) h.record(i * MS / 10); // 0.1 .. 10 ms
+        assertEquals(100, h.count());
+        assertEquals(5_100_000L, h.percentileNanos(50)); // upper edge of the 5.0 ms bucket
+        assertEquals(9_600_000L, h.percentileNanos(95));
+        assertEquals(10 * MS, h.maxNanos());
+    }
+
+    @Test public void percentileNeverExceedsMax() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) h.record(8 * MS);
+        h.record(20 * MS);
+        h.record(20 * MS + 30_000);
+        assertEquals(8_100_000L, h.percentileNanos(95));
+        assertEquals(20 * MS + 30_000, h.percentileNanos(99)); // not the bucket's 20.1 ms edge
+    }
+
+    @Test public void addAllMerges() {
+        LatencyHistogram a = new LatencyHistogram(), b = new LatencyHistogram();
+        a.record(1 * MS);
+        b.record(3 * MS);
+        b.record(500 * MS);
+        a.addAll(b);
+        assertEquals(3, a.count());
+        assertEquals(500 * MS, a.maxNanos());
+        assertEquals(3_100_000L, a.percentileNanos(50));
+    }
+
+    @Test public void outliersAndNegativeSamples() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        assertEquals(0, h.count());
+        assertEquals(0, h.percentileNanos(50));
+        h.record(2 * MS);
+        h.record(250 * MS);
+        assertEquals(250 * MS, h.percentileNanos(99)); // overflow bucket reports the real max
+        assertEquals(126 * MS, h.meanNanos());
+        StringBuilder sb = new StringBuilder();
+        h.appendJson(sb);
+        assertTrue(sb.toString(), sb.toString().contains("\"max_ms\":250.0"));
+        h.reset();
+        assertEquals(0, h.count());
+    }
+}
@@ -0,0 +1,62 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class ParticleSystemTest {
+    private static final long MS = 1_000_000L;
+
+    @Test public void burstsExpireAfterLifetime() {
+        ParticleSystem ps = new ParticleSystem(64, 380 * MS);
+        Random rnd = new Random(1);
+        ps.emit(100, 100, 0xFFFF0000, 0, rnd);
+        ps.emit(200, 200, 0xFF00FF00, 100 * MS, rnd);
+        assertEquals(2 * ParticleSystem.PER_BURST, ps.liveParticles());
+
+        ps.step(400 * MS, 0.01f);
+        assertEquals(1, ps.liveBursts());
+        assertEquals(0xFF00FF00, ps.burstColor(ps.firstBurst()));
+
+        ps.step(500 * MS, 0.01f);
+        assertEquals(0, ps.liveParticles());
+    }
+
+    @Test public void fillPointsMovesAlongVelocity() {
+        ParticleSystem ps = new ParticleSystem(32, 380 * MS);
+        ps.emit(50, 50, 0, 0, new Random(2));
+        float[] a = new float[2 * ParticleSystem.PER_BURST];
+        float[] b = new float[2 * ParticleSystem.PER_BURST];
+        assertEquals(2 * ParticleSystem.PER_BURST, ps.fillPoints(ps.firstBurst(), 0f, a));
+        ps.step(MS, 0.1f);
+        ps.fillPoints(ps.firstBurst(), 0f, b);
+        for (int i = 0; i < a.length; i++) assertEquals(50f, a[i], 0f);
+        boolean moved = false;
+        for (int i = 0; i < b.length; i++) moved |= b[i] != 50f;
+        assertTrue(moved);
+    }
+
+    @Test public void budgetThinsThenRetiresButNeverOverflows() {
+        ParticleSystem ps = new ParticleSystem(64, 380 * MS);
+        Random rnd = new Random(3);
+        for (int i = 0; i < 100; i++) {
+            ps.emit(0, 0, i, i, rnd);
+            assertTrue(ps.liveParticles() <= ps.budget());
+        }
+        assertTrue(ps.thinnedBursts() > 0);
+        assertTrue(ps.retiredBursts() > 0);
+        // the newest burst always survives
+        assertEquals(99, ps.burstColor(ps.endBurst() - 1));
+    }
+
+    @Test public void budgetIsExactNotRoundedUp() {
+        ParticleSystem ps = new ParticleSystem(384, 380 * MS); // ring holds 512
+        assertEquals(384, ps.budget());
+        Random rnd = new Random(4);
+        for (int i = 0; i < 200; i++) {
+            ps.emit(0, 0, 0, 0, rnd);
+            assertTrue(ps.liveParticles() <= 384);
+        }
+        assertTrue(ps.retiredBursts() > 0);
+    }
+}
@@ -0,0 +1,51 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class PcmClipTest {
+
+    private static byte[] wav(int format, int channels, int rate, int bits, short... samples) {
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        int dataLen = samples.length * 2;
+        ascii(b, "RIFF"); le32(b, 36 + dataLen); ascii(b, "WAVE");
+        ascii(b, "LIST"); le32(b, 3); b.write(1); b.write(2); b.write(3); b.write(0); // odd chunk + pad
+        ascii(b, "fmt "); le32(b, 16);
+        le16(b, format); le16(b, channels); le32(b, rate);
+        le32(b, rate * channels * bits / 8); le16(b, channels * bits / 8); le16(b, bits);
+        ascii(b, "data"); le32(b, dataLen);
+        for (short s : samples) le16(b, s);
+        return b.toByteArray();
+    }
+
+    private static void ascii(ByteArrayOutputStream b, String s) { for (char c : s.toCharArray()) b.write(c); }
+    private static void le16(ByteArrayOutputStream b, int v) { b.write(v); b.write(v >> 8); }
+    private static void le32(ByteArrayOutputStream b, int v) { le16(b, v); le16(b, v >> 16); }
+
+    @Test public void stereoAtMixerRateIsTakenAsIs() {
+        PcmClip c = PcmClip.fromWav(wav(1, 2, 48000, 16, (short) 1, (short) -2, (short) 300, (short) -32768), 48000);
+        assertEquals(2, c.frames);
+        assertArrayEquals(new short[] { 1, -2, 300, -32768 }, c.samples);
+    }
+
+    @Test public void monoIsDuplicatedAndResampled() {
+        PcmClip c = PcmClip.fromWav(wav(1, 1, 24000, 16, (short) 0, (short) 100, (short) 200, (short) 300), 48000);
+        assertEquals(8, c.frames);
+        assertEquals(50, c.samples[2]);  // halfway between the first two
+        assertEquals(50, c.samples[3]);
+        assertEquals(100, c.samples[4]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCompressed() {
+        PcmClip.fromWav(wav(2, 1, 44100, 4, (short) 0), 48000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyFile() {
+        PcmClip.fromWav(new byte[0], 48000);
+    }
+}
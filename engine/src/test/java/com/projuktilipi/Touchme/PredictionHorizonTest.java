@@ -0,0 +1,29 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PredictionHorizonTest {
+    private static final long MS = 1_000_000L;
+
+    @Test public void offUntilMeasuredAndCapped() {
+        PredictionHorizon h = new PredictionHorizon();
+        assertEquals(0, h.horizonNanos(48 * MS));
+        h.record(30 * MS);
+        assertEquals(30 * MS, h.horizonNanos(48 * MS));
+        assertEquals(20 * MS, h.horizonNanos(20 * MS));
+        assertEquals(0, h.horizonNanos(0));
+    }
+
+    @Test public void oneSlowFrameMovesTheEstimateAnEighth() {
+        PredictionHorizon h = new PredictionHorizon();
+        h.record(16 * MS);
+        h.record(96 * MS);
+        assertEquals(26 * MS, h.estimateNanos());
+        for (int i = 0; i < 100; i++) h.record(16 * MS);
+        assertEquals(16 * MS, h.estimateNanos(), MS / 10);
+        h.record(-1);
+        h.reset();
+        assertEquals(0, h.estimateNanos());
+    }
+}
@@ -0,0 +1,75 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class ReplayTest {
+    private static final long MS = 1_000_000L;
+
+    private static final GameSimulation.Listener NONE = new GameSimulation.Listener() {
+        @Override public void onTargetHit(int points, int streak, boolean fever) { }
+        @Override public void onTargetExpired() { }
+        @Override public void onTapMissed() { }
+        @Override public void onRoundEnd() { }
+        @Override public void onAlarm(int id) { }
+    };
+
+    /** A live-like round: jittery frame times, a huge timebase, taps between frames. */
+    private static GameSimulation playLive(long seed) {
+        GameSimulation sim = new GameSimulation(new FixedStepClock(), NONE);
+        sim.setConfig(GameConfig.forMode(GameMode.TIME_ATTACK));
+        sim.setSize(1080, 2280);
+        long t = 123_456_789_000L;
+        sim.start(t, seed);
+        Random frames = new Random(seed);
+        for (int f = 0; f < 3000; f++) {
+            t += (f % 97 == 0) ? 150 * MS : 14 * MS + frames.nextInt(5_000_000); // the odd stall
+            sim.step(t);
+            TargetStore ts = sim.targets();
+            if (f % 5 == 0 && ts.size() > 0) sim.tap(ts.cx[0] + 3.3f, ts.cy[0] - 1.7f);
+            if (f % 11 == 0) sim.tap(frames.nextFloat() * 1080, frames.nextFloat() * 2280);
+        }
+        return sim;
+    }
+
+    @Test public void encodeDecodeRoundTrip() {
+        Replay r = playLive(5).captureReplay(GameMode.TIME_ATTACK);
+        assertTrue(r.tapCount() > 100);
+        byte[] bytes = r.encode();
+        assertEquals(r, Replay.decode(bytes));
+        assertTrue(bytes.length < 10 * r.tapCount());
+    }
+
+    @Test public void resimulationMatchesLiveScore() {
+        GameSimulation live = playLive(9);
+        assertTrue(live.score() > 0);
+        Replay r = Replay.decode(live.captureReplay(GameMode.TIME_ATTACK).encode());
+        assertEquals(live.score(), ReplayVerifier.resimulate(r));
+        assertTrue(ReplayVerifier.verify(r, live.score()));
+        assertFalse(ReplayVerifier.verify(r, live.score() + 1));
+    }
+
+    @Test public void corruptDataIsRejected() {
+        byte[] bytes = playLive(3).captureReplay(GameMode.TIME_ATTACK).encode();
+        try {
+            Replay.decode(Arrays.copyOf(bytes, bytes.length / 2));
+            fail();
+        } catch (IllegalArgumentException expected) { }
+        bytes[0] = 'X';
+        try {
+            Replay.decode(bytes);
+            fail();
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test public void streamsAreIndependentAndRepeatable() {
+        SplitRandom a = new SplitRandom(SplitRandom.streamSeed(42, 0));
+        SplitRandom b = new SplitRandom(SplitRandom.streamSeed(42, 0));
+        SplitRandom c = new SplitRandom(SplitRandom.streamSeed(42, 1));
+        long first = a.nextLong();
+        assertEquals(first, b.nextLong());
+        assertNotEquals(first, c.nextLong());
+    }
+}
@@ -0,0 +1,121 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class RunHistoryTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static RunRecord run(GameMode mode, int score) {
+        return new RunRecord(mode, score, 45_000, 7, score, 3, 99L, 1_700_000_000_000L);
+    }
+
+    @Test public void aggregatesPerMode() throws IOException {
+        RunHistory h = new RunHistory(tmp.getRoot());
+        h.append(run(GameMode.ENDLESS, 10));
+        h.append(run(GameMode.ENDLESS, 30));
+        h.append(run(GameMode.HARDCORE, 5));
+        RunHistory.ModeStats e = h.stats(GameMode.ENDLESS);
+        assertEquals(2, e.count());
+        assertEquals(30, e.best());
+        assertEquals(20.0, e.average(), 1e-9);
+        assertEquals(20.0, e.trend(), 1e-9);
+        assertEquals(1, h.stats(GameMode.HARDCORE).count());
+        assertEquals(0, h.stats(GameMode.CHILL).count());
+    }
+
+    @Test public void handedOutStatsDontChange() throws IOException {
+        RunHistory h = new RunHistory(tmp.getRoot());
+        h.append(run(GameMode.ENDLESS, 10));
+        RunHistory.ModeStats before = h.stats(GameMode.ENDLESS);
+        h.append(run(GameMode.ENDLESS, 50));
+        assertEquals(1, before.count());
+        assertEquals(10, before.best());
+        assertEquals(2, h.stats(GameMode.ENDLESS).count());
+    }
+
+    @Test public void trendUsesRecentWindowOnly() throws IOException {
+        RunHistory h = new RunHistory(tmp.getRoot());
+        for (int i = 0; i < 100; i++) h.append(run(GameMode.CHILL, i < 90 ? 1000 : 10));
+        RunHistory.ModeStats s = h.stats(GameMode.CHILL);
+        assertEquals(RunHistory.TREND_WINDOW, s.recentScores().length);
+        assertTrue(s.trend() < 0);
+        assertEquals(1000, s.best());
+    }
+
+    @Test public void reopenUsesSnapshotAndLogTail() throws IOException {
+        RunHistory h = new RunHistory(tmp.getRoot());
+        h.append(run(GameMode.STORY, 4));
+        h.append(run(GameMode.STORY, 8));
+        // a record that made it to the log but not into the snapshot (crash in between)
+        File agg = new File(tmp.getRoot(), "runs.agg");
+        byte[] snapshot = readAll(agg);
+        h.append(run(GameMode.STORY, 12));
+        try (FileOutputStream out = new FileOutputStream(agg)) { out.write(snapshot); }
+
+        RunHistory r = new RunHistory(tmp.getRoot());
+        r.open();
+        assertEquals(3, r.stats(GameMode.STORY).count());
+        assertEquals(12, r.stats(GameMode.STORY).best());
+    }
+
+    @Test public void tornTailIsDropped() throws IOException {
+        RunHistory h = new RunHistory(tmp.getRoot());
+        h.append(run(GameMode.TIME_ATTACK, 20));
+        h.append(run(GameMode.TIME_ATTACK, 25));
+        File log = new File(tmp.getRoot(), "runs-0.log");
+        try (RandomAccessFile f = new RandomAccessFile(log, "rw")) {
+            f.setLength(RunRecord.BYTES + 10); // second record half-written
+        }
+        new File(tmp.getRoot(), "runs.agg").delete();
+
+        RunHistory r = new RunHistory(tmp.getRoot());
+        r.open();
+        assertEquals(1, r.stats(GameMode.TIME_ATTACK).count());
+        assertEquals(RunRecord.BYTES, log.length());
+        r.append(run(GameMode.TIME_ATTACK, 30));
+        assertEquals(2, r.stats(GameMode.TIME_ATTACK).count());
+    }
+
+    @Test public void rotationKeepsAggregates() throws IOException {
+        RunHistory h = new RunHistory(tmp.getRoot(), 4);
+        for (int i = 1; i <= 13; i++) h.append(run(GameMode.ENDLESS, i));
+        assertFalse(new File(tmp.getRoot(), "runs-1.log").exists()); // only current + previous kept
+        assertTrue(new File(tmp.getRoot(), "runs-2.log").exists());
+        assertTrue(new File(tmp.getRoot(), "runs-3.log").exists());
+
+        RunHistory r = new RunHistory(tmp.getRoot(), 4);
+        r.open();
+        assertEquals(13, r.stats(GameMode.ENDLESS).count());
+        assertEquals(13, r.stats(GameMode.ENDLESS).best());
+        assertEquals(7.0, r.stats(GameMode.ENDLESS).average(), 1e-9);
+    }
+
+    @Test public void corruptSnapshotFallsBackToRescan() throws IOException {
+        RunHistory h = new RunHistory(tmp.getRoot());
+        h.append(run(GameMode.HARDCORE, 3));
+        h.append(run(GameMode.HARDCORE, 9));
+        try (FileOutputStream out = new FileOutputStream(new File(tmp.getRoot(), "runs.agg"))) {
+            out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        }
+        RunHistory r = new RunHistory(tmp.getRoot());
+        r.open();
+        assertEquals(2, r.stats(GameMode.HARDCORE).count());
+        assertEquals(9, r.stats(GameMode.HARDCORE).best());
+    }
+
+    private static byte[] readAll(File f) throws IOException {
+        byte[] b = new byte[(int) f.length()];
+        try (RandomAccessFile r = new RandomAccessFile(f, "r")) { r.readFully(b); }
+        return b;
+    }
+}
@@ -0,0 +1,157 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScoreOutboxTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Local fake service: calls wait until the test answers them. */
+    private static class FakeService implements ScoreOutbox.Transport {
+        boolean ready = true;
+        final List<String> calls = new ArrayList<>();
+        final List<ScoreOutbox.Done> pending = new ArrayList<>();
+        @Override public boolean isReady() { return ready; }
+        @Override public void submitScore(String lb, long score, ScoreOutbox.Done done) {
+            calls.add(lb + "=" + score);
+            pending.add(done);
+        }
+        @Override public void unlock(String ach, ScoreOutbox.Done done) {
+            calls.add(ach);
+            pending.add(done);
+        }
+        void answerAll(boolean ok) {
+            while (!pending.isEmpty()) pending.remove(0).onResult(ok);
+        }
+    }
+
+    private ScoreOutbox outbox(FakeService s) {
+        return new ScoreOutbox(new File(tmp.getRoot(), "outbox"), s, 2, 1_000, 4_000);
+    }
+
+    @Test public void keepsOnlyTheBestScorePerLeaderboard() {
+        FakeService s = new FakeService();
+        ScoreOutbox o = outbox(s);
+        assertTrue(o.submitScore("lb", 10));
+        assertTrue(o.submitScore("lb", 30));
+        assertFalse(o.submitScore("lb", 20));
+        assertTrue(o.unlock("ach"));
+        assertFalse(o.unlock("ach"));
+        assertEquals(2, o.pending());
+        assertEquals(30, o.pendingScore("lb"));
+    }
+
+    @Test public void waitsForTheTransportAndSendsInBatches() {
+        FakeService s = new FakeService();
+        ScoreOutbox o = outbox(s);
+        o.submitScore("a", 1);
+        o.submitScore("b", 2);
+        o.unlock("x");
+        s.ready = false;
+        assertEquals(0, o.flush(0));
+        assertTrue(s.calls.isEmpty());
+
+        s.ready = true;
+        assertEquals(2, o.flush(0));
+        assertEquals(0, o.flush(0)); // batch still in flight
+        s.answerAll(true);           // next batch goes straight away
+        assertEquals(3, s.calls.size());
+        assertEquals("x", s.calls.get(2));
+        s.answerAll(true);
+        assertEquals(0, o.pending());
+        assertEquals(3, o.sentCount());
+    }
+
+    @Test public void higherScoreQueuedDuringSendStaysQueued() {
+        FakeService s = new FakeService();
+        ScoreOutbox o = outbox(s);
+        o.submitScore("lb", 10);
+        o.flush(0);
+        o.submitScore("lb", 50);
+        s.answerAll(true);
+        assertEquals(2, s.calls.size());
+        assertEquals("lb=50", s.calls.get(1));
+        s.answerAll(true);
+        assertEquals(0, o.pending());
+    }
+
+    @Test public void failedBatchBacksOffAndSuccessResets() {
+        FakeService s = new FakeService();
+        ScoreOutbox o = outbox(s);
+        o.submitScore("lb", 1);
+        o.flush(100);
+        s.answerAll(false);
+        assertEquals(1_100, o.retryAt());
+        assertEquals(0, o.flush(1_099));
+        assertEquals(1, o.flush(1_100));
+        s.answerAll(false);
+        assertEquals(3_100, o.retryAt());
+        o.flush(3_100);
+        s.answerAll(true);
+        assertEquals(0, o.retryAt());
+        assertEquals(0, o.pending());
+        assertEquals(2, o.failedCount());
+    }
+
+    @Test public void wakeSkipsTheBackoff() {
+        FakeService s = new FakeService();
+        ScoreOutbox o = outbox(s);
+        o.submitScore("lb", 1);
+        s.ready = false;
+        o.flush(0);
+        s.ready = true;
+        o.flush(0);
+        s.answerAll(false);         // went out just as the network dropped
+        assertEquals(0, o.flush(500));
+        assertEquals(1, o.wake(500));
+    }
+
+    @Test public void queueSurvivesRestart() {
+        FakeService s = new FakeService();
+        ScoreOutbox o = outbox(s);
+        o.submitScore("lb", 42);
+        o.unlock("ach");
+        ScoreOutbox reopened = outbox(s);
+        reopened.load();
+        assertEquals(42, reopened.pendingScore("lb"));
+        assertTrue(reopened.isUnlockPending("ach"));
+
+        reopened.flush(0);
+        s.answerAll(true);
+        ScoreOutbox again = outbox(s);
+        again.load();
+        assertEquals(0, again.pending());
+        assertEquals(42, again.confirmedScore("lb"));
+    }
+
+    @Test public void scoreAlreadyConfirmedIsNotResent() {
+        FakeService s = new FakeService();
+        ScoreOutbox o = outbox(s);
+        o.submitScore("lb", 42);
+        o.flush(0);
+        s.answerAll(true);
+        assertFalse(o.submitScore("lb", 42)); // the same best again after the next run
+        assertFalse(o.submitScore("lb", 7));
+        assertTrue(o.submitScore("lb", 43));
+    }
+
+    @Test public void corruptFileIsAnEmptyQueue() throws IOException {
+        File f = new File(tmp.getRoot(), "outbox");
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        }
+        ScoreOutbox o = outbox(new FakeService());
+        o.load();
+        assertEquals(0, o.pending());
+    }
+}
@@ -0,0 +1,101 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class SettingsStoreTest {
+
+    private static final SettingsStore.Key<Integer> BEST = SettingsStore.Key.integer("best", 0);
+    private static final SettingsStore.Key<Boolean> SFX = SettingsStore.Key.bool("sfx_enabled", true);
+    private static final SettingsStore.Key<Long> PLAYED = SettingsStore.Key.int64("played_ms", 0L);
+    private static final SettingsStore.Key<String> NAME = SettingsStore.Key.string("name", null);
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static class Queue implements Executor {
+        final ArrayDeque<Runnable> q = new ArrayDeque<>();
+        @Override public void execute(Runnable r) { q.add(r); }
+        void drain() { while (!q.isEmpty()) q.poll().run(); }
+    }
+
+    @Test public void defaultsWhenEmpty() {
+        SettingsStore s = new SettingsStore(new File(tmp.getRoot(), "s.bin"), new Queue());
+        assertFalse(s.load());
+        assertEquals(0, (int) s.get(BEST));
+        assertTrue(s.get(SFX));
+        assertNull(s.get(NAME));
+    }
+
+    @Test public void burstOfChangesIsOneWrite() {
+        File f = new File(tmp.getRoot(), "s.bin");
+        Queue q = new Queue();
+        SettingsStore s = new SettingsStore(f, q);
+        s.set(BEST, 10);
+        s.set(BEST, 12);
+        s.set(SFX, false);
+        s.set(PLAYED, 90_000L);
+        assertEquals(1, q.q.size());
+        assertFalse(f.exists());
+        q.drain();
+        assertTrue(f.exists());
+        assertFalse(s.isDirty());
+
+        s.set(BEST, 12); // unchanged: nothing to write
+        assertTrue(q.q.isEmpty());
+    }
+
+    @Test public void roundTrip() {
+        File f = new File(tmp.getRoot(), "s.bin");
+        SettingsStore s = new SettingsStore(f, Runnable::run);
+        s.set(BEST, 42);
+        s.set(SFX, false);
+        s.set(PLAYED, 1L << 40);
+        s.set(NAME, "\u00dcn\u00efcode");
+
+        SettingsStore r = new SettingsStore(f, Runnable::run);
+        assertTrue(r.load());
+        assertEquals(42, (int) r.get(BEST));
+        assertFalse(r.get(SFX));
+        assertEquals(1L << 40, (long) r.get(PLAYED));
+        assertEquals("\u00dcn\u00efcode", r.get(NAME));
+    }
+
+    @Test public void migrateKeepsExistingValues() {
+        SettingsStore s = new SettingsStore(new File(tmp.getRoot(), "s.bin"), Runnable::run);
+        s.set(BEST, 50);
+        Map<String, Object> legacy = new HashMap<>();
+        legacy.put("best", 7);
+        legacy.put("sfx_enabled", false);
+        legacy.put("volume", 0.5f); // unsupported type
+        assertEquals(1, s.migrate(legacy));
+        assertEquals(50, (int) s.get(BEST));
+        assertFalse(s.get(SFX));
+    }
+
+    @Test public void wrongTypeReadsAsDefault() {
+        SettingsStore s = new SettingsStore(new File(tmp.getRoot(), "s.bin"), Runnable::run);
+        s.set(SettingsStore.Key.string("best", null), "oops");
+        assertEquals(0, (int) s.get(BEST));
+    }
+
+    @Test public void corruptFileLoadsEmpty() throws IOException {
+        File f = new File(tmp.getRoot(), "s.bin");
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(new byte[] { 'T', 'M', 'S', 1, 0, 5, 0 });
+        }
+        SettingsStore s = new SettingsStore(f, Runnable::run);
+        assertFalse(s.load());
+        assertEquals(0, (int) s.get(BEST));
+    }
+}
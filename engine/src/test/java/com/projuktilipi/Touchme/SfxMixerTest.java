@@ -0,0 +1,74 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SfxMixerTest {
+
+    /** A stereo clip of {@code frames} frames at a constant level. */
+    private static PcmClip dc(int frames, int level) {
+        short[] s = new short[frames * 2];
+        java.util.Arrays.fill(s, (short) level);
+        return new PcmClip(s);
+    }
+
+    @Test public void voicesSumAndFinish() {
+        SfxMixer m = new SfxMixer(2, 4, 64);
+        m.setClip(0, dc(10, 1000), 1);
+        m.setClip(1, dc(4, 200), 1);
+        m.play(0, 1f);
+        m.play(1, 0.5f);
+        short[] out = new short[16];
+        assertEquals(1, m.mix(out, 8)); // the 4-frame clip ran out
+        assertEquals(1100, out[0]);
+        assertEquals(1100, out[7]);
+        assertEquals(1000, out[8]);
+        assertEquals(0, m.mix(out, 8));
+        assertEquals(1000, out[3]);  // frames 8, 9
+        assertEquals(0, out[4]);     // then silence
+    }
+
+    @Test public void loudMixClampsInsteadOfWrapping() {
+        SfxMixer m = new SfxMixer(1, 4, 8);
+        m.setClip(0, dc(8, 30000), 1);
+        m.play(0, 1f);
+        m.play(0, 1f);
+        short[] out = new short[16];
+        m.mix(out, 8);
+        assertEquals(Short.MAX_VALUE, out[0]);
+    }
+
+    @Test public void fullMixerStealsLowestPriorityOldestFirst() {
+        SfxMixer m = new SfxMixer(2, 2, 16);
+        m.setClip(0, dc(100, 10), 1);  // tap
+        m.setClip(1, dc(100, 100), 5); // power
+        short[] out = new short[32];
+        m.play(0, 1f);
+        m.mix(out, 16);
+        m.play(0, 1f);
+        m.mix(out, 1);
+        assertEquals(20, out[0]);
+        m.play(1, 1f); // takes the older tap
+        m.mix(out, 1);
+        assertEquals(110, out[0]);
+        assertEquals(1, m.stolenVoices());
+        m.play(1, 1f); // takes the other tap
+        m.play(0, 1f); // outranks nothing: dropped
+        assertEquals(2, m.mix(out, 1));
+        assertEquals(200, out[0]);
+        assertEquals(1, m.droppedSounds());
+    }
+
+    @Test public void emptySlotAndStopAll() {
+        SfxMixer m = new SfxMixer(2, 2, 4);
+        m.play(1, 1f);
+        short[] out = new short[8];
+        assertEquals(0, m.mix(out, 4));
+        m.setClip(0, dc(100, 5), 1);
+        m.play(0, 1f);
+        assertEquals(1, m.mix(out, 4));
+        m.stopAll();
+        assertEquals(0, m.mix(out, 4));
+        assertEquals(0, out[0]);
+    }
+}
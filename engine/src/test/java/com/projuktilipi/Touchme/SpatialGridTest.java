@@ -0,0 +1,60 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class SpatialGridTest {
+    @Test public void matchesLinearScan() {
+        Random rnd = new Random(7);
+        TargetStore s = new TargetStore(64);
+        for (int i = 0; i < 40; i++) {
+            float r = 20 + rnd.nextInt(30);
+            s.add(r + rnd.nextInt(1000), r + rnd.nextInt(1800), r, 0, 0, i, 0);
+        }
+        SpatialGrid g = new SpatialGrid(64);
+        g.configure(1080, 1920, 100);
+        g.rebuild(s);
+        for (int k = 0; k < 2000; k++) {
+            float x = rnd.nextInt(1080), y = rnd.nextInt(1920);
+            assertEquals(s.hitTest(x, y), g.query(s, x, y));
+        }
+    }
+
+    @Test public void overlappingTargetsResolveToTopmost() {
+        TargetStore s = new TargetStore(4);
+        s.add(100, 100, 40, 0, 0, 1, 0);
+        s.add(110, 110, 40, 0, 0, 2, 0);
+        SpatialGrid g = new SpatialGrid(4);
+        g.configure(400, 400, 80);
+        g.rebuild(s);
+        assertEquals(1, g.query(s, 105, 105));
+    }
+
+    @Test public void newestWinsAfterSwapRemove() {
+        TargetStore s = new TargetStore(4);
+        s.add(300, 300, 10, 0, 0, 1, 0);
+        s.add(100, 100, 40, 0, 0, 2, 0);
+        s.add(110, 110, 40, 0, 0, 3, 0);
+        s.removeAt(0); // 3 swaps into index 0, below 2 by index
+        SpatialGrid g = new SpatialGrid(4);
+        g.configure(400, 400, 80);
+        g.rebuild(s);
+        assertEquals(3, s.color[g.query(s, 105, 105)]);
+        assertEquals(s.hitTest(105, 105), g.query(s, 105, 105));
+    }
+
+    @Test public void removedTargetsAreSkippedBeforeRebuild() {
+        TargetStore s = new TargetStore(4);
+        s.add(100, 100, 40, 0, 0, 1, 0);
+        s.add(300, 300, 40, 0, 0, 2, 0);
+        SpatialGrid g = new SpatialGrid(4);
+        g.configure(400, 400, 80);
+        g.rebuild(s);
+
+        s.removeAt(0); // target 2 swaps into index 0
+        assertEquals(-1, g.query(s, 100, 100));
+        assertEquals(0, g.query(s, 300, 300));
+        assertEquals(2, s.color[0]);
+    }
+}
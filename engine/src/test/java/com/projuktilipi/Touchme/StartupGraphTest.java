@@ -0,0 +1,82 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class StartupGraphTest {
+
+    /** Runs tasks only when drained, like a Handler that hasn't had its turn yet. */
+    private static class Queue implements Executor {
+        final ArrayDeque<Runnable> q = new ArrayDeque<>();
+        @Override public void execute(Runnable r) { q.add(r); }
+        void drain() { while (!q.isEmpty()) q.poll().run(); }
+    }
+
+    @Test public void runsInDependencyOrder() {
+        List<String> order = new ArrayList<>();
+        StartupGraph g = new StartupGraph(null)
+                .task("c", StartupGraph.On.MAIN, () -> order.add("c"), "a", "b")
+                .task("a", StartupGraph.On.BACKGROUND, () -> order.add("a"))
+                .task("b", StartupGraph.On.MAIN, () -> order.add("b"), "a");
+        Queue q = new Queue();
+        g.start(q, q);
+        q.drain();
+        assertEquals("[a, b, c]", order.toString());
+        assertTrue(g.isFinished());
+    }
+
+    @Test public void signalHoldsBackDependents() {
+        List<String> order = new ArrayList<>();
+        int[] finished = { 0 };
+        StartupGraph g = new StartupGraph(gr -> finished[0]++)
+                .signal("first_frame")
+                .task("early", StartupGraph.On.BACKGROUND, () -> order.add("early"))
+                .task("late", StartupGraph.On.MAIN, () -> order.add("late"), "first_frame");
+        Queue q = new Queue();
+        g.start(q, q);
+        q.drain();
+        assertEquals("[early]", order.toString());
+        assertFalse(g.isFinished());
+
+        g.complete("first_frame");
+        q.drain();
+        assertEquals("[early, late]", order.toString());
+        assertEquals(1, finished[0]);
+
+        g.complete("first_frame"); // repeat is a no-op
+        assertEquals(1, finished[0]);
+    }
+
+    @Test public void failureStillReleasesDependents() {
+        List<String> order = new ArrayList<>();
+        StartupGraph g = new StartupGraph(null)
+                .task("ads", StartupGraph.On.BACKGROUND, () -> { throw new RuntimeException("no network"); })
+                .task("after", StartupGraph.On.MAIN, () -> order.add("after"), "ads");
+        g.start(Runnable::run, Runnable::run);
+        assertEquals("[after]", order.toString());
+        assertTrue(g.isDone("ads"));
+        assertTrue(g.trace().contains("ads [") && g.trace().contains("FAILED"));
+        assertTrue(g.finishedAtMillis("after") >= 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownDependencyThrows() {
+        new StartupGraph(null)
+                .task("a", StartupGraph.On.MAIN, () -> { }, "missing")
+                .start(Runnable::run, Runnable::run);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cycleThrows() {
+        new StartupGraph(null)
+                .task("a", StartupGraph.On.MAIN, () -> { }, "b")
+                .task("b", StartupGraph.On.MAIN, () -> { }, "a")
+                .start(Runnable::run, Runnable::run);
+    }
+}
@@ -0,0 +1,32 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TapQueueTest {
+    @Test public void drainsInOrder() {
+        TapQueue q = new TapQueue(4);
+        assertTrue(q.offer(1, 2, 10));
+        assertTrue(q.offer(3, 4, 20));
+        final StringBuilder sb = new StringBuilder();
+        int n = q.drain((x, y, t) -> sb.append((int) x).append(',').append((int) y).append('@').append(t).append(' '));
+        assertEquals(2, n);
+        assertEquals("1,2@10 3,4@20 ", sb.toString());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test public void dropsWhenFullAndWrapsAround() {
+        TapQueue q = new TapQueue(3); // rounds up to 4
+        assertEquals(4, q.capacity());
+        for (int i = 0; i < 4; i++) assertTrue(q.offer(i, i, i));
+        assertFalse(q.offer(9, 9, 9));
+        final int[] sum = {0};
+        q.drain((x, y, t) -> sum[0] += (int) t);
+        assertEquals(0 + 1 + 2 + 3, sum[0]);
+        // slots are reused after a drain
+        for (int i = 0; i < 4; i++) assertTrue(q.offer(i, i, 100 + i));
+        sum[0] = 0;
+        q.drain((x, y, t) -> sum[0] += (int) t);
+        assertEquals(400 + 6, sum[0]);
+    }
+}
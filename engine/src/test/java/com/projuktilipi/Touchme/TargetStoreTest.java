@@ -0,0 +1,86 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TargetStoreTest {
+    @Test public void swapRemoveKeepsHandlesValid() {
+        TargetStore s = new TargetStore(8);
+        int a = s.add(10, 10, 5, 0, 0, 1, 0);
+        int b = s.add(20, 20, 5, 0, 0, 2, 0);
+        int c = s.add(30, 30, 5, 0, 0, 3, 0);
+
+        s.removeAt(s.indexOf(a)); // c moves into a's slot
+        assertEquals(2, s.size());
+        assertEquals(-1, s.indexOf(a));
+        assertEquals(0, s.indexOf(c));
+        assertEquals(3, s.color[s.indexOf(c)]);
+        assertEquals(2, s.color[s.indexOf(b)]);
+
+        // a's slot is reused, but the old handle stays stale
+        int d = s.add(40, 40, 5, 0, 0, 4, 0);
+        assertNotEquals(a, d);
+        assertEquals(-1, s.indexOf(a));
+        assertEquals(4, s.color[s.indexOf(d)]);
+    }
+
+    @Test public void spawnOrderSurvivesSwapRemove() {
+        TargetStore s = new TargetStore(8);
+        s.add(50, 50, 20, 0, 0, 1, 0);
+        s.add(100, 100, 5, 0, 0, 2, 0);
+        s.add(52, 52, 20, 0, 0, 3, 0); // overlaps the first
+        s.add(55, 55, 20, 0, 0, 4, 0); // newest, overlaps both
+        s.removeAt(1); // 4 swaps into index 1, below 3 by index but newer
+
+        int[] order = s.drawOrder();
+        assertEquals(3, s.size());
+        assertEquals(1, s.color[order[0]]);
+        assertEquals(3, s.color[order[1]]);
+        assertEquals(4, s.color[order[2]]);
+        assertEquals(4, s.color[s.hitTest(53, 53)]);
+
+        s.add(0, 0, 5, 0, 0, 5, 0);
+        assertEquals(5, s.color[s.drawOrder()[3]]);
+    }
+
+    @Test public void cullExpiredRemovesOnlyOldTargets() {
+        TargetStore s = new TargetStore(8);
+        s.add(0, 0, 5, 0, 0, 1, 0);
+        s.add(0, 0, 5, 0, 0, 2, 500);
+        s.add(0, 0, 5, 0, 0, 3, 0);
+        assertEquals(2, s.cullExpired(1000, 900));
+        assertEquals(1, s.size());
+        assertEquals(2, s.color[0]);
+    }
+
+    @Test public void integrateBouncesOffEdges() {
+        TargetStore s = new TargetStore(2);
+        s.add(11, 50, 10, -2, 0, 1, 0);
+        s.integrate(100, 100, 1f);
+        assertEquals(10f, s.cx[0], 0f);
+        assertEquals(2f, s.vx[0], 0f);
+    }
+
+    @Test public void predictionExtrapolatesAndBounces() {
+        TargetStore s = new TargetStore(2);
+        s.add(50, 50, 10, 100, -100, 1, 0);
+        assertEquals(60f, s.predictX(0, 0.1f, 200), 1e-3f);
+        assertEquals(40f, s.predictY(0, 0.1f, 200), 1e-3f);
+        assertEquals(30f, s.predictY(0, 0.6f, 200), 1e-3f); // 50 - 60 = -10: off the r=10 edge by 20
+        assertEquals(50f, s.cx[0], 0f); // state untouched
+    }
+
+    @Test public void hitTestPrefersTopmost() {
+        TargetStore s = new TargetStore(4);
+        s.add(50, 50, 20, 0, 0, 1, 0);
+        s.add(55, 55, 20, 0, 0, 2, 0);
+        assertEquals(1, s.hitTest(52, 52));
+        assertEquals(-1, s.hitTest(0, 0));
+    }
+
+    @Test public void fullStoreRejectsAdd() {
+        TargetStore s = new TargetStore(1);
+        assertTrue(s.add(0, 0, 1, 0, 0, 0, 0) >= 0);
+        assertEquals(-1, s.add(0, 0, 1, 0, 0, 0, 0));
+    }
+}
@@ -0,0 +1,123 @@
+package com.projuktilipi.Touchme;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTest {
+    private static final long MS = 1_000_000L;
+
+    private static class Log implements TimerWheel.Sink {
+        final List<long[]> fired = new ArrayList<>(); // {kind, data, deadline, now}
+        long now;
+        @Override public void onTimer(int kind, int data, long deadline) {
+            fired.add(new long[] { kind, data, deadline, now });
+        }
+        int advance(TimerWheel w, long t) { now = t; return w.advance(t, this); }
+    }
+
+    @Test public void firesAtDeadlineNotBefore() {
+        TimerWheel w = new TimerWheel(MS, 16);
+        w.reset(0);
+        Log log = new Log();
+        w.schedule(60_000 * MS, 1, 7);
+        assertEquals(0, log.advance(w, 60_000 * MS - 1));
+        assertEquals(1, log.advance(w, 60_000 * MS));
+        assertEquals(7, log.fired.get(0)[1]);
+        assertEquals(0, w.size());
+    }
+
+    @Test public void cancelAndStaleHandles() {
+        TimerWheel w = new TimerWheel(MS, 4);
+        w.reset(0);
+        Log log = new Log();
+        int a = w.schedule(5 * MS, 0, 0);
+        int b = w.schedule(5 * MS, 0, 1);
+        assertTrue(w.cancel(a));
+        assertFalse(w.cancel(a));
+        log.advance(w, 10 * MS);
+        assertEquals(1, log.fired.size());
+        assertFalse(w.cancel(b)); // already fired
+        int c = w.schedule(20 * MS, 0, 2); // may reuse b's node
+        assertFalse(w.cancel(b));
+        assertTrue(w.cancel(c));
+    }
+
+    @Test public void sameTickKeepsScheduleOrder() {
+        TimerWheel w = new TimerWheel(MS, 8);
+        w.reset(0);
+        Log log = new Log();
+        for (int i = 0; i < 5; i++) w.schedule(3 * MS, 0, i);
+        log.advance(w, 3 * MS);
+        for (int i = 0; i < 5; i++) assertEquals(i, log.fired.get(i)[1]);
+    }
+
+    @Test public void randomDeadlinesAcrossLevelsFireInOrderAndOnTime() {
+        TimerWheel w = new TimerWheel(MS, 4096);
+        long origin = 123_456_789L;
+        w.reset(origin);
+        Random rnd = new Random(3);
+        Log log = new Log();
+        for (int i = 0; i < 3000; i++) {
+            long d = origin + (long) (rnd.nextDouble() * 6 * 3600_000L) * MS / 10; // up to ~36 min
+            if (i % 3 == 0) d = origin + rnd.nextInt(5000) * MS + rnd.nextInt(1_000_000);
+            w.schedule(d, 0, i);
+        }
+        long t = origin;
+        while (w.size() > 0) {
+            t += 16 * MS + rnd.nextInt(30) * MS;
+            log.advance(w, t);
+        }
+        long last = Long.MIN_VALUE;
+        for (long[] f : log.fired) {
+            long deadline = f[2], firedAt = f[3];
+            assertTrue("early", firedAt >= deadline);
+            long tick = (deadline - origin + MS - 1) / MS * MS + origin; // first tick at/after deadline
+            assertTrue("fired late", firedAt - tick < 46 * MS); // one advance step at most
+            assertTrue("order", (deadline - origin + MS - 1) / MS >= last);
+            last = (deadline - origin + MS - 1) / MS;
+        }
+        assertEquals(3000, log.fired.size());
+    }
+
+    @Test public void callbackMayReschedule() {
+        TimerWheel w = new TimerWheel(MS, 2);
+        w.reset(0);
+        long[] last = { 0 };
+        int[] count = { 0 };
+        TimerWheel.Sink repeat = (kind, data, deadline) -> {
+            count[0]++;
+            last[0] = deadline;
+            w.schedule(deadline + 1000 * MS, kind, data); // period from the deadline: no drift
+        };
+        w.schedule(1000 * MS, 0, 0);
+        w.advance(10_500 * MS, repeat); // one big jump still fires each period in turn
+        assertEquals(10, count[0]);
+        assertEquals(10_000 * MS, last[0]);
+        assertEquals(1, w.size());
+    }
+
+    @Test public void pastDeadlineFiresOnNextTick() {
+        TimerWheel w = new TimerWheel(MS, 2);
+        w.reset(0);
+        Log log = new Log();
+        log.advance(w, 50 * MS);
+        w.schedule(10 * MS, 0, 0);
+        assertEquals(0, log.advance(w, 50 * MS));
+        assertEquals(1, log.advance(w, 51 * MS));
+    }
+
+    @Test public void veryLongDeadlinesPark() {
+        TimerWheel w = new TimerWheel(MS, 2);
+        w.reset(0);
+        Log log = new Log();
+        long day = 24 * 3600_000L * MS;
+        w.schedule(day, 0, 0);
+        for (long t = 0; t < day - 60_000 * MS; t += 60_000 * MS) assertEquals(0, log.advance(w, t));
+        assertEquals(1, log.advance(w, day));
+    }
+}